@@ -54,6 +54,9 @@ public class SecurityConfig {
                                 "/",
                                 "/api/products/findall")
                         .permitAll() // DONT FORGET TO ADD SECURITY
+                        .requestMatchers("/actuator/health").permitAll()
+                        // Metrics expose cache, order and outbox internals
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .anyRequest().permitAll())
 
                 .exceptionHandling(ex -> ex
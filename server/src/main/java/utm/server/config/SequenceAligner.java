@@ -0,0 +1,59 @@
+package utm.server.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moves id sequences past the ids already in their tables. These tables used identity columns
+ * before they switched to pooled sequences, and ddl-auto creates a new sequence starting at 1.
+ * <p>
+ * Runs while the context starts (after Hibernate updated the schema, before requests are served).
+ * A sequence is only moved when the next block it would hand out overlaps existing ids, so
+ * blocks that running instances still hold are left alone.
+ */
+@Component
+@Slf4j
+public class SequenceAligner implements InitializingBean {
+
+    // sequence -> table
+    private static final Map<String, String> SEQUENCES = Map.of(
+            "products_seq", "products",
+            "shop_entity_seq", "shop_entity",
+            "product_images_seq", "product_images",
+            "orders_seq", "orders",
+            "order_items_seq", "order_items",
+            "cart_items_seq", "cart_items");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Depending on the EntityManagerFactory makes sure the sequences exist before we run
+    public SequenceAligner(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        SEQUENCES.forEach(this::align);
+    }
+
+    private void align(String sequence, String table) {
+        List<Long> nextBlock = jdbcTemplate.query(
+                "SELECT COALESCE(last_value + increment_by, start_value) FROM pg_sequences WHERE sequencename = ?",
+                (rs, i) -> rs.getLong(1),
+                sequence);
+        if (nextBlock.isEmpty()) {
+            return;
+        }
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        if (maxId != null && maxId >= nextBlock.get(0)) {
+            jdbcTemplate.queryForObject("SELECT setval(?::regclass, ?, false)", Long.class, sequence, maxId + 1);
+            log.info("Moved sequence {} past existing ids of {} (next id {})", sequence, table, maxId + 1);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package utm.server.modules.cart;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies one {@link QuantityChange} per product to a user's cart with a fixed number of
+ * statements, whatever the number of products. The user's cart must exist.
+ * <p>
+ * New items are inserted first; items that already existed (including ones a concurrent
+ * request inserted meanwhile) conflict and are then updated in place, with the new quantity
+ * computed from the stored one, so concurrent mutations are never lost.
+ */
+@Repository
+@RequiredArgsConstructor
+class CartBatchWriter {
+
+    private static final String INSERT_NEW = """
+            INSERT INTO cart_items (id, cart_id, product_id, quantity)
+            SELECT nextval('cart_items_seq'), c.id, v.product_id, v.quantity
+            FROM carts c CROSS JOIN unnest(CAST(? AS bigint[]), CAST(? AS int[])) AS v(product_id, quantity)
+            WHERE c.user_id = ? AND v.quantity > 0
+            ON CONFLICT (cart_id, product_id) DO NOTHING
+            RETURNING product_id""";
+
+    private static final String UPDATE_EXISTING = """
+            UPDATE cart_items i SET quantity = COALESCE(v.absolute, GREATEST(i.quantity + v.delta, v.floor))
+            FROM carts c, unnest(CAST(? AS bigint[]), CAST(? AS int[]), CAST(? AS int[]), CAST(? AS int[]))
+                AS v(product_id, absolute, delta, floor)
+            WHERE c.user_id = ? AND i.cart_id = c.id AND i.product_id = v.product_id""";
+
+    private static final String DELETE_EMPTY = """
+            DELETE FROM cart_items i USING carts c
+            WHERE c.user_id = ? AND i.cart_id = c.id AND i.quantity <= 0
+              AND i.product_id = ANY(CAST(? AS bigint[]))""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    void apply(Long userId, Map<Long, QuantityChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        Long[] productIds = changes.keySet().toArray(Long[]::new);
+        Integer[] initial = changes.values().stream().map(QuantityChange::initialQuantity).toArray(Integer[]::new);
+        Set<Long> inserted = new HashSet<>(jdbcTemplate.queryForList(INSERT_NEW, Long.class, productIds, initial, userId));
+
+        List<Long> updateIds = new ArrayList<>();
+        List<Integer> absolutes = new ArrayList<>();
+        List<Integer> deltas = new ArrayList<>();
+        List<Integer> floors = new ArrayList<>();
+        changes.forEach((productId, change) -> {
+            if (!inserted.contains(productId)) {
+                updateIds.add(productId);
+                absolutes.add(change.absolute());
+                deltas.add(change.delta());
+                floors.add(change.floor());
+            }
+        });
+        if (updateIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(UPDATE_EXISTING, updateIds.toArray(Long[]::new), absolutes.toArray(Integer[]::new),
+                deltas.toArray(Integer[]::new), floors.toArray(Integer[]::new), userId);
+        jdbcTemplate.update(DELETE_EMPTY, userId, updateIds.toArray(Long[]::new));
+    }
+}
@@ -5,40 +5,22 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import utm.server.modules.cart.dto.CartBatchRequest;
 import utm.server.modules.cart.dto.CartItemRequest;
-import utm.server.modules.cart.dto.CartItemResponse;
 import utm.server.modules.cart.dto.CartResponse;
-import utm.server.modules.users.UserEntity;
+import utm.server.modules.cart.dto.CartSummaryDto;
+import utm.server.modules.idempotency.Idempotent;
 import utm.server.modules.users.security.UserSecurityPrincipal;
-import utm.server.modules.users.security.UserSecurityPrincipalMapper;
-
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/cart")
 @RequiredArgsConstructor
 public class CartController {
     private final CartService cartService;
-    private final UserSecurityPrincipalMapper userSecurityPrincipalMapper;
-
-    // Helper method to create cart response
-    private ResponseEntity<CartResponse> buildCartResponse(UserEntity user) {
-        if (user == null) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-        }
 
-        Cart cart = cartService.getCart(user);
-        CartResponse response = new CartResponse();
-        response.setCartId(cart.getId());
-        response.setItems(cart.getItems().stream().map(item -> {
-            CartItemResponse cir = new CartItemResponse();
-            cir.setProductId(item.getProduct().getId());
-            cir.setProductName(item.getProduct().getTitle());
-            cir.setQuantity(item.getQuantity());
-            cir.setCartItemId(item.getId()); // Include cart item ID in the response
-            return cir;
-        }).collect(Collectors.toList()));
-        return ResponseEntity.ok(response);
+    // Helper method to create cart response; keyed by the id from the token, the user is never loaded
+    private ResponseEntity<CartResponse> buildCartResponse(UserSecurityPrincipal principal) {
+        return ResponseEntity.ok(cartService.getCartView(principal.getId()));
     }
 
     @GetMapping
@@ -46,20 +28,27 @@ public class CartController {
         if (principal == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
-        UserEntity user = userSecurityPrincipalMapper.getUser(principal);
-        return buildCartResponse(user);
+        return buildCartResponse(principal);
+    }
+
+    @GetMapping("/summary")
+    public ResponseEntity<CartSummaryDto> getSummary(@AuthenticationPrincipal UserSecurityPrincipal principal) {
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(cartService.getSummary(principal.getId()));
     }
 
+    @Idempotent
     @PostMapping("/add")
     public ResponseEntity<CartResponse> addItem(@RequestBody CartItemRequest request,
             @AuthenticationPrincipal UserSecurityPrincipal principal) {
         if (principal == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
-        UserEntity user = userSecurityPrincipalMapper.getUser(principal);
 
-        cartService.addItemToCart(user, request);
-        return buildCartResponse(user);
+        cartService.addItemToCart(principal.getId(), request);
+        return buildCartResponse(principal);
     }
 
     @PostMapping("/update")
@@ -68,11 +57,24 @@ public class CartController {
         if (principal == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
-        UserEntity user = userSecurityPrincipalMapper.getUser(principal);
 
         // Use the new method that uses cart item ID
-        cartService.updateItemQuantityByCartItemId(user, request);
-        return buildCartResponse(user);
+        cartService.updateItemQuantityByCartItemId(principal.getId(), request);
+        return buildCartResponse(principal);
+    }
+
+    /**
+     * Applies several add/set/remove/merge operations at once; after login the client sends its
+     * whole guest cart here as MERGE operations instead of one request per item.
+     */
+    @Idempotent
+    @PostMapping("/batch")
+    public ResponseEntity<CartResponse> applyBatch(@RequestBody CartBatchRequest request,
+            @AuthenticationPrincipal UserSecurityPrincipal principal) {
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(cartService.applyBatch(principal.getId(), request));
     }
 
     @DeleteMapping("/remove/{cartItemId}")
@@ -81,11 +83,10 @@ public class CartController {
         if (principal == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
-        UserEntity user = userSecurityPrincipalMapper.getUser(principal);
 
         // Use the new method that uses cart item ID
-        cartService.removeItemFromCartByCartItemId(user, cartItemId);
-        return buildCartResponse(user);
+        cartService.removeItemFromCartByCartItemId(principal.getId(), cartItemId);
+        return buildCartResponse(principal);
     }
 
     @DeleteMapping("/clear")
@@ -93,9 +94,7 @@ public class CartController {
         if (principal == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
-        UserEntity user = userSecurityPrincipalMapper.getUser(principal);
-
-        cartService.clearCart(user);
+        cartService.clearCart(principal.getId());
         return ResponseEntity.ok().build();
     }
 
@@ -108,4 +107,4 @@ public class CartController {
     public ResponseEntity<String> handleIllegalArgumentException(IllegalArgumentException e) {
         return ResponseEntity.badRequest().body(e.getMessage());
     }
-}
\ No newline at end of file
+}
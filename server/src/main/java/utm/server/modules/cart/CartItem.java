@@ -4,10 +4,15 @@ import jakarta.persistence.*;
 import utm.server.modules.products.Product;
 
 @Entity
-@Table(name = "cart_items")
+@Table(name = "cart_items", uniqueConstraints =
+        @UniqueConstraint(name = CartItem.CART_PRODUCT_KEY, columnNames = {"cart_id", "product_id"}))
 public class CartItem {
+    // One row per product and cart; the upserts in CartItemRepository merge on it
+    static final String CART_PRODUCT_KEY = "uk_cart_items_cart_product";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_items_seq")
+    @SequenceGenerator(name = "cart_items_seq", sequenceName = "cart_items_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
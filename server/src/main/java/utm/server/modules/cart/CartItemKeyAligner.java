@@ -0,0 +1,51 @@
+package utm.server.modules.cart;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Makes sure {@code cart_items} has its (cart_id, product_id) unique key. Carts written before
+ * the key existed can hold the same product twice, in which case ddl-auto fails to add it; the
+ * duplicates are merged into the oldest row (quantities summed) and the key is created here.
+ */
+@Component
+@Slf4j
+public class CartItemKeyAligner implements InitializingBean {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    // Depending on the EntityManagerFactory makes sure ddl-auto ran before us
+    public CartItemKeyAligner(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                              EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Integer existing = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM pg_indexes WHERE tablename = 'cart_items' AND indexname = ?",
+                Integer.class, CartItem.CART_PRODUCT_KEY);
+        if (existing != null && existing > 0) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("""
+                    UPDATE cart_items i SET quantity = d.total
+                    FROM (SELECT MIN(id) AS keep, SUM(quantity) AS total FROM cart_items
+                          GROUP BY cart_id, product_id HAVING COUNT(*) > 1) d
+                    WHERE i.id = d.keep""");
+            int merged = jdbcTemplate.update("""
+                    DELETE FROM cart_items a USING cart_items b
+                    WHERE a.cart_id = b.cart_id AND a.product_id = b.product_id AND a.id > b.id""");
+            jdbcTemplate.execute("CREATE UNIQUE INDEX IF NOT EXISTS " + CartItem.CART_PRODUCT_KEY
+                    + " ON cart_items (cart_id, product_id)");
+            log.info("Created {} after merging {} duplicate cart items", CartItem.CART_PRODUCT_KEY, merged);
+        });
+    }
+}
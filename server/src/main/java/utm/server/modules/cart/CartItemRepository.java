@@ -1,6 +1,65 @@
 package utm.server.modules.cart;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import utm.server.modules.cart.dto.CartLine;
 
+import java.util.List;
+
+/**
+ * Cart mutations are single statements keyed by the owner's user id, so they need no prior
+ * reads and concurrent requests for the same product merge on the (cart_id, product_id) key.
+ * Upserts affect no row when the user has no cart yet or the product does not exist.
+ */
 public interface CartItemRepository extends JpaRepository<CartItem, Long> {
-}
\ No newline at end of file
+
+    @Query("SELECT new utm.server.modules.cart.dto.CartLine(i.product.id, i.quantity) " +
+            "FROM CartItem i WHERE i.cart.user.id = :userId ORDER BY i.id")
+    List<CartLine> findLinesByUserId(@Param("userId") Long userId);
+
+    @Modifying
+    @Query(value = "INSERT INTO cart_items (id, cart_id, product_id, quantity) " +
+            "SELECT nextval('cart_items_seq'), c.id, p.id, :quantity FROM carts c JOIN products p ON p.id = :productId " +
+            "WHERE c.user_id = :userId " +
+            "ON CONFLICT (cart_id, product_id) DO UPDATE SET quantity = cart_items.quantity + EXCLUDED.quantity",
+            nativeQuery = true)
+    int addQuantity(@Param("userId") Long userId, @Param("productId") Long productId, @Param("quantity") int quantity);
+
+    @Modifying
+    @Query(value = "INSERT INTO cart_items (id, cart_id, product_id, quantity) " +
+            "SELECT nextval('cart_items_seq'), c.id, p.id, :quantity FROM carts c JOIN products p ON p.id = :productId " +
+            "WHERE c.user_id = :userId " +
+            "ON CONFLICT (cart_id, product_id) DO UPDATE SET quantity = EXCLUDED.quantity",
+            nativeQuery = true)
+    int setQuantity(@Param("userId") Long userId, @Param("productId") Long productId, @Param("quantity") int quantity);
+
+    @Modifying
+    @Query(value = "UPDATE cart_items i SET quantity = :quantity FROM carts c " +
+            "WHERE i.id = :cartItemId AND i.cart_id = c.id AND c.user_id = :userId", nativeQuery = true)
+    int setQuantityById(@Param("userId") Long userId, @Param("cartItemId") Long cartItemId,
+                        @Param("quantity") int quantity);
+
+    // Drops the item once a decrement took it to zero or below
+    @Modifying
+    @Query(value = "DELETE FROM cart_items i USING carts c " +
+            "WHERE i.cart_id = c.id AND c.user_id = :userId AND i.product_id = :productId AND i.quantity <= 0",
+            nativeQuery = true)
+    int deleteEmpty(@Param("userId") Long userId, @Param("productId") Long productId);
+
+    @Modifying
+    @Query(value = "DELETE FROM cart_items i USING carts c " +
+            "WHERE i.cart_id = c.id AND c.user_id = :userId AND i.product_id = :productId", nativeQuery = true)
+    int deleteByProduct(@Param("userId") Long userId, @Param("productId") Long productId);
+
+    @Modifying
+    @Query(value = "DELETE FROM cart_items i USING carts c " +
+            "WHERE i.id = :cartItemId AND i.cart_id = c.id AND c.user_id = :userId", nativeQuery = true)
+    int deleteByIdAndUserId(@Param("userId") Long userId, @Param("cartItemId") Long cartItemId);
+
+    @Modifying
+    @Query(value = "DELETE FROM cart_items i USING carts c WHERE i.cart_id = c.id AND c.user_id = :userId",
+            nativeQuery = true)
+    int deleteAllByUserId(@Param("userId") Long userId);
+}
@@ -1,9 +1,15 @@
 package utm.server.modules.cart;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import utm.server.modules.cart.dto.CartItemView;
+import utm.server.modules.cart.dto.CartSummaryDto;
 import utm.server.modules.users.UserEntity;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -13,4 +19,23 @@ public interface CartRepository extends JpaRepository<Cart, Long> {
 
     // If you still need to query by user entity
     Optional<Cart> findByUser(UserEntity user);
-}
\ No newline at end of file
+
+    @Query(value = "SELECT ct.id AS cartId, i.id AS cartItemId, p.id AS productId, p.uuid AS productUuid, " +
+            "p.title AS title, p.price AS price, i.quantity AS quantity, pc.image_keys[1] AS imageKey " +
+            "FROM carts ct " +
+            "LEFT JOIN cart_items i ON i.cart_id = ct.id " +
+            "LEFT JOIN products p ON p.id = i.product_id " +
+            "LEFT JOIN product_cards pc ON pc.product_id = i.product_id " +
+            "WHERE ct.user_id = :userId ORDER BY i.id", nativeQuery = true)
+    List<CartItemView> findViewByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT new utm.server.modules.cart.dto.CartSummaryDto(" +
+            "COALESCE(SUM(i.quantity), 0L), COUNT(i), COALESCE(SUM(i.quantity * p.price), 0.0)) " +
+            "FROM CartItem i JOIN i.product p WHERE i.cart.user.id = :userId")
+    CartSummaryDto summarizeByUserId(@Param("userId") Long userId);
+
+    // Safe under concurrent first requests of the same user, unlike save()
+    @Modifying
+    @Query(value = "INSERT INTO carts (user_id) VALUES (:userId) ON CONFLICT (user_id) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("userId") Long userId);
+}
@@ -3,146 +3,183 @@ package utm.server.modules.cart;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import utm.server.modules.cart.dto.CartBatchRequest;
 import utm.server.modules.cart.dto.CartItemRequest;
-import utm.server.modules.products.Product;
+import utm.server.modules.cart.dto.CartLine;
+import utm.server.modules.cart.dto.CartMapper;
+import utm.server.modules.cart.dto.CartResponse;
+import utm.server.modules.cart.dto.CartOperation;
+import utm.server.modules.cart.dto.CartSummaryDto;
 import utm.server.modules.products.ProductRepository;
 import utm.server.modules.users.UserEntity;
-import utm.server.modules.users.UserRepository;
 
-import java.util.Optional;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntSupplier;
 
 @Service
 @RequiredArgsConstructor
 public class CartService {
+    static final int MAX_BATCH_OPERATIONS = 500;
+
     private final CartRepository cartRepository;
     private final CartItemRepository cartItemRepository;
+    private final CartMapper cartMapper;
+    private final CartBatchWriter cartBatchWriter;
     private final ProductRepository productRepository;
-    private final UserRepository userRepository;
 
     @Transactional
     public Cart getCart(UserEntity user) {
-        // Fix method name to match repository method
         return cartRepository.findByUserId(user.getId())
                 .orElseGet(() -> {
-                    Cart newCart = new Cart();
-                    newCart.setUser(user);
-                    return cartRepository.save(newCart);
+                    cartRepository.insertIfAbsent(user.getId());
+                    return cartRepository.findByUserId(user.getId()).orElseThrow();
                 });
     }
 
-    @Transactional
-    public void addItemToCart(UserEntity user, CartItemRequest request) {
-        Cart cart = getCart(user);
+    /**
+     * The cart with product details, read in one query. {@code cartId} is {@code null}
+     * until the user first adds something.
+     */
+    @Transactional(readOnly = true)
+    public CartResponse getCartView(Long userId) {
+        return cartMapper.fromView(cartRepository.findViewByUserId(userId));
+    }
 
-        // Make sure we get a managed entity
-        Product product = productRepository.findById(request.getProductId())
-                .orElseThrow(() -> new IllegalArgumentException("Product not found"));
+    /**
+     * Product ids and quantities in the cart, without loading items or products.
+     */
+    @Transactional(readOnly = true)
+    public List<CartLine> getLines(Long userId) {
+        return cartItemRepository.findLinesByUserId(userId);
+    }
 
-        Optional<CartItem> existingItem = cart.getItems().stream()
-                .filter(item -> item.getProduct().getId().equals(product.getId()))
-                .findFirst();
+    @Transactional(readOnly = true)
+    public CartSummaryDto getSummary(Long userId) {
+        return cartRepository.summarizeByUserId(userId);
+    }
 
-        if (existingItem.isPresent()) {
-            CartItem item = existingItem.get();
-            item.setQuantity(item.getQuantity() + request.getQuantity());
-            cartItemRepository.save(item);
-        } else {
-            CartItem newItem = new CartItem();
-            newItem.setCart(cart);
-            newItem.setProduct(product);
-            newItem.setQuantity(request.getQuantity());
-
-            // Save the item first, then add to collection
-            CartItem savedItem = cartItemRepository.save(newItem);
-            cart.getItems().add(savedItem);
+    /**
+     * Adds {@code quantity} of a product, merging with the item already in the cart.
+     * A negative quantity decrements and removes the item once it reaches zero.
+     */
+    @Transactional
+    public void addItemToCart(Long userId, CartItemRequest request) {
+        Long productId = requireProductId(request);
+        int quantity = request.getQuantity() != null ? request.getQuantity() : 1;
+        upsert(userId, () -> cartItemRepository.addQuantity(userId, productId, quantity));
+        if (quantity < 0) {
+            cartItemRepository.deleteEmpty(userId, productId);
         }
-        cartRepository.save(cart);
     }
 
+    /**
+     * Sets the quantity of a product, adding it when it is not in the cart yet;
+     * a quantity of zero or less removes it.
+     */
     @Transactional
-    public void updateItemQuantity(UserEntity user, CartItemRequest request) {
-        Cart cart = getCart(user);
-        Product product = productRepository.findById(request.getProductId())
-                .orElseThrow(() -> new IllegalArgumentException("Product not found"));
-
-        CartItem item = cart.getItems().stream()
-                .filter(i -> i.getProduct().getId().equals(product.getId()))
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException("Item not in cart"));
-
-        if (request.getQuantity() <= 0) {
-            cart.getItems().remove(item);
-            cartItemRepository.delete(item);
+    public void updateItemQuantity(Long userId, CartItemRequest request) {
+        Long productId = requireProductId(request);
+        int quantity = request.getQuantity() != null ? request.getQuantity() : 0;
+        if (quantity <= 0) {
+            cartItemRepository.deleteByProduct(userId, productId);
         } else {
-            item.setQuantity(request.getQuantity());
-            cartItemRepository.save(item);
+            upsert(userId, () -> cartItemRepository.setQuantity(userId, productId, quantity));
         }
-        cartRepository.save(cart);
     }
 
     @Transactional
-    public void removeItemFromCart(UserEntity user, Long productId) {
-        Cart cart = getCart(user);
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new IllegalArgumentException("Product not found"));
-
-        CartItem item = cart.getItems().stream()
-                .filter(i -> i.getProduct().getId().equals(product.getId()))
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException("Item not in cart"));
-
-        cart.getItems().remove(item);
-        cartItemRepository.delete(item);
-        cartRepository.save(cart);
+    public void removeItemFromCart(Long userId, Long productId) {
+        if (cartItemRepository.deleteByProduct(userId, productId) == 0) {
+            throw new IllegalArgumentException("Item not in cart");
+        }
     }
 
-    // NEW METHOD: Update item quantity by cart item ID
     @Transactional
-    public void updateItemQuantityByCartItemId(UserEntity user, CartItemRequest request) {
-        Cart cart = getCart(user);
-
-        // Find the cart item by ID
-        CartItem item = cartItemRepository.findById(request.getCartItemId())
-                .orElseThrow(() -> new IllegalArgumentException("Cart item not found"));
-
-        // Verify the cart item belongs to the user's cart
-        if (!item.getCart().getId().equals(cart.getId())) {
-            throw new SecurityException("Cannot update cart item that doesn't belong to the user's cart");
+    public void updateItemQuantityByCartItemId(Long userId, CartItemRequest request) {
+        int quantity = request.getQuantity() != null ? request.getQuantity() : 0;
+        if (quantity <= 0) {
+            // Remove the item if quantity is 0 or negative
+            removeItemFromCartByCartItemId(userId, request.getCartItemId());
+        } else if (cartItemRepository.setQuantityById(userId, request.getCartItemId(), quantity) == 0) {
+            // Items of other users' carts are not found either
+            throw new IllegalArgumentException("Cart item not found");
         }
+    }
 
-        if (request.getQuantity() <= 0) {
-            // Remove the item if quantity is 0 or negative
-            removeItemFromCartByCartItemId(user, request.getCartItemId());
-        } else {
-            item.setQuantity(request.getQuantity());
-            cartItemRepository.save(item);
+    @Transactional
+    public void removeItemFromCartByCartItemId(Long userId, Long cartItemId) {
+        if (cartItemRepository.deleteByIdAndUserId(userId, cartItemId) == 0) {
+            throw new IllegalArgumentException("Cart item not found");
         }
     }
 
-    // NEW METHOD: Remove item from cart by cart item ID
     @Transactional
-    public void removeItemFromCartByCartItemId(UserEntity user, Long cartItemId) {
-        Cart cart = getCart(user);
+    public void clearCart(Long userId) {
+        cartItemRepository.deleteAllByUserId(userId);
+    }
+
+    /**
+     * Applies a batch of operations in order and returns the resulting cart. Operations are
+     * folded into one change per product, products are checked with one query and the changes
+     * are written with a fixed number of statements.
+     */
+    @Transactional
+    public CartResponse applyBatch(Long userId, CartBatchRequest request) {
+        List<CartOperation> operations = request.operations() != null ? request.operations() : List.of();
+        if (operations.size() > MAX_BATCH_OPERATIONS) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_OPERATIONS + " operations per batch");
+        }
 
-        // Find the cart item by ID
-        CartItem item = cartItemRepository.findById(cartItemId)
-                .orElseThrow(() -> new IllegalArgumentException("Cart item not found"));
+        Map<Long, QuantityChange> changes = new LinkedHashMap<>();
+        Set<Long> required = new HashSet<>();
+        for (CartOperation operation : operations) {
+            if (operation.type() == null || operation.productId() == null) {
+                throw new IllegalArgumentException("Every operation needs a type and a product id");
+            }
+            changes.put(operation.productId(),
+                    changes.getOrDefault(operation.productId(), QuantityChange.NONE).then(operation));
+            if (operation.type() != CartOperation.Type.MERGE) {
+                required.add(operation.productId());
+            }
+        }
 
-        // Verify the cart item belongs to the user's cart
-        if (!item.getCart().getId().equals(cart.getId())) {
-            throw new SecurityException("Cannot remove cart item that doesn't belong to the user's cart");
+        if (!changes.isEmpty()) {
+            Set<Long> existing = new HashSet<>(productRepository.findExistingIds(changes.keySet()));
+            for (Long productId : required) {
+                if (!existing.contains(productId)) {
+                    throw new IllegalArgumentException("Product not found: " + productId);
+                }
+            }
+            changes.keySet().retainAll(existing);
+
+            cartRepository.insertIfAbsent(userId);
+            cartBatchWriter.apply(userId, changes);
         }
+        return getCartView(userId);
+    }
 
-        cart.getItems().remove(item);
-        cartItemRepository.delete(item);
-        cartRepository.save(cart);
+    /**
+     * Runs an item upsert; when it matched nothing, creates the cart and runs it once more.
+     * The steady state is a single statement.
+     */
+    private void upsert(Long userId, IntSupplier statement) {
+        if (statement.getAsInt() > 0) {
+            return;
+        }
+        cartRepository.insertIfAbsent(userId);
+        if (statement.getAsInt() == 0) {
+            throw new IllegalArgumentException("Product not found");
+        }
     }
 
-    @Transactional
-    public void clearCart(UserEntity user) {
-        Cart cart = getCart(user);
-        cartItemRepository.deleteAll(cart.getItems());
-        cart.getItems().clear();
-        cartRepository.save(cart);
+    private static Long requireProductId(CartItemRequest request) {
+        if (request.getProductId() == null) {
+            throw new IllegalArgumentException("Product id is required");
+        }
+        return request.getProductId();
     }
-}
\ No newline at end of file
+}
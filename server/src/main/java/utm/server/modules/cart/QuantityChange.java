@@ -0,0 +1,43 @@
+package utm.server.modules.cart;
+
+import utm.server.modules.cart.dto.CartOperation;
+
+/**
+ * Net effect of a sequence of operations on one cart item, as a function of the quantity
+ * {@code q} already in the cart: either a fixed {@code absolute} quantity, or
+ * {@code max(q + delta, floor)} where a {@code null} floor means no lower bound.
+ * Folding a batch into one change per product lets it be written with set-based statements
+ * that still read {@code q} atomically in the database.
+ */
+record QuantityChange(Integer absolute, int delta, Integer floor) {
+
+    static final QuantityChange NONE = new QuantityChange(null, 0, null);
+
+    QuantityChange then(CartOperation operation) {
+        int quantity = operation.quantity() != null ? operation.quantity() : defaultQuantity(operation.type());
+        return switch (operation.type()) {
+            case ADD -> absolute != null
+                    ? new QuantityChange(absolute + quantity, 0, null)
+                    : new QuantityChange(null, delta + quantity, floor != null ? floor + quantity : null);
+            case SET -> new QuantityChange(Math.max(quantity, 0), 0, null);
+            case REMOVE -> new QuantityChange(0, 0, null);
+            case MERGE -> absolute != null
+                    ? new QuantityChange(Math.max(absolute, quantity), 0, null)
+                    : new QuantityChange(null, delta, floor != null ? Math.max(floor, quantity) : quantity);
+        };
+    }
+
+    /**
+     * Quantity of the item when it was not in the cart before.
+     */
+    int initialQuantity() {
+        if (absolute != null) {
+            return absolute;
+        }
+        return floor != null ? Math.max(delta, floor) : delta;
+    }
+
+    private static int defaultQuantity(CartOperation.Type type) {
+        return type == CartOperation.Type.ADD || type == CartOperation.Type.MERGE ? 1 : 0;
+    }
+}
@@ -0,0 +1,9 @@
+package utm.server.modules.cart.dto;
+
+import java.util.List;
+
+/**
+ * Operations applied in order, in one transaction.
+ */
+public record CartBatchRequest(List<CartOperation> operations) {
+}
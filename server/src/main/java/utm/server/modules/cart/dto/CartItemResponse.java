@@ -4,6 +4,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.UUID;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -12,4 +14,7 @@ public class CartItemResponse {
     private String productName;
     private Integer quantity;
     private Long cartItemId; // Added field to store cart item ID
-}
\ No newline at end of file
+    private UUID productUuid;
+    private Double price;
+    private String imageLink;
+}
@@ -0,0 +1,26 @@
+package utm.server.modules.cart.dto;
+
+import java.util.UUID;
+
+/**
+ * One row of the cart view query. A cart without items yields a single row whose item
+ * columns are {@code null}; a user without a cart yields no rows.
+ */
+public interface CartItemView {
+    Long getCartId();
+
+    Long getCartItemId();
+
+    Long getProductId();
+
+    UUID getProductUuid();
+
+    String getTitle();
+
+    Double getPrice();
+
+    Integer getQuantity();
+
+    // First image in display order, from the product card
+    String getImageKey();
+}
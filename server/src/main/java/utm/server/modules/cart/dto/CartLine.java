@@ -0,0 +1,4 @@
+package utm.server.modules.cart.dto;
+
+public record CartLine(Long productId, int quantity) {
+}
@@ -0,0 +1,42 @@
+package utm.server.modules.cart.dto;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import utm.server.modules.image.ImageService;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+@Component
+@RequiredArgsConstructor
+public class CartMapper {
+
+    private final ImageService imageService;
+
+    /**
+     * Builds the cart response from the rows of {@code CartRepository.findViewByUserId},
+     * signing all thumbnail links in one call.
+     */
+    public CartResponse fromView(List<CartItemView> rows) {
+        CartResponse response = new CartResponse();
+        response.setCartId(rows.isEmpty() ? null : rows.get(0).getCartId());
+
+        List<CartItemView> items = rows.stream().filter(row -> row.getCartItemId() != null).toList();
+        Map<String, String> links = imageService.getPermanentLinks(items.stream()
+                .map(CartItemView::getImageKey)
+                .filter(Objects::nonNull)
+                .toList());
+        response.setItems(items.stream()
+                .map(row -> new CartItemResponse(
+                        row.getProductId(),
+                        row.getTitle(),
+                        row.getQuantity(),
+                        row.getCartItemId(),
+                        row.getProductUuid(),
+                        row.getPrice(),
+                        row.getImageKey() != null ? links.get(row.getImageKey()) : null))
+                .toList());
+        return response;
+    }
+}
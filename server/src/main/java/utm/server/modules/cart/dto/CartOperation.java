@@ -0,0 +1,19 @@
+package utm.server.modules.cart.dto;
+
+/**
+ * One step of a batch cart request.
+ * <ul>
+ *     <li>{@code ADD}: adds {@code quantity} (default 1, may be negative)</li>
+ *     <li>{@code SET}: sets the quantity, removing the item at zero or below</li>
+ *     <li>{@code REMOVE}: removes the item</li>
+ *     <li>{@code MERGE}: raises the quantity to at least {@code quantity}; used to fold a guest cart
+ *     into the account cart, so replaying the same guest cart twice does not double it. Products
+ *     that no longer exist are skipped instead of failing the batch.</li>
+ * </ul>
+ */
+public record CartOperation(Type type, Long productId, Integer quantity) {
+
+    public enum Type {
+        ADD, SET, REMOVE, MERGE
+    }
+}
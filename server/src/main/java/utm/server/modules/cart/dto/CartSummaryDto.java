@@ -0,0 +1,7 @@
+package utm.server.modules.cart.dto;
+
+/**
+ * Cart badge data: {@code itemCount} sums quantities, {@code lineCount} counts distinct products.
+ */
+public record CartSummaryDto(Long itemCount, Long lineCount, Double subtotal) {
+}
@@ -0,0 +1,66 @@
+package utm.server.modules.conditional;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import utm.server.modules.products.ProductChangedEvent;
+import utm.server.modules.products.ProductRepository;
+import utm.server.modules.shops.ShopChangedEvent;
+import utm.server.modules.shops.ShopRepository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version of the whole catalog (products and shops) kept in memory, so the ETag of an unscoped
+ * listing costs no query. It moves after every committed product or shop change made by this
+ * instance. Changes made elsewhere (other instances, bulk SQL) are caught by a periodic check of
+ * the table-wide stamps, which is the only place they are still computed.
+ * <p>
+ * The stamp carries a random generation, so two instances never hand out the same ETag for
+ * different data.
+ */
+@Component
+@RequiredArgsConstructor
+public class CatalogVersion {
+
+    private final ProductRepository productRepository;
+    private final ShopRepository shopRepository;
+
+    private final long generation = ThreadLocalRandom.current().nextLong(Long.MAX_VALUE);
+    private final AtomicLong counter = new AtomicLong();
+    private volatile Instant lastModified = Instant.now();
+    private volatile List<VersionStamp> lastChecked;
+
+    public VersionStamp current() {
+        return new VersionStamp(null, generation, counter.get(), lastModified);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        bump();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onShopChanged(ShopChangedEvent event) {
+        bump();
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.version.check-interval:PT30S}")
+    public void checkForOutsideChanges() {
+        List<VersionStamp> stamps = List.of(productRepository.findVersionStamp(), shopRepository.findVersionStamp());
+        List<VersionStamp> previous = lastChecked;
+        lastChecked = stamps;
+        if (previous != null && !previous.equals(stamps)) {
+            bump();
+        }
+    }
+
+    private void bump() {
+        lastModified = Instant.now();
+        counter.incrementAndGet();
+    }
+}
@@ -0,0 +1,46 @@
+package utm.server.modules.conditional;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+import utm.server.modules.image.ImageService;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Answers conditional GETs from {@link VersionStamp}s. The ETag and Last-Modified are derived
+ * from the stamps and from when image links were last re-signed, because response bodies embed
+ * signed links. A matching {@code If-None-Match} returns 304 before the body is built.
+ * <p>
+ * Last-Modified does not move on deletes; clients that send {@code If-None-Match} (browsers
+ * do once they have an ETag) are not affected, since it takes precedence.
+ */
+@Component
+@RequiredArgsConstructor
+public class ConditionalResponses {
+
+    private final ImageService imageService;
+
+    public <T> ResponseEntity<T> respond(WebRequest request, List<VersionStamp> stamps, Supplier<T> body) {
+        Instant linksSignedSince = imageService.linksSignedSince();
+        String etag = stamps.stream()
+                .map(VersionStamp::token)
+                .collect(Collectors.joining(".", "\"", "." + Long.toString(linksSignedSince.getEpochSecond(), 36) + "\""));
+        long lastModified = stamps.stream()
+                .map(VersionStamp::lastModified)
+                .filter(Objects::nonNull)
+                .reduce(linksSignedSince, (a, b) -> a.isAfter(b) ? a : b)
+                .toEpochMilli();
+
+        if (request.checkNotModified(etag, lastModified)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).lastModified(lastModified).build();
+        }
+        return ResponseEntity.ok().eTag(etag).lastModified(lastModified).body(body.get());
+    }
+}
@@ -0,0 +1,26 @@
+package utm.server.modules.conditional;
+
+import java.time.Instant;
+
+/**
+ * Aggregate version of a set of rows: how many there are, the highest id, the sum of their
+ * {@code @Version} counters and the latest update time. Any insert, update or delete in the
+ * set changes at least one component, so it can stand in for the rows when computing an ETag.
+ */
+public record VersionStamp(Long count, Long maxId, Long versionSum, Instant lastModified) {
+
+    public boolean isEmpty() {
+        return count == null || count == 0;
+    }
+
+    String token() {
+        return Long.toString(orZero(count), 36) + "-"
+                + Long.toString(orZero(maxId), 36) + "-"
+                + Long.toString(orZero(versionSum), 36) + "-"
+                + Long.toString(lastModified != null ? lastModified.toEpochMilli() : 0, 36);
+    }
+
+    private static long orZero(Long value) {
+        return value != null ? value : 0;
+    }
+}
@@ -0,0 +1,286 @@
+package utm.server.modules.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerExecutionChain;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import utm.server.except.ErrorMessage;
+import utm.server.modules.users.security.UserSecurityPrincipal;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs an {@link Idempotent} endpoint at most once per user and {@code Idempotency-Key}.
+ * <p>
+ * The first request claims the key in {@code idempotency_keys} and its response (status,
+ * content type and body) is stored when it finishes without a server error. Repeats get that
+ * response back with {@code Idempotent-Replayed: true}; repeats that arrive while it is still
+ * running wait for it. Responses are also kept in a bounded in-memory cache, which is where
+ * waiting happens on one instance; an instance that sees a key claimed elsewhere polls the
+ * table. Reusing a key for a different request is answered with 422, and a request that fails
+ * with a server error releases its key so it can be retried.
+ */
+@Slf4j
+@Component
+// After the security filter chain, which sets the principal
+@Order(Ordered.LOWEST_PRECEDENCE - 100)
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final long POLL_MILLIS = 100;
+
+    private record Execution(String fingerprint, CompletableFuture<IdempotentResponse> result) {
+    }
+
+    private final RequestMappingHandlerMapping handlerMapping;
+    private final IdempotencyStore store;
+    private final ObjectMapper objectMapper;
+    private final Cache<String, Execution> executions;
+    private final Duration ttl;
+    private final Duration waitTimeout;
+    private final Duration abandonAfter;
+
+    public IdempotencyFilter(RequestMappingHandlerMapping handlerMapping,
+                             IdempotencyStore store,
+                             ObjectMapper objectMapper,
+                             @Value("${idempotency.ttl:PT24H}") Duration ttl,
+                             @Value("${idempotency.wait-timeout:PT30S}") Duration waitTimeout,
+                             @Value("${idempotency.abandon-after:PT5M}") Duration abandonAfter,
+                             @Value("${idempotency.cache-size:10000}") long cacheSize) {
+        this.handlerMapping = handlerMapping;
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.waitTimeout = waitTimeout;
+        this.abandonAfter = abandonAfter;
+        this.executions = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getHeader(HEADER) == null || !isIdempotent(request);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Long userId = currentUserId();
+        if (userId == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        String key = request.getHeader(HEADER);
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            sendError(response, HttpServletResponse.SC_BAD_REQUEST,
+                    HEADER + " must be between 1 and " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+        CachedBodyRequest cachedRequest = new CachedBodyRequest(request);
+        String fingerprint = fingerprint(cachedRequest);
+
+        Execution mine = new Execution(fingerprint, new CompletableFuture<>());
+        Execution existing = executions.asMap().putIfAbsent(userId + ":" + key, mine);
+        if (existing != null) {
+            if (!existing.fingerprint().equals(fingerprint)) {
+                sendMismatch(response);
+                return;
+            }
+            IdempotentResponse earlier = await(existing.result());
+            // The execution may have learnt from another instance that the key belongs to a different request
+            if (earlier != null && !earlier.fingerprint().equals(fingerprint)) {
+                sendMismatch(response);
+                return;
+            }
+            replay(response, earlier);
+            return;
+        }
+
+        try {
+            if (store.claim(userId, key, fingerprint, ttl, abandonAfter)) {
+                execute(cachedRequest, response, filterChain, userId, key, mine);
+                return;
+            }
+            IdempotentResponse earlier = awaitStored(userId, key);
+            if (earlier == null) {
+                forget(userId, key, mine);
+                sendError(response, HttpServletResponse.SC_CONFLICT, "A request with this " + HEADER + " is still in progress");
+                return;
+            }
+            // Cache what the key really belongs to, which may be a different request than this one
+            executions.asMap().replace(userId + ":" + key, mine,
+                    new Execution(earlier.fingerprint(), CompletableFuture.completedFuture(earlier)));
+            mine.result().complete(earlier);
+            if (!earlier.fingerprint().equals(fingerprint)) {
+                sendMismatch(response);
+                return;
+            }
+            replay(response, earlier);
+        } catch (RuntimeException e) {
+            forget(userId, key, mine);
+            throw e;
+        }
+    }
+
+    private void execute(CachedBodyRequest request, HttpServletResponse response, FilterChain filterChain,
+                         Long userId, String key, Execution mine) throws ServletException, IOException {
+        ContentCachingResponseWrapper captured = new ContentCachingResponseWrapper(response);
+        try {
+            filterChain.doFilter(request, captured);
+        } catch (ServletException | IOException | RuntimeException e) {
+            store.release(userId, key);
+            forget(userId, key, mine);
+            throw e;
+        }
+        try {
+            if (captured.getStatus() >= 500) {
+                store.release(userId, key);
+                forget(userId, key, mine);
+            } else {
+                IdempotentResponse result = new IdempotentResponse(mine.fingerprint(), captured.getStatus(),
+                        captured.getContentType(), captured.getContentAsByteArray());
+                store.complete(userId, key, result);
+                mine.result().complete(result);
+            }
+        } finally {
+            captured.copyBodyToResponse();
+        }
+    }
+
+    /**
+     * Waits for a request of this instance; {@code null} when it failed or is too slow.
+     */
+    private IdempotentResponse await(CompletableFuture<IdempotentResponse> result) throws IOException {
+        try {
+            return result.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the original request", e);
+        }
+    }
+
+    /**
+     * Waits for a request of another instance to store its response.
+     */
+    private IdempotentResponse awaitStored(Long userId, String key) throws IOException {
+        long deadline = System.nanoTime() + waitTimeout.toNanos();
+        while (true) {
+            Optional<IdempotentResponse> stored = store.find(userId, key);
+            if (stored.isEmpty()) {
+                // Released after a failure while we looked
+                return null;
+            }
+            if (stored.get().completed() || System.nanoTime() > deadline) {
+                return stored.get().completed() ? stored.get() : null;
+            }
+            try {
+                Thread.sleep(POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the original request", e);
+            }
+        }
+    }
+
+    // Lets the next request with this key start over, and wakes up requests waiting on this one
+    private void forget(Long userId, String key, Execution execution) {
+        executions.asMap().remove(userId + ":" + key, execution);
+        execution.result().complete(null);
+    }
+
+    private void replay(HttpServletResponse response, IdempotentResponse earlier) throws IOException {
+        if (earlier == null) {
+            sendError(response, HttpServletResponse.SC_CONFLICT,
+                    "The original request with this " + HEADER + " did not complete, retry it");
+            return;
+        }
+        response.setStatus(earlier.status());
+        if (earlier.contentType() != null) {
+            response.setContentType(earlier.contentType());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        if (earlier.body() != null) {
+            response.setContentLength(earlier.body().length);
+            response.getOutputStream().write(earlier.body());
+        }
+    }
+
+    private void sendMismatch(HttpServletResponse response) throws IOException {
+        sendError(response, 422, HEADER + " was already used for a different request");
+    }
+
+    private void sendError(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType("application/json");
+        objectMapper.writeValue(response.getWriter(), new ErrorMessage(status, message));
+    }
+
+    private boolean isIdempotent(HttpServletRequest request) {
+        try {
+            HandlerExecutionChain chain = handlerMapping.getHandler(request);
+            return chain != null && chain.getHandler() instanceof HandlerMethod handlerMethod
+                    && handlerMethod.hasMethodAnnotation(Idempotent.class);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.getPrincipal() instanceof UserSecurityPrincipal principal
+                ? principal.getId()
+                : null;
+    }
+
+    static String fingerprint(CachedBodyRequest request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((request.getMethod() + " " + request.getRequestURI() + "?" + request.getQueryString() + "\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            digest.update(request.body());
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval:PT1H}")
+    public void purgeExpired() {
+        int purged = store.purgeExpired();
+        if (purged > 0) {
+            log.debug("Purged {} expired idempotency keys", purged);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package utm.server.modules.idempotency;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * A request made with an {@code Idempotency-Key} and, once it finished, its response. Written
+ * through {@link IdempotencyStore}; the entity only defines the table.
+ */
+@Entity
+@Table(name = "idempotency_keys", indexes = {
+        @Index(name = "idx_idempotency_keys_expires_at", columnList = "expires_at")
+})
+@IdClass(IdempotencyKeyEntity.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyKeyEntity {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Column(name = "idempotency_key")
+    private String idempotencyKey;
+
+    // SHA-256 of method, path, query and body
+    @Column(nullable = false, length = 64)
+    private String fingerprint;
+
+    // Null while the first request is still running
+    private Integer responseStatus;
+
+    private String contentType;
+
+    private byte[] responseBody;
+
+    @Column(nullable = false, columnDefinition = "timestamp(6) with time zone")
+    private Instant createdAt;
+
+    @Column(name = "expires_at", nullable = false, columnDefinition = "timestamp(6) with time zone")
+    private Instant expiresAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long userId;
+        private String idempotencyKey;
+    }
+}
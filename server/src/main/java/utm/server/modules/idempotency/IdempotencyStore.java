@@ -0,0 +1,64 @@
+package utm.server.modules.idempotency;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class IdempotencyStore {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Claims a key for running the request. Succeeds when the key is unused, expired, or held by
+     * a request that has not finished within {@code abandonAfter}, such as one whose instance
+     * went down.
+     */
+    public boolean claim(Long userId, String key, String fingerprint, Duration ttl, Duration abandonAfter) {
+        return !jdbcTemplate.query("""
+                        INSERT INTO idempotency_keys (user_id, idempotency_key, fingerprint, created_at, expires_at)
+                        VALUES (?, ?, ?, now(), now() + ? * interval '1 millisecond')
+                        ON CONFLICT (user_id, idempotency_key) DO UPDATE SET
+                            fingerprint = EXCLUDED.fingerprint,
+                            created_at = EXCLUDED.created_at,
+                            expires_at = EXCLUDED.expires_at,
+                            response_status = NULL, content_type = NULL, response_body = NULL
+                        WHERE idempotency_keys.expires_at < now()
+                           OR (idempotency_keys.response_status IS NULL
+                               AND idempotency_keys.created_at < now() - ? * interval '1 millisecond')
+                        RETURNING user_id""",
+                (rs, i) -> rs.getLong(1), userId, key, fingerprint, ttl.toMillis(), abandonAfter.toMillis()).isEmpty();
+    }
+
+    public Optional<IdempotentResponse> find(Long userId, String key) {
+        return jdbcTemplate.query("""
+                        SELECT fingerprint, response_status, content_type, response_body FROM idempotency_keys
+                        WHERE user_id = ? AND idempotency_key = ? AND expires_at >= now()""",
+                (rs, i) -> new IdempotentResponse(rs.getString(1), (Integer) rs.getObject(2),
+                        rs.getString(3), rs.getBytes(4)),
+                userId, key).stream().findFirst();
+    }
+
+    public void complete(Long userId, String key, IdempotentResponse response) {
+        jdbcTemplate.update("""
+                        UPDATE idempotency_keys SET response_status = ?, content_type = ?, response_body = ?
+                        WHERE user_id = ? AND idempotency_key = ?""",
+                response.status(), response.contentType(), response.body(), userId, key);
+    }
+
+    /**
+     * Gives up a claim after the request failed, so a retry runs it again.
+     */
+    public void release(Long userId, String key) {
+        jdbcTemplate.update("DELETE FROM idempotency_keys WHERE user_id = ? AND idempotency_key = ? AND response_status IS NULL",
+                userId, key);
+    }
+
+    public int purgeExpired() {
+        return jdbcTemplate.update("DELETE FROM idempotency_keys WHERE expires_at < now()");
+    }
+}
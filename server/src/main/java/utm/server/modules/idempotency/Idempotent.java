@@ -0,0 +1,17 @@
+package utm.server.modules.idempotency;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an endpoint whose requests may carry an {@code Idempotency-Key} header. A repeated key
+ * gets the first response back instead of running the endpoint again; see
+ * {@link IdempotencyFilter}. Meant for JSON endpoints: the body is read before the handler
+ * runs, which multipart requests do not survive.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Idempotent {
+}
@@ -0,0 +1,12 @@
+package utm.server.modules.idempotency;
+
+/**
+ * What is kept for an idempotency key. {@code status} is {@code null} while the request that
+ * claimed the key is still running.
+ */
+public record IdempotentResponse(String fingerprint, Integer status, String contentType, byte[] body) {
+
+    public boolean completed() {
+        return status != null;
+    }
+}
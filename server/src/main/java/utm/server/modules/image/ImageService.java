@@ -4,16 +4,36 @@ import org.springframework.web.multipart.MultipartFile;
 import utm.server.modules.image.dto.ImageUploadResponse;
 
 import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 public interface ImageService {
 
     Duration standardLinkDuration = Duration.ofMinutes(15);
 
     String getPermanentLink(String imageId);
+
+    /**
+     * Permanent links for several images at once, keyed by image id.
+     */
+    default Map<String, String> getPermanentLinks(Collection<String> imageIds) {
+        return imageIds.stream().distinct().collect(Collectors.toMap(Function.identity(), this::getPermanentLink));
+    }
     ImageUploadResponse upload(MultipartFile file, boolean isPublic, boolean isTemp);
 
     ImageUploadResponse confirmUpload(String tempObjectKey);
 
     boolean delete(String imageId);
     boolean exists(String imageId);
+
+    /**
+     * Start of the period in which {@link #getPermanentLink} keeps returning the same URLs.
+     * Responses embedding links must be treated as changed once this moves.
+     */
+    default Instant linksSignedSince() {
+        return Instant.EPOCH;
+    }
 }
@@ -18,6 +18,9 @@ import utm.server.modules.image.dto.ImageUploadResponse;
 
 import java.io.IOException;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -28,6 +31,9 @@ public class CloudflareImageService implements ImageService {
 
     private final S3Client s3Client;
     private final S3Presigner s3Presigner;
+    private final SignedLinkCache signedLinkCache;
+
+    private static final Duration PERMANENT_LINK_DURATION = Duration.ofDays(7);
 
     @Value("${cloudflare.r2.bucket}")
     private String bucket;
@@ -65,7 +71,7 @@ public class CloudflareImageService implements ImageService {
         }
 
         // Return response with key and URL (for public, non-temporary files)
-        String url = (isPublic) ? getSignedLink(key, Duration.ofDays(7)) : null;
+        String url = (isPublic) ? getSignedLink(key, PERMANENT_LINK_DURATION) : null;
         return new ImageUploadResponse(key, url);
     }
 
@@ -91,6 +97,7 @@ public class CloudflareImageService implements ImageService {
 
         // Delete temp object
         s3Client.deleteObject(builder -> builder.bucket(bucket).key(tempObjectKey));
+        signedLinkCache.invalidate(tempObjectKey);
 
         // Return response with new key and permanent URL
         return new ImageUploadResponse(newKey, getPermanentLink(newKey));
@@ -115,13 +122,25 @@ public class CloudflareImageService implements ImageService {
     @Override
     public String getPermanentLink(String imageId) {
 //        return String.format("%s/%s/%s", endpoint, bucket, imageId);
-        return getSignedLink(imageId, Duration.ofDays(7));
+        // The signature outlives the cache bucket, so a cached link never reaches a client expired
+        return signedLinkCache.get(imageId, key -> getSignedLink(key, PERMANENT_LINK_DURATION));
+    }
+
+    @Override
+    public Map<String, String> getPermanentLinks(Collection<String> imageIds) {
+        return signedLinkCache.getAll(imageIds, key -> getSignedLink(key, PERMANENT_LINK_DURATION));
+    }
+
+    @Override
+    public Instant linksSignedSince() {
+        return signedLinkCache.currentBucketStart();
     }
 
     @Override
     public boolean delete(String imageId) {
         try {
             s3Client.deleteObject(builder -> builder.bucket(bucket).key(imageId));
+            signedLinkCache.invalidate(imageId);
             return true;
         } catch (Exception e) {
             return false;
@@ -0,0 +1,97 @@
+package utm.server.modules.image.cloudflare;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Caches presigned links by object key. Entries live until the end of the current time
+ * bucket (a day by default, aligned to the epoch), so every read of the same key inside a
+ * bucket gets the same URL and browsers/CDNs can actually cache the image.
+ */
+@Component
+public class SignedLinkCache {
+
+    private final Cache<String, String> cache;
+    private final Duration bucket;
+    private final Clock clock;
+
+    public SignedLinkCache(@Value("${cloudflare.r2.link-cache.max-size:50000}") long maxSize,
+                           @Value("${cloudflare.r2.link-cache.bucket:P1D}") Duration bucket,
+                           MeterRegistry meterRegistry) {
+        this(maxSize, bucket, meterRegistry, Clock.systemUTC());
+    }
+
+    SignedLinkCache(long maxSize, Duration bucket, MeterRegistry meterRegistry, Clock clock) {
+        this.bucket = bucket;
+        this.clock = clock;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, String>() {
+                    @Override
+                    public long expireAfterCreate(String key, String value, long currentTime) {
+                        return untilBucketEnd();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, String value, long currentTime, long currentDuration) {
+                        return untilBucketEnd();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, String value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "image.signedLinks");
+    }
+
+    /**
+     * Returns the cached link for {@code objectKey}, signing a new one when missing.
+     */
+    public String get(String objectKey, Function<String, String> signer) {
+        return cache.get(objectKey, signer);
+    }
+
+    /**
+     * Returns cached links for all keys, signing the missing ones in one pass.
+     */
+    public Map<String, String> getAll(Collection<String> objectKeys, Function<String, String> signer) {
+        return cache.getAll(objectKeys, missing -> missing.stream()
+                .collect(Collectors.toMap(Function.identity(), signer)));
+    }
+
+    public void invalidate(String objectKey) {
+        cache.invalidate(objectKey);
+    }
+
+    /**
+     * Start of the current bucket; links handed out before it may since have been re-signed.
+     */
+    public Instant currentBucketStart() {
+        long bucketMillis = bucket.toMillis();
+        return Instant.ofEpochMilli(clock.millis() / bucketMillis * bucketMillis);
+    }
+
+    private long untilBucketEnd() {
+        long bucketMillis = bucket.toMillis();
+        long now = clock.millis();
+        long bucketEnd = (now / bucketMillis + 1) * bucketMillis;
+        return TimeUnit.MILLISECONDS.toNanos(bucketEnd - now);
+    }
+}
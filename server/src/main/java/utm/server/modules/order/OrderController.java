@@ -1,16 +1,30 @@
 package utm.server.modules.order;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import utm.server.except.InvalidPageRequestException;
+import utm.server.modules.idempotency.Idempotent;
 import utm.server.modules.order.dto.OrderCreateRequest;
 import utm.server.modules.order.dto.OrderResponseDTO;
+import utm.server.modules.order.dto.StockUnavailableResponse;
+import utm.server.modules.order.export.OrderExportFormat;
+import utm.server.modules.order.export.OrderExporter;
+import utm.server.modules.order.export.TooManyExportsException;
+import utm.server.modules.order.pending.PendingOrderCounter;
+import utm.server.modules.pagination.CursorPage;
+import utm.server.modules.products.stock.StockUnavailableException;
 import utm.server.modules.users.UserEntity;
 import utm.server.modules.users.security.UserSecurityPrincipal;
 import utm.server.modules.users.security.UserSecurityPrincipalMapper;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -20,7 +34,13 @@ public class OrderController {
 
     private final OrderService orderService;
     private final UserSecurityPrincipalMapper userSecurityPrincipalMapper;
+    private final PendingOrderCounter pendingOrderCounter;
+    private final OrderExporter orderExporter;
 
+    /**
+     * @deprecated returns the whole order history, use {@code GET /api/orders/page} instead
+     */
+    @Deprecated
     @GetMapping
     public ResponseEntity<List<OrderResponseDTO>> getUserOrders(@AuthenticationPrincipal UserEntity user) {
         if (user == null) {
@@ -29,6 +49,21 @@ public class OrderController {
         return ResponseEntity.ok(orderService.getUserOrders(user));
     }
 
+    /**
+     * The caller's orders, newest first. {@code summary=true} leaves out the items.
+     */
+    @GetMapping("/page")
+    public ResponseEntity<CursorPage<OrderResponseDTO>> getUserOrdersPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(defaultValue = "false") boolean summary,
+            @AuthenticationPrincipal UserSecurityPrincipal principal) {
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(orderService.getUserOrdersPage(principal.getId(), cursor, size, summary));
+    }
+
     @GetMapping("/{orderId}")
     public ResponseEntity<OrderResponseDTO> getOrderById(@PathVariable Long orderId,
             @AuthenticationPrincipal UserEntity user) {
@@ -46,6 +81,10 @@ public class OrderController {
         }
     }
 
+    /**
+     * @deprecated returns every order of the shop, use {@code GET /api/orders/shop/{shopId}/page} instead
+     */
+    @Deprecated
     @GetMapping("/shop/{shopId}")
     public ResponseEntity<List<OrderResponseDTO>> getShopOrders(@PathVariable Long shopId,
             @AuthenticationPrincipal UserSecurityPrincipal principal) {
@@ -69,10 +108,13 @@ public class OrderController {
         if (principal == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
-        UserEntity user = userSecurityPrincipalMapper.getUser(principal);
-        return ResponseEntity.ok(orderService.getPendingOrdersCount(user));
+        return ResponseEntity.ok(pendingOrderCounter.get(principal.getId()));
     }
 
+    /**
+     * @deprecated returns every order of the seller, use {@code GET /api/orders/seller/orders/page} instead
+     */
+    @Deprecated
     @GetMapping("/seller/orders")
     public ResponseEntity<List<OrderResponseDTO>> getSellerOrders(@AuthenticationPrincipal UserSecurityPrincipal principal) {
         if (principal == null) {
@@ -82,6 +124,72 @@ public class OrderController {
         return ResponseEntity.ok(orderService.getSellerOrders(user));
     }
 
+    /**
+     * Orders with the seller's products, newest first, optionally narrowed to one of their shops.
+     * {@code from} and {@code to} are inclusive order dates.
+     */
+    @GetMapping({"/seller/orders/page", "/shop/{shopId}/page"})
+    public ResponseEntity<CursorPage<OrderResponseDTO>> getSellerOrdersPage(
+            @PathVariable(required = false) Long shopId,
+            @RequestParam(required = false) Status status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @AuthenticationPrincipal UserSecurityPrincipal principal) {
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        SellerOrderFilter filter = new SellerOrderFilter(principal.getId(), shopId, status,
+                from != null ? from.atStartOfDay() : null,
+                to != null ? to.plusDays(1).atStartOfDay() : null);
+
+        try {
+            return ResponseEntity.ok(orderService.getSellerOrdersPage(filter, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+    }
+
+    /**
+     * Streams the seller's order items, optionally narrowed to one of their shops, oldest first.
+     * Takes the same filters as the paged listing.
+     */
+    @GetMapping({"/seller/orders/export", "/shop/{shopId}/export"})
+    public ResponseEntity<ResponseBodyEmitter> exportSellerOrders(
+            @PathVariable(required = false) Long shopId,
+            @RequestParam(defaultValue = "CSV") OrderExportFormat format,
+            @RequestParam(required = false) Status status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @AuthenticationPrincipal UserSecurityPrincipal principal) {
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        SellerOrderFilter filter = new SellerOrderFilter(principal.getId(), shopId, status,
+                from != null ? from.atStartOfDay() : null,
+                to != null ? to.plusDays(1).atStartOfDay() : null);
+
+        try {
+            ResponseBodyEmitter body = orderExporter.export(filter, format);
+            String filename = "orders-" + (shopId != null ? "shop-" + shopId + "-" : "") + LocalDate.now()
+                    + "." + format.extension();
+            return ResponseEntity.ok()
+                    .contentType(format.mediaType())
+                    .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                            .filename(filename).build().toString())
+                    .body(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        } catch (TooManyExportsException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        }
+    }
+
     @DeleteMapping("/{orderId}")
     public ResponseEntity<Void> deleteOrder(@PathVariable Long orderId,
             @AuthenticationPrincipal UserSecurityPrincipal principal) {
@@ -100,6 +208,7 @@ public class OrderController {
         }
     }
 
+    @Idempotent
     @PostMapping("/create")
     public ResponseEntity<OrderResponseDTO> createOrderFromCart(@RequestBody OrderCreateRequest request,
             @AuthenticationPrincipal UserSecurityPrincipal user) {
@@ -133,6 +242,17 @@ public class OrderController {
         }
     }
 
+    @ExceptionHandler(InvalidPageRequestException.class)
+    public ResponseEntity<String> handleInvalidPageRequest(InvalidPageRequestException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    @ExceptionHandler(StockUnavailableException.class)
+    public ResponseEntity<StockUnavailableResponse> handleStockUnavailable(StockUnavailableException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(new StockUnavailableResponse("Some products are sold out", e.getShortages()));
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<String> handleExceptions(Exception e) {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
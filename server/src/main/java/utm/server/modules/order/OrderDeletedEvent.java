@@ -0,0 +1,7 @@
+package utm.server.modules.order;
+
+/**
+ * Published synchronously right before an order is deleted, while its items can still be read.
+ */
+public record OrderDeletedEvent(Long orderId, Status status) {
+}
@@ -15,6 +15,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+// idx_orders_user_date_id (buyer order history) needs NULLS LAST, which @Index cannot declare;
+// OrderHistoryIndexAligner creates it
 @Table(name = "orders")
 @Getter
 @Setter
@@ -23,7 +25,8 @@ import java.util.List;
 public class OrderEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
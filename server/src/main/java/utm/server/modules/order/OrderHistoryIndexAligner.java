@@ -0,0 +1,40 @@
+package utm.server.modules.order;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Makes sure {@code orders} has the index behind the buyer order history, in the history's own
+ * order: {@code order_date DESC NULLS LAST}. {@code @Index} cannot declare the NULLS ordering,
+ * and an index made without it (by earlier versions, through ddl-auto) is replaced.
+ */
+@Component
+@Slf4j
+public class OrderHistoryIndexAligner implements InitializingBean {
+
+    private static final String INDEX = "idx_orders_user_date_id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Depending on the EntityManagerFactory makes sure ddl-auto ran before us
+    public OrderHistoryIndexAligner(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        List<String> definition = jdbcTemplate.queryForList(
+                "SELECT indexdef FROM pg_indexes WHERE tablename = 'orders' AND indexname = ?", String.class, INDEX);
+        if (!definition.isEmpty() && definition.get(0).contains("order_date DESC NULLS LAST")) {
+            return;
+        }
+        jdbcTemplate.execute("DROP INDEX IF EXISTS " + INDEX);
+        jdbcTemplate.execute("CREATE INDEX " + INDEX + " ON orders (user_id, order_date DESC NULLS LAST, id DESC)");
+        log.info("Created {} with undated orders last", INDEX);
+    }
+}
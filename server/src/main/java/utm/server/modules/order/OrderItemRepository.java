@@ -1,11 +1,29 @@
 package utm.server.modules.order;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import utm.server.modules.order.analytics.OrderSalesLine;
+import utm.server.modules.order.dto.OrderLine;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
     List<OrderItem> findByOrderId(Long orderId);
-}
\ No newline at end of file
+
+    @Query("SELECT new utm.server.modules.order.dto.OrderLine(" +
+            "i.order.id, i.id, i.product.id, i.productName, i.quantity, i.price) " +
+            "FROM OrderItem i WHERE i.order.id IN :orderIds ORDER BY i.id")
+    List<OrderLine> findLinesByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
+
+    @Query("SELECT new utm.server.modules.order.analytics.OrderSalesLine(" +
+            "p.shopEntity.id, p.id, i.productName, i.quantity, i.price, o.user.id, o.orderDate) " +
+            "FROM OrderItem i JOIN i.order o JOIN i.product p WHERE o.id = :orderId")
+    List<OrderSalesLine> findSalesLinesByOrderId(@Param("orderId") Long orderId);
+
+    @Query("SELECT DISTINCT s.user.id FROM OrderItem i JOIN i.product p JOIN p.shopEntity s WHERE i.order.id = :orderId")
+    List<Long> findSellerIdsByOrderId(@Param("orderId") Long orderId);
+}
@@ -0,0 +1,7 @@
+package utm.server.modules.order;
+
+/**
+ * Published inside the transaction that created an order, once its items are saved.
+ */
+public record OrderPlacedEvent(Long orderId) {
+}
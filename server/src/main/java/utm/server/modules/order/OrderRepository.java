@@ -1,25 +1,49 @@
 package utm.server.modules.order;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
-import utm.server.modules.users.UserEntity;
+import utm.server.modules.order.dto.BuyerOrderRow;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends JpaRepository<OrderEntity, Long> {
-    List<OrderEntity> findByUserOrderByOrderDateDesc(UserEntity user);
-
     List<OrderEntity> findByStatus(Status status);
 
+    String HISTORY_ROW = "SELECT new utm.server.modules.order.dto.BuyerOrderRow(o.id, o.orderDate, o.status, " +
+            "o.totalAmount, o.shippingAddress, o.shippingCity, o.shippingState, o.shippingZip, o.shippingCountry, " +
+            "o.phoneNumber, o.note) FROM OrderEntity o ";
+
+    // The history queries walk idx_orders_user_date_id; orders without a date come last, by id
+    String HISTORY_ORDER = "ORDER BY o.orderDate DESC NULLS LAST, o.id DESC";
+
+    @Query(HISTORY_ROW + "WHERE o.user.id = :userId " + HISTORY_ORDER)
+    List<BuyerOrderRow> findHistory(@Param("userId") Long userId, Pageable pageable);
+
+    @Query(HISTORY_ROW + "WHERE o.user.id = :userId " +
+            "AND (o.orderDate < :lastDate OR (o.orderDate = :lastDate AND o.id < :lastId) OR o.orderDate IS NULL) " +
+            HISTORY_ORDER)
+    List<BuyerOrderRow> findHistoryAfter(@Param("userId") Long userId,
+                                         @Param("lastDate") LocalDateTime lastDate,
+                                         @Param("lastId") Long lastId,
+                                         Pageable pageable);
+
+    @Query(HISTORY_ROW + "WHERE o.user.id = :userId AND o.orderDate IS NULL AND o.id < :lastId " + HISTORY_ORDER)
+    List<BuyerOrderRow> findHistoryAfterUndated(@Param("userId") Long userId,
+                                                @Param("lastId") Long lastId,
+                                                Pageable pageable);
+
+    @Query("SELECT o.user.id FROM OrderEntity o WHERE o.id = :orderId")
+    Optional<Long> findUserIdById(@Param("orderId") Long orderId);
+
     @Query("SELECT DISTINCT o FROM OrderEntity o JOIN o.items i JOIN i.product p WHERE p.shopEntity.id = :shopId ORDER BY o.orderDate DESC")
     List<OrderEntity> findOrdersByShopId(@Param("shopId") Long shopId);
 
-    @Query("SELECT COUNT(DISTINCT o) FROM OrderEntity o JOIN o.items i JOIN i.product p WHERE p.shopEntity.user.id = :userId AND o.status = 'PENDING'")
-    Long countPendingOrdersForSeller(@Param("userId") Long userId);
-
     @Query("SELECT DISTINCT o FROM OrderEntity o JOIN o.items i JOIN i.product p WHERE p.shopEntity.user.id = :userId ORDER BY o.orderDate DESC")
     List<OrderEntity> findOrdersBySellerId(@Param("userId") Long userId);
 }
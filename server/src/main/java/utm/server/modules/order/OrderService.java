@@ -1,41 +1,116 @@
 package utm.server.modules.order;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import utm.server.modules.cart.Cart;
-import utm.server.modules.cart.CartItem;
 import utm.server.modules.cart.CartService;
+import utm.server.modules.cart.dto.CartLine;
+import utm.server.modules.order.dto.BuyerOrderRow;
 import utm.server.modules.order.dto.OrderCreateRequest;
 import utm.server.modules.order.dto.OrderItemDTO;
+import utm.server.modules.order.dto.OrderLine;
 import utm.server.modules.order.dto.OrderResponseDTO;
-import utm.server.modules.products.Product;
+import utm.server.modules.order.dto.SellerOrderRow;
+import utm.server.modules.pagination.CursorPage;
+import utm.server.modules.pagination.KeysetCursor;
 import utm.server.modules.products.ProductRepository;
-import utm.server.modules.shops.ShopEntity;
+import utm.server.modules.products.dto.ProductRow;
+import utm.server.modules.products.stock.ProductStockStore;
 import utm.server.modules.shops.ShopRepository;
+import utm.server.modules.shops.dto.ShopRow;
 import utm.server.modules.users.UserEntity;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class OrderService {
 
+    private static final String HISTORY_SORT = "date";
+
     private final OrderRepository orderRepository;
     private final OrderItemRepository orderItemRepository;
     private final CartService cartService;
     private final ProductRepository productRepository;
     private final ShopRepository shopRepository;
-
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+    private final SellerOrderQuery sellerOrderQuery;
+    private final ProductStockStore productStockStore;
+
+    /**
+     * @deprecated returns the whole order history, use {@link #getUserOrdersPage}
+     */
+    @Deprecated
     @Transactional(readOnly = true)
     public List<OrderResponseDTO> getUserOrders(UserEntity user) {
-        List<OrderEntity> orders = orderRepository.findByUserOrderByOrderDateDesc(user);
-        return orders.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        List<OrderResponseDTO> orders = toBuyerDtos(orderRepository.findHistory(user.getId(), Pageable.unpaged()), false);
+        orders.forEach(dto -> {
+            dto.setBuyerName(user.getName());
+            dto.setBuyerEmail(user.getEmail());
+        });
+        return orders;
+    }
+
+    /**
+     * One page of the buyer's orders, newest first and undated ones last. The items of the whole
+     * page come from a single query; with {@code summaryOnly} they are skipped and {@code items}
+     * is {@code null}.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<OrderResponseDTO> getUserOrdersPage(Long userId, String cursor, Integer size,
+                                                          boolean summaryOnly) {
+        int pageSize = CursorPage.clampSize(size);
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        List<BuyerOrderRow> rows;
+        if (cursor == null) {
+            rows = orderRepository.findHistory(userId, limit);
+        } else {
+            KeysetCursor after = KeysetCursor.decode(cursor, HISTORY_SORT);
+            // An empty key means the last order had no date; only older undated orders follow it
+            rows = after.key().isEmpty()
+                    ? orderRepository.findHistoryAfterUndated(userId, after.id(), limit)
+                    : orderRepository.findHistoryAfter(userId, after.keyAsDateTime(), after.id(), limit);
+        }
+        return CursorPage.of(rows, pageSize,
+                row -> new KeysetCursor(HISTORY_SORT, row.orderDate() != null ? row.orderDate().toString() : "", row.id()),
+                page -> toBuyerDtos(page, summaryOnly));
+    }
+
+    private List<OrderResponseDTO> toBuyerDtos(List<BuyerOrderRow> rows, boolean summaryOnly) {
+        Map<Long, List<OrderItemDTO>> itemsByOrder = summaryOnly || rows.isEmpty()
+                ? Map.of()
+                : groupLines(orderItemRepository.findLinesByOrderIdIn(rows.stream().map(BuyerOrderRow::id).toList()));
+
+        return rows.stream().map(row -> {
+            OrderResponseDTO dto = new OrderResponseDTO();
+            dto.setId(row.id());
+            dto.setOrderDate(row.orderDate());
+            dto.setStatus(row.status());
+            dto.setTotalAmount(row.totalAmount());
+            dto.setShippingAddress(row.shippingAddress());
+            dto.setShippingCity(row.shippingCity());
+            dto.setShippingState(row.shippingState());
+            dto.setShippingZip(row.shippingZip());
+            dto.setShippingCountry(row.shippingCountry());
+            dto.setPhoneNumber(row.phoneNumber());
+            dto.setNote(row.note());
+            dto.setItems(summaryOnly ? null : itemsByOrder.getOrDefault(row.id(), List.of()));
+            return dto;
+        }).toList();
     }
 
     @Transactional(readOnly = true)
@@ -51,9 +126,77 @@ public class OrderService {
         return convertToDTO(order);
     }
 
+    /**
+     * Checks out the items in the request, or the server-side cart when the request has none.
+     * <p>
+     * Runs in phases with a fixed number of statements: one query resolves every product, the
+     * order and its items are built in memory, and a single flush inserts them with JDBC
+     * batching. Each phase is timed as {@code orders.checkout.phase}.
+     * <p>
+     * Stock is reserved last, so the product rows stay locked only until the commit right after.
+     *
+     * @throws utm.server.modules.products.stock.StockUnavailableException when a product is sold
+     *         out; nothing is written
+     */
     @Transactional
     public OrderResponseDTO createOrderFromCart(OrderCreateRequest request, UserEntity user) {
-        // Create new order entity
+        boolean fromCart = request.getItems() == null || request.getItems().isEmpty();
+        List<CartLine> lines = timed("lines", () -> fromCart
+                ? cartService.getLines(user.getId())
+                : request.getItems().stream()
+                        .map(item -> new CartLine(item.getProductId(), item.getQuantity() != null ? item.getQuantity() : 0))
+                        .toList());
+        if (lines.isEmpty()) {
+            throw new IllegalStateException("Cannot create order from empty cart");
+        }
+
+        Map<Long, ProductRow> products = timed("resolve", () -> resolveProducts(lines));
+
+        OrderEntity order = timed("build", () -> buildOrder(request, user, lines, products));
+
+        OrderEntity saved = timed("persist", () -> orderRepository.saveAndFlush(order));
+        eventPublisher.publishEvent(new OrderPlacedEvent(saved.getId()));
+
+        if (fromCart) {
+            // Clear server-side cart if used
+            timed("clear_cart", () -> {
+                cartService.clearCart(user.getId());
+                return null;
+            });
+        }
+
+        Map<Long, Integer> quantities = lines.stream()
+                .collect(Collectors.toMap(CartLine::productId, CartLine::quantity, Integer::sum));
+        timed("reserve", () -> {
+            productStockStore.reserve(quantities);
+            return null;
+        });
+        return convertToDTO(saved);
+    }
+
+    private Map<Long, ProductRow> resolveProducts(List<CartLine> lines) {
+        Set<Long> ids = new HashSet<>();
+        for (CartLine line : lines) {
+            if (line.productId() == null) {
+                throw new IllegalArgumentException("Product id is required");
+            }
+            if (line.quantity() <= 0) {
+                throw new IllegalStateException("Quantity must be positive for product " + line.productId());
+            }
+            ids.add(line.productId());
+        }
+        Map<Long, ProductRow> products = productRepository.findRowsByIdIn(ids).stream()
+                .collect(Collectors.toMap(ProductRow::id, Function.identity()));
+        for (Long id : ids) {
+            if (!products.containsKey(id)) {
+                throw new IllegalArgumentException("Product not found: " + id);
+            }
+        }
+        return products;
+    }
+
+    private OrderEntity buildOrder(OrderCreateRequest request, UserEntity user, List<CartLine> lines,
+                                   Map<Long, ProductRow> products) {
         OrderEntity order = new OrderEntity();
         order.setUser(user);
         order.setOrderDate(LocalDateTime.now());
@@ -68,172 +211,115 @@ public class OrderService {
         order.setPhoneNumber(request.getPhoneNumber());
         order.setNote(request.getNote());
 
-        // Save order first to get an ID
-        order = orderRepository.save(order);
-
-        if (request.getItems() != null && !request.getItems().isEmpty()) {
-            // Create order from request items (Client-side cart)
-            for (utm.server.modules.order.dto.OrderItemRequest itemRequest : request.getItems()) {
-                Product product = productRepository.findById(itemRequest.getProductId())
-                        .orElseThrow(() -> new IllegalArgumentException("Product not found: " + itemRequest.getProductId()));
-
-                OrderItem orderItem = new OrderItem();
-                orderItem.setOrder(order);
-                orderItem.setProduct(product);
-                orderItem.setQuantity(itemRequest.getQuantity());
-                orderItem.setPrice(BigDecimal.valueOf(product.getPrice()));
-                orderItem.setProductName(product.getTitle());
+        BigDecimal total = BigDecimal.ZERO;
+        for (CartLine line : lines) {
+            ProductRow product = products.get(line.productId());
 
-                order.addItem(orderItem);
-            }
-        } else {
-            // Fallback to Server-side cart
-            Cart cart = cartService.getCart(user);
-            if (cart.getItems().isEmpty()) {
-                throw new IllegalStateException("Cannot create order from empty cart");
-            }
+            OrderItem orderItem = new OrderItem();
+            // A reference is enough for the foreign key; the product itself is never loaded
+            orderItem.setProduct(productRepository.getReferenceById(product.id()));
+            orderItem.setQuantity(line.quantity());
+            orderItem.setPrice(BigDecimal.valueOf(product.price()));
+            orderItem.setProductName(product.title());
+            order.addItem(orderItem);
 
-            for (CartItem cartItem : cart.getItems()) {
-                Product product = cartItem.getProduct();
-
-                OrderItem orderItem = new OrderItem();
-                orderItem.setOrder(order);
-                orderItem.setProduct(product);
-                orderItem.setQuantity(cartItem.getQuantity());
-                orderItem.setPrice(BigDecimal.valueOf(product.getPrice()));
-                orderItem.setProductName(product.getTitle());
-
-                order.addItem(orderItem);
-            }
-            
-            // Clear server-side cart if used
-            cartService.clearCart(user);
+            total = total.add(orderItem.getTotal());
         }
-
-        // Calculate total
-        BigDecimal total = order.getItems().stream()
-                .map(item -> item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
         order.setTotalAmount(total);
+        return order;
+    }
 
-        return convertToDTO(orderRepository.save(order));
+    private <T> T timed(String phase, Supplier<T> step) {
+        return Timer.builder("orders.checkout.phase")
+                .description("Time spent in each checkout phase")
+                .tag("phase", phase)
+                .register(meterRegistry)
+                .record(step);
     }
 
+    /**
+     * @deprecated loads every order of the shop, use {@link #getSellerOrdersPage} with a shop id
+     */
+    @Deprecated
     @Transactional(readOnly = true)
     public List<OrderResponseDTO> getShopOrders(Long shopId, UserEntity user) {
-        ShopEntity shop = shopRepository.findById(shopId)
-                .orElseThrow(() -> new IllegalArgumentException("Shop not found"));
-
-        if (!shop.getUser().getId().equals(user.getId())) {
-            throw new SecurityException("Not authorized to view orders for this shop");
-        }
-
-        List<OrderEntity> orders = orderRepository.findOrdersByShopId(shopId);
-        return orders.stream()
-                .map(order -> convertToDTOForShop(order, shopId))
-                .collect(Collectors.toList());
-    }
-
-    private OrderResponseDTO convertToDTOForShop(OrderEntity order, Long shopId) {
-        OrderResponseDTO dto = new OrderResponseDTO();
-        dto.setId(order.getId());
-        dto.setOrderDate(order.getOrderDate());
-        dto.setStatus(order.getStatus());
-        
-        // Set shipping info
-        dto.setShippingAddress(order.getShippingAddress());
-        dto.setShippingCity(order.getShippingCity());
-        dto.setShippingState(order.getShippingState());
-        dto.setShippingZip(order.getShippingZip());
-        dto.setShippingCountry(order.getShippingCountry());
-        dto.setPhoneNumber(order.getPhoneNumber());
-        dto.setNote(order.getNote());
-        
-        if (order.getUser() != null) {
-            dto.setBuyerName(order.getUser().getName());
-            dto.setBuyerEmail(order.getUser().getEmail());
-        }
-
-        // Filter items for this shop
-        List<OrderItemDTO> itemDTOs = order.getItems().stream()
-                .filter(item -> item.getProduct().getShopEntity().getId().equals(shopId))
-                .map(item -> {
-                    OrderItemDTO itemDTO = new OrderItemDTO();
-                    itemDTO.setId(item.getId());
-                    itemDTO.setProductId(item.getProduct().getId());
-                    itemDTO.setProductName(item.getProductName());
-                    itemDTO.setQuantity(item.getQuantity());
-                    itemDTO.setPrice(item.getPrice());
-                    itemDTO.setTotal(item.getTotal());
-                    return itemDTO;
-                }).collect(Collectors.toList());
-
-        dto.setItems(itemDTOs);
-        
-        // Recalculate total for this shop's portion
-        BigDecimal shopTotal = itemDTOs.stream()
-                .map(OrderItemDTO::getTotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        dto.setTotalAmount(shopTotal);
-
-        return dto;
+        checkShopOwner(shopId, user.getId());
+        SellerOrderFilter filter = new SellerOrderFilter(user.getId(), shopId, null, null, null);
+        return toSellerDtos(filter, sellerOrderQuery.fetchOrders(filter, null, null));
     }
 
+    /**
+     * @deprecated loads every order of the seller, use {@link #getSellerOrdersPage}
+     */
+    @Deprecated
     @Transactional(readOnly = true)
-    public Long getPendingOrdersCount(UserEntity seller) {
-        return orderRepository.countPendingOrdersForSeller(seller.getId());
+    public List<OrderResponseDTO> getSellerOrders(UserEntity seller) {
+        SellerOrderFilter filter = new SellerOrderFilter(seller.getId(), null, null, null, null);
+        return toSellerDtos(filter, sellerOrderQuery.fetchOrders(filter, null, null));
     }
 
+    /**
+     * One page of the orders containing the seller's products, newest first. Each order only
+     * carries the seller's own lines and their total.
+     *
+     * @throws IllegalArgumentException when {@code filter.shopId()} does not exist
+     * @throws SecurityException        when that shop belongs to another seller
+     */
     @Transactional(readOnly = true)
-    public List<OrderResponseDTO> getSellerOrders(UserEntity seller) {
-        List<OrderEntity> orders = orderRepository.findOrdersBySellerId(seller.getId());
-        return orders.stream()
-                .map(order -> convertToDTOForSeller(order, seller.getId()))
-                .collect(Collectors.toList());
+    public CursorPage<OrderResponseDTO> getSellerOrdersPage(SellerOrderFilter filter, String cursor, Integer size) {
+        if (filter.shopId() != null) {
+            checkShopOwner(filter.shopId(), filter.sellerId());
+        }
+        int pageSize = CursorPage.clampSize(size);
+        KeysetCursor after = cursor != null ? KeysetCursor.decode(cursor, SellerOrderQuery.SORT) : null;
+        List<SellerOrderRow> rows = sellerOrderQuery.fetchOrders(filter, after, pageSize + 1);
+        return CursorPage.of(rows, pageSize, SellerOrderQuery::cursorOf, page -> toSellerDtos(filter, page));
     }
 
-    private OrderResponseDTO convertToDTOForSeller(OrderEntity order, Long sellerId) {
-        OrderResponseDTO dto = new OrderResponseDTO();
-        dto.setId(order.getId());
-        dto.setOrderDate(order.getOrderDate());
-        dto.setStatus(order.getStatus());
-        
-        dto.setShippingAddress(order.getShippingAddress());
-        dto.setShippingCity(order.getShippingCity());
-        dto.setShippingState(order.getShippingState());
-        dto.setShippingZip(order.getShippingZip());
-        dto.setShippingCountry(order.getShippingCountry());
-        dto.setPhoneNumber(order.getPhoneNumber());
-        dto.setNote(order.getNote());
-
-        if (order.getUser() != null) {
-            dto.setBuyerName(order.getUser().getName());
-            dto.setBuyerEmail(order.getUser().getEmail());
+    private void checkShopOwner(Long shopId, Long userId) {
+        ShopRow shop = shopRepository.findRowById(shopId)
+                .orElseThrow(() -> new IllegalArgumentException("Shop not found"));
+        if (!shop.userId().equals(userId)) {
+            throw new SecurityException("Not authorized to view orders for this shop");
         }
+    }
 
-        // Filter items for any shop owned by this seller
-        List<OrderItemDTO> itemDTOs = order.getItems().stream()
-                .filter(item -> item.getProduct().getShopEntity().getUser().getId().equals(sellerId))
-                .map(item -> {
-                    OrderItemDTO itemDTO = new OrderItemDTO();
-                    itemDTO.setId(item.getId());
-                    itemDTO.setProductId(item.getProduct().getId());
-                    itemDTO.setProductName(item.getProductName());
-                    itemDTO.setQuantity(item.getQuantity());
-                    itemDTO.setPrice(item.getPrice());
-                    itemDTO.setTotal(item.getTotal());
-                    return itemDTO;
-                }).collect(Collectors.toList());
-
-        dto.setItems(itemDTOs);
-        
-        // Recalculate total for this seller's portion
-        BigDecimal sellerTotal = itemDTOs.stream()
-                .map(OrderItemDTO::getTotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        dto.setTotalAmount(sellerTotal);
+    private List<OrderResponseDTO> toSellerDtos(SellerOrderFilter filter, List<SellerOrderRow> rows) {
+        Map<Long, List<OrderItemDTO>> itemsByOrder = groupLines(sellerOrderQuery
+                .fetchLines(filter, rows.stream().map(SellerOrderRow::id).toList()));
+
+        return rows.stream().map(row -> {
+            OrderResponseDTO dto = new OrderResponseDTO();
+            dto.setId(row.id());
+            dto.setOrderDate(row.orderDate());
+            dto.setStatus(row.status());
+            // Total of this seller's portion
+            dto.setTotalAmount(row.sellerTotal());
+            dto.setShippingAddress(row.shippingAddress());
+            dto.setShippingCity(row.shippingCity());
+            dto.setShippingState(row.shippingState());
+            dto.setShippingZip(row.shippingZip());
+            dto.setShippingCountry(row.shippingCountry());
+            dto.setPhoneNumber(row.phoneNumber());
+            dto.setNote(row.note());
+            dto.setBuyerName(row.buyerName());
+            dto.setBuyerEmail(row.buyerEmail());
+            dto.setItems(itemsByOrder.getOrDefault(row.id(), List.of()));
+            return dto;
+        }).toList();
+    }
 
-        return dto;
+    private static Map<Long, List<OrderItemDTO>> groupLines(List<OrderLine> lines) {
+        return lines.stream().collect(Collectors.groupingBy(OrderLine::orderId, Collectors.mapping(line -> {
+            OrderItemDTO itemDTO = new OrderItemDTO();
+            itemDTO.setId(line.itemId());
+            itemDTO.setProductId(line.productId());
+            itemDTO.setProductName(line.productName());
+            itemDTO.setQuantity(line.quantity());
+            itemDTO.setPrice(line.price());
+            itemDTO.setTotal(line.price().multiply(BigDecimal.valueOf(line.quantity())));
+            return itemDTO;
+        }, Collectors.toList())));
     }
 
     @Transactional
@@ -252,21 +338,51 @@ public class OrderService {
             throw new SecurityException("Not authorized to delete this order");
         }
 
+        restock(order, order.getStatus(), null);
+        eventPublisher.publishEvent(new OrderDeletedEvent(order.getId(), order.getStatus()));
         orderRepository.delete(order);
     }
 
+    /**
+     * @throws utm.server.modules.products.stock.StockUnavailableException when a cancelled order
+     *         is reopened but some of its products have been sold since; the status is unchanged
+     */
     @Transactional
     public OrderResponseDTO updateOrderStatus(Long orderId, Status status, UserEntity admin) {
         // This would typically include admin/auth checks
         OrderEntity order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new IllegalArgumentException("Order not found"));
 
+        Status previous = order.getStatus();
+        restock(order, previous, status);
         order.setStatus(status);
         order = orderRepository.save(order);
+        if (previous != status) {
+            eventPublisher.publishEvent(new OrderStatusChangedEvent(order.getId(), previous, status));
+        }
 
         return convertToDTO(order);
     }
 
+    /**
+     * Takes the order's units from stock when it starts counting as a sale again, and gives them
+     * back when it stops (cancelled or deleted). Runs in the caller's transaction.
+     */
+    private void restock(OrderEntity order, Status previous, Status current) {
+        boolean wasSale = previous != null && previous.isSale();
+        boolean isSale = current != null && current.isSale();
+        if (wasSale == isSale) {
+            return;
+        }
+        Map<Long, Integer> quantities = order.getItems().stream()
+                .collect(Collectors.toMap(item -> item.getProduct().getId(), OrderItem::getQuantity, Integer::sum));
+        if (isSale) {
+            productStockStore.reserve(quantities);
+        } else {
+            productStockStore.release(quantities);
+        }
+    }
+
     // Helper method to convert entity to DTO
     private OrderResponseDTO convertToDTO(OrderEntity order) {
         OrderResponseDTO dto = new OrderResponseDTO();
@@ -0,0 +1,7 @@
+package utm.server.modules.order;
+
+/**
+ * Published inside the transaction that moved an order from {@code previous} to {@code current}.
+ */
+public record OrderStatusChangedEvent(Long orderId, Status previous, Status current) {
+}
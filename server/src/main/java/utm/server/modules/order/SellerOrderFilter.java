@@ -0,0 +1,14 @@
+package utm.server.modules.order;
+
+import java.time.LocalDateTime;
+
+/**
+ * Which orders a seller listing shows. {@code shopId} narrows it to one of the seller's shops;
+ * {@code from} is inclusive and {@code to} exclusive. {@code null} fields do not filter.
+ */
+public record SellerOrderFilter(Long sellerId,
+                                Long shopId,
+                                Status status,
+                                LocalDateTime from,
+                                LocalDateTime to) {
+}
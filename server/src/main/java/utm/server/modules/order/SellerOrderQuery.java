@@ -0,0 +1,121 @@
+package utm.server.modules.order;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.stereotype.Component;
+import utm.server.modules.order.dto.OrderLine;
+import utm.server.modules.order.dto.SellerOrderRow;
+import utm.server.modules.pagination.KeysetCursor;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Seller order listings computed in the database: only the seller's lines are joined, their
+ * total is aggregated per order, and pages are keyed by (order date, id), newest first.
+ * Orders without a date come last, ordered by id; their cursor has an empty key.
+ */
+@Component
+@RequiredArgsConstructor
+public class SellerOrderQuery {
+
+    static final String SORT = "date";
+
+    private final EntityManager entityManager;
+
+    /**
+     * @param after cursor of the previous page, or {@code null} for the first page
+     * @param limit maximum number of orders, or {@code null} for all of them
+     */
+    public List<SellerOrderRow> fetchOrders(SellerOrderFilter filter, KeysetCursor after, Integer limit) {
+        StringBuilder jpql = new StringBuilder("SELECT new utm.server.modules.order.dto.SellerOrderRow(" +
+                "o.id, o.orderDate, o.status, SUM(i.price * i.quantity), o.shippingAddress, o.shippingCity, " +
+                "o.shippingState, o.shippingZip, o.shippingCountry, o.phoneNumber, o.note, u.name, u.email) " +
+                "FROM OrderItem i JOIN i.order o JOIN i.product p JOIN p.shopEntity s LEFT JOIN o.user u " +
+                "WHERE s.user.id = :sellerId");
+        appendFilter(jpql, filter);
+        if (after != null) {
+            jpql.append(after.key().isEmpty()
+                    ? " AND o.orderDate IS NULL AND o.id < :lastId"
+                    : " AND (o.orderDate < :lastDate OR (o.orderDate = :lastDate AND o.id < :lastId)"
+                    + " OR o.orderDate IS NULL)");
+        }
+        jpql.append(" GROUP BY o.id, u.id ORDER BY o.orderDate DESC NULLS LAST, o.id DESC");
+
+        TypedQuery<SellerOrderRow> query = entityManager.createQuery(jpql.toString(), SellerOrderRow.class)
+                .setHint(HibernateHints.HINT_READ_ONLY, true);
+        bindFilter(query, filter);
+        if (after != null) {
+            if (!after.key().isEmpty()) {
+                query.setParameter("lastDate", after.keyAsDateTime());
+            }
+            query.setParameter("lastId", after.id());
+        }
+        if (limit != null) {
+            query.setMaxResults(limit);
+        }
+        return query.getResultList();
+    }
+
+    /**
+     * The seller's lines of the given orders, in item order.
+     */
+    public List<OrderLine> fetchLines(SellerOrderFilter filter, Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return List.of();
+        }
+        StringBuilder jpql = new StringBuilder("SELECT new utm.server.modules.order.dto.OrderLine(" +
+                "o.id, i.id, p.id, i.productName, i.quantity, i.price) " +
+                "FROM OrderItem i JOIN i.order o JOIN i.product p JOIN p.shopEntity s " +
+                "WHERE s.user.id = :sellerId AND o.id IN :orderIds");
+        if (filter.shopId() != null) {
+            jpql.append(" AND s.id = :shopId");
+        }
+        jpql.append(" ORDER BY i.id");
+
+        TypedQuery<OrderLine> query = entityManager.createQuery(jpql.toString(), OrderLine.class)
+                .setParameter("sellerId", filter.sellerId())
+                .setParameter("orderIds", orderIds);
+        if (filter.shopId() != null) {
+            query.setParameter("shopId", filter.shopId());
+        }
+        return query.getResultList();
+    }
+
+    public static KeysetCursor cursorOf(SellerOrderRow row) {
+        return new KeysetCursor(SORT, row.orderDate() != null ? row.orderDate().toString() : "", row.id());
+    }
+
+    private static void appendFilter(StringBuilder jpql, SellerOrderFilter filter) {
+        if (filter.shopId() != null) {
+            jpql.append(" AND s.id = :shopId");
+        }
+        if (filter.status() != null) {
+            jpql.append(" AND o.status = :status");
+        }
+        if (filter.from() != null) {
+            jpql.append(" AND o.orderDate >= :from");
+        }
+        if (filter.to() != null) {
+            jpql.append(" AND o.orderDate < :to");
+        }
+    }
+
+    private static void bindFilter(TypedQuery<?> query, SellerOrderFilter filter) {
+        query.setParameter("sellerId", filter.sellerId());
+        if (filter.shopId() != null) {
+            query.setParameter("shopId", filter.shopId());
+        }
+        if (filter.status() != null) {
+            query.setParameter("status", filter.status());
+        }
+        if (filter.from() != null) {
+            query.setParameter("from", filter.from());
+        }
+        if (filter.to() != null) {
+            query.setParameter("to", filter.to());
+        }
+    }
+}
@@ -22,6 +22,13 @@ public enum Status {
         return value;
     }
 
+    /**
+     * Whether an order in this status counts towards sales figures.
+     */
+    public boolean isSale() {
+        return this != IN_CART && this != CANCELLED;
+    }
+
     public static AccountType fromString(String value) {
         for (AccountType type : AccountType.values()) {
             if (type.getValue().equalsIgnoreCase(value)) {
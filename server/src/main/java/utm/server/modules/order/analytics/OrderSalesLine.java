@@ -0,0 +1,16 @@
+package utm.server.modules.order.analytics;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One order item with the shop, buyer and date it is rolled up under.
+ */
+public record OrderSalesLine(Long shopId,
+                             Long productId,
+                             String productName,
+                             Integer quantity,
+                             BigDecimal price,
+                             Long userId,
+                             LocalDateTime orderDate) {
+}
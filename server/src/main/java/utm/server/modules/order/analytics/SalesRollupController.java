@@ -0,0 +1,48 @@
+package utm.server.modules.order.analytics;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import utm.server.modules.order.analytics.dto.ShopSalesDashboardDto;
+import utm.server.modules.users.security.UserSecurityPrincipal;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/sales")
+@RequiredArgsConstructor
+public class SalesRollupController {
+
+    private final SalesRollupService salesRollupService;
+
+    @GetMapping("/shops/{shopId}")
+    public ResponseEntity<ShopSalesDashboardDto> getShopSales(
+            @PathVariable Long shopId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Integer top,
+            @AuthenticationPrincipal UserSecurityPrincipal principal) {
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        try {
+            return ResponseEntity.ok(salesRollupService.dashboard(shopId, from, to, top, principal.getId()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+    }
+
+    @PostMapping("/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> rebuild() {
+        int days = salesRollupService.backfill();
+        return ResponseEntity.ok("Sales rollups rebuilt: " + days + " shop days");
+    }
+}
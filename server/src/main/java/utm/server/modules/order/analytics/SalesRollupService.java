@@ -0,0 +1,140 @@
+package utm.server.modules.order.analytics;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import utm.server.except.ResourceNotFoundException;
+import utm.server.modules.order.OrderRepository;
+import utm.server.modules.order.Status;
+import utm.server.modules.order.analytics.dto.ShopSalesDashboardDto;
+import utm.server.modules.order.outbox.OrderEventHandler;
+import utm.server.modules.order.outbox.OrderEventMessage;
+import utm.server.modules.shops.ShopRepository;
+import utm.server.modules.shops.dto.ShopRow;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the per-shop daily sales rollups in step with orders and serves the seller dashboard
+ * from them. Rollups are written from the order event outbox, off the checkout path, in the
+ * same transaction that marks the event dispatched, so each order change is counted once.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SalesRollupService implements OrderEventHandler {
+
+    private final SalesRollupWriter writer;
+    private final OrderRepository orderRepository;
+    private final ShopRepository shopRepository;
+    private final ShopDailySalesRepository salesRepository;
+    private final ShopDailyBuyerRepository buyerRepository;
+    private final ShopDailyProductSalesRepository productSalesRepository;
+
+    @Value("${sales.dashboard.default-days:30}")
+    private int defaultDays;
+
+    @Value("${sales.dashboard.max-days:366}")
+    private int maxDays;
+
+    @Value("${sales.dashboard.top-products:10}")
+    private int defaultTopProducts;
+
+    @Override
+    public void handle(OrderEventMessage message) {
+        int sign = switch (message.type()) {
+            case PLACED -> 1;
+            case STATUS_CHANGED -> isSale(message.current()) - isSale(message.previous());
+            case DELETED -> -isSale(message.current());
+        };
+        if (sign != 0) {
+            writer.apply(ShopOrderSales.of(message.lines()), sign);
+        }
+    }
+
+    private static int isSale(Status status) {
+        return status != null && status.isSale() ? 1 : 0;
+    }
+
+    /**
+     * Backfills the rollups on first start, when orders exist from before they were introduced.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        CompletableFuture.runAsync(() -> {
+                    if (salesRepository.count() == 0 && orderRepository.count() > 0) {
+                        backfill();
+                    }
+                })
+                .exceptionally(e -> {
+                    log.error("Sales rollup backfill failed", e);
+                    return null;
+                });
+    }
+
+    /**
+     * Recomputes every rollup from the order history. Events still waiting in the outbox are
+     * applied on top of it, so run it when {@code orders.outbox.pending} is zero.
+     *
+     * @return number of shop days written
+     */
+    public int backfill() {
+        long started = System.currentTimeMillis();
+        int days = writer.rebuild();
+        log.info("Sales rollups rebuilt: {} shop days in {} ms", days, System.currentTimeMillis() - started);
+        return days;
+    }
+
+    /**
+     * Sales of a shop per day between {@code from} and {@code to}, both inclusive. Defaults to
+     * the last {@code sales.dashboard.default-days} days.
+     *
+     * @throws ResourceNotFoundException when the shop does not exist
+     * @throws IllegalArgumentException  when the range is invalid
+     * @throws SecurityException         when the shop does not belong to {@code userId}
+     */
+    @Transactional(readOnly = true)
+    public ShopSalesDashboardDto dashboard(Long shopId, LocalDate from, LocalDate to, Integer top, Long userId) {
+        ShopRow shop = shopRepository.findRowById(shopId)
+                .orElseThrow(() -> new ResourceNotFoundException("Shop not found with id: " + shopId));
+        if (!shop.userId().equals(userId)) {
+            throw new SecurityException("Not authorized to view sales for this shop");
+        }
+
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(defaultDays - 1L);
+        if (start.isAfter(end) || ChronoUnit.DAYS.between(start, end) >= maxDays) {
+            throw new IllegalArgumentException("Date range must be between 1 and " + maxDays + " days");
+        }
+        int limit = top != null ? Math.max(1, Math.min(top, 100)) : defaultTopProducts;
+
+        List<ShopDailySales> days = salesRepository.findByShopIdAndDayBetweenOrderByDayAsc(shopId, start, end);
+        Map<LocalDate, Long> buyersByDay = buyerRepository.countBuyersByDay(shopId, start, end).stream()
+                .collect(Collectors.toMap(ShopDailyBuyerRepository.DayBuyers::getDay,
+                        ShopDailyBuyerRepository.DayBuyers::getBuyers));
+
+        ShopSalesDashboardDto.Totals totals = new ShopSalesDashboardDto.Totals(
+                days.stream().map(ShopDailySales::getRevenue).reduce(BigDecimal.ZERO, BigDecimal::add),
+                days.stream().mapToLong(ShopDailySales::getUnits).sum(),
+                days.stream().mapToLong(ShopDailySales::getOrders).sum(),
+                buyerRepository.countDistinctBuyers(shopId, start, end));
+
+        return new ShopSalesDashboardDto(shopId, start, end, totals,
+                days.stream()
+                        .map(d -> new ShopSalesDashboardDto.Day(d.getDay(), d.getRevenue(), d.getUnits(),
+                                d.getOrders(), buyersByDay.getOrDefault(d.getDay(), 0L)))
+                        .toList(),
+                productSalesRepository.findTopProducts(shopId, start, end, PageRequest.of(0, limit)));
+    }
+}
@@ -0,0 +1,126 @@
+package utm.server.modules.order.analytics;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the sales rollup tables with atomic upserts, so concurrent orders for the same shop
+ * and day add up instead of overwriting each other.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SalesRollupWriter {
+
+    private static final String UPSERT_SALES = """
+            INSERT INTO shop_daily_sales (shop_id, day, revenue, units, orders) VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT (shop_id, day) DO UPDATE SET
+                revenue = shop_daily_sales.revenue + EXCLUDED.revenue,
+                units = shop_daily_sales.units + EXCLUDED.units,
+                orders = shop_daily_sales.orders + EXCLUDED.orders""";
+
+    private static final String UPSERT_BUYER = """
+            INSERT INTO shop_daily_buyers (shop_id, day, user_id, order_count) VALUES (?, ?, ?, ?)
+            ON CONFLICT (shop_id, day, user_id) DO UPDATE SET
+                order_count = shop_daily_buyers.order_count + EXCLUDED.order_count""";
+
+    private static final String UPSERT_PRODUCT = """
+            INSERT INTO shop_daily_product_sales (shop_id, day, product_id, product_name, units, revenue)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON CONFLICT (shop_id, day, product_id) DO UPDATE SET
+                product_name = COALESCE(EXCLUDED.product_name, shop_daily_product_sales.product_name),
+                units = shop_daily_product_sales.units + EXCLUDED.units,
+                revenue = shop_daily_product_sales.revenue + EXCLUDED.revenue""";
+
+    // Orders that stopped counting leave rows at zero behind
+    private static final String[] DELETE_EMPTY = {
+            "DELETE FROM shop_daily_sales WHERE shop_id = ? AND day = ? AND orders <= 0",
+            "DELETE FROM shop_daily_buyers WHERE shop_id = ? AND day = ? AND order_count <= 0",
+            "DELETE FROM shop_daily_product_sales WHERE shop_id = ? AND day = ? AND units <= 0"
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Adds ({@code sign} 1) or subtracts ({@code sign} -1) one order's contribution.
+     */
+    @Transactional
+    public void apply(List<ShopOrderSales> sales, int sign) {
+        if (sales.isEmpty()) {
+            return;
+        }
+        BigDecimal factor = BigDecimal.valueOf(sign);
+        List<Object[]> salesRows = new ArrayList<>(sales.size());
+        List<Object[]> buyerRows = new ArrayList<>(sales.size());
+        List<Object[]> productRows = new ArrayList<>();
+        for (ShopOrderSales shop : sales) {
+            Date day = Date.valueOf(shop.day());
+            salesRows.add(new Object[]{shop.shopId(), day, shop.revenue().multiply(factor), sign * shop.units(), sign});
+            if (shop.userId() != null) {
+                buyerRows.add(new Object[]{shop.shopId(), day, shop.userId(), sign});
+            }
+            for (ShopOrderSales.ProductSales product : shop.products()) {
+                productRows.add(new Object[]{shop.shopId(), day, product.productId(), product.productName(),
+                        sign * product.units(), product.revenue().multiply(factor)});
+            }
+        }
+        jdbcTemplate.batchUpdate(UPSERT_SALES, salesRows);
+        jdbcTemplate.batchUpdate(UPSERT_BUYER, buyerRows);
+        jdbcTemplate.batchUpdate(UPSERT_PRODUCT, productRows);
+
+        if (sign < 0) {
+            List<Object[]> shopDays = sales.stream()
+                    .map(shop -> new Object[]{shop.shopId(), Date.valueOf(shop.day())})
+                    .toList();
+            for (String delete : DELETE_EMPTY) {
+                jdbcTemplate.batchUpdate(delete, shopDays);
+            }
+        }
+    }
+
+    /**
+     * Recomputes all rollups from the order tables in one transaction.
+     * <p>
+     * The rollup tables are locked first, which waits for in-flight order transactions that
+     * already wrote to them to commit, so the recount below sees their orders. Orders placed
+     * while the recount runs block on the lock and apply their upsert on top of it afterwards.
+     *
+     * @return number of shop days written
+     */
+    @Transactional
+    public int rebuild() {
+        jdbcTemplate.execute("LOCK TABLE shop_daily_sales, shop_daily_buyers, shop_daily_product_sales IN EXCLUSIVE MODE");
+        jdbcTemplate.update("DELETE FROM shop_daily_product_sales");
+        jdbcTemplate.update("DELETE FROM shop_daily_buyers");
+        jdbcTemplate.update("DELETE FROM shop_daily_sales");
+
+        int days = jdbcTemplate.update("""
+                INSERT INTO shop_daily_sales (shop_id, day, revenue, units, orders)
+                SELECT p.shop_id, CAST(o.order_date AS date), SUM(i.price * i.quantity), SUM(i.quantity), COUNT(DISTINCT o.id)
+                FROM orders o JOIN order_items i ON i.order_id = o.id JOIN products p ON p.id = i.product_id
+                WHERE p.shop_id IS NOT NULL AND o.order_date IS NOT NULL
+                  AND o.status NOT IN ('IN_CART', 'CANCELLED')
+                GROUP BY p.shop_id, CAST(o.order_date AS date)""");
+        jdbcTemplate.update("""
+                INSERT INTO shop_daily_buyers (shop_id, day, user_id, order_count)
+                SELECT p.shop_id, CAST(o.order_date AS date), o.user_id, COUNT(DISTINCT o.id)
+                FROM orders o JOIN order_items i ON i.order_id = o.id JOIN products p ON p.id = i.product_id
+                WHERE p.shop_id IS NOT NULL AND o.order_date IS NOT NULL AND o.user_id IS NOT NULL
+                  AND o.status NOT IN ('IN_CART', 'CANCELLED')
+                GROUP BY p.shop_id, CAST(o.order_date AS date), o.user_id""");
+        jdbcTemplate.update("""
+                INSERT INTO shop_daily_product_sales (shop_id, day, product_id, product_name, units, revenue)
+                SELECT p.shop_id, CAST(o.order_date AS date), p.id, MAX(i.product_name), SUM(i.quantity), SUM(i.price * i.quantity)
+                FROM orders o JOIN order_items i ON i.order_id = o.id JOIN products p ON p.id = i.product_id
+                WHERE p.shop_id IS NOT NULL AND o.order_date IS NOT NULL
+                  AND o.status NOT IN ('IN_CART', 'CANCELLED')
+                GROUP BY p.shop_id, CAST(o.order_date AS date), p.id""");
+        return days;
+    }
+}
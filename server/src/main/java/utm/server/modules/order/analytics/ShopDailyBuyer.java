@@ -0,0 +1,46 @@
+package utm.server.modules.order.analytics;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * A buyer with at least one counted order in a shop on a day. Distinct buyer counts over any
+ * range are counted from these rows; {@code orderCount} lets a cancellation remove the buyer
+ * only when it was their last order that day.
+ */
+@Entity
+@Table(name = "shop_daily_buyers")
+@IdClass(ShopDailyBuyer.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShopDailyBuyer {
+
+    @Id
+    @Column(name = "shop_id")
+    private Long shopId;
+
+    @Id
+    private LocalDate day;
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "order_count", nullable = false)
+    private long orderCount;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long shopId;
+        private LocalDate day;
+        private Long userId;
+    }
+}
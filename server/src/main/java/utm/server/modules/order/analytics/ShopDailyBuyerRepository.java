@@ -0,0 +1,29 @@
+package utm.server.modules.order.analytics;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ShopDailyBuyerRepository extends JpaRepository<ShopDailyBuyer, ShopDailyBuyer.Key> {
+
+    @Query("SELECT b.day AS day, COUNT(b) AS buyers FROM ShopDailyBuyer b " +
+            "WHERE b.shopId = :shopId AND b.day BETWEEN :from AND :to GROUP BY b.day")
+    List<DayBuyers> countBuyersByDay(@Param("shopId") Long shopId, @Param("from") LocalDate from,
+                                     @Param("to") LocalDate to);
+
+    @Query("SELECT COUNT(DISTINCT b.userId) FROM ShopDailyBuyer b " +
+            "WHERE b.shopId = :shopId AND b.day BETWEEN :from AND :to")
+    long countDistinctBuyers(@Param("shopId") Long shopId, @Param("from") LocalDate from,
+                             @Param("to") LocalDate to);
+
+    interface DayBuyers {
+        LocalDate getDay();
+
+        long getBuyers();
+    }
+}
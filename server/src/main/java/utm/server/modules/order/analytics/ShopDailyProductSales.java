@@ -0,0 +1,52 @@
+package utm.server.modules.order.analytics;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Sales of one product in one shop on one day, for the top products ranking.
+ */
+@Entity
+@Table(name = "shop_daily_product_sales")
+@IdClass(ShopDailyProductSales.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShopDailyProductSales {
+
+    @Id
+    @Column(name = "shop_id")
+    private Long shopId;
+
+    @Id
+    private LocalDate day;
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    // Name at the time of the latest sale, like OrderItem.productName
+    @Column(name = "product_name")
+    private String productName;
+
+    @Column(nullable = false)
+    private long units;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal revenue;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long shopId;
+        private LocalDate day;
+        private Long productId;
+    }
+}
@@ -0,0 +1,25 @@
+package utm.server.modules.order.analytics;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import utm.server.modules.order.analytics.dto.ShopSalesDashboardDto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ShopDailyProductSalesRepository
+        extends JpaRepository<ShopDailyProductSales, ShopDailyProductSales.Key> {
+
+    @Query("SELECT new utm.server.modules.order.analytics.dto.ShopSalesDashboardDto$TopProduct(" +
+            "s.productId, MAX(s.productName), SUM(s.units), SUM(s.revenue)) " +
+            "FROM ShopDailyProductSales s WHERE s.shopId = :shopId AND s.day BETWEEN :from AND :to " +
+            "GROUP BY s.productId ORDER BY SUM(s.revenue) DESC, s.productId")
+    List<ShopSalesDashboardDto.TopProduct> findTopProducts(@Param("shopId") Long shopId,
+                                                           @Param("from") LocalDate from,
+                                                           @Param("to") LocalDate to,
+                                                           Pageable pageable);
+}
@@ -0,0 +1,47 @@
+package utm.server.modules.order.analytics;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Sales of one shop on one day, counting orders whose status {@link utm.server.modules.order.Status#isSale()}.
+ * Maintained by {@link SalesRollupWriter}; the dashboard reads these instead of the order tables.
+ */
+@Entity
+@Table(name = "shop_daily_sales")
+@IdClass(ShopDailySales.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShopDailySales {
+
+    @Id
+    @Column(name = "shop_id")
+    private Long shopId;
+
+    @Id
+    private LocalDate day;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal revenue;
+
+    @Column(nullable = false)
+    private long units;
+
+    @Column(nullable = false)
+    private long orders;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long shopId;
+        private LocalDate day;
+    }
+}
@@ -0,0 +1,13 @@
+package utm.server.modules.order.analytics;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ShopDailySalesRepository extends JpaRepository<ShopDailySales, ShopDailySales.Key> {
+
+    List<ShopDailySales> findByShopIdAndDayBetweenOrderByDayAsc(Long shopId, LocalDate from, LocalDate to);
+}
@@ -0,0 +1,63 @@
+package utm.server.modules.order.analytics;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * What one order contributes to one shop's daily rollup. An order with items from several
+ * shops counts as one order, with its own buyer, for each of them.
+ * <p>
+ * Shops and products come out sorted by id, so concurrent orders lock rollup rows in the same order.
+ */
+public record ShopOrderSales(Long shopId,
+                             LocalDate day,
+                             Long userId,
+                             BigDecimal revenue,
+                             long units,
+                             List<ProductSales> products) {
+
+    public record ProductSales(Long productId, String productName, long units, BigDecimal revenue) {
+    }
+
+    /**
+     * Lines of an order without a date yield nothing, as the full rebuild leaves such orders out.
+     */
+    public static List<ShopOrderSales> of(List<OrderSalesLine> lines) {
+        if (lines.isEmpty() || lines.get(0).orderDate() == null) {
+            return List.of();
+        }
+        Map<Long, Map<Long, ProductSales>> byShop = new TreeMap<>();
+        for (OrderSalesLine line : lines) {
+            if (line.shopId() == null) {
+                continue;
+            }
+            long units = line.quantity();
+            BigDecimal revenue = line.price().multiply(BigDecimal.valueOf(units));
+            byShop.computeIfAbsent(line.shopId(), k -> new TreeMap<>())
+                    .merge(line.productId(), new ProductSales(line.productId(), line.productName(), units, revenue),
+                            (a, b) -> new ProductSales(a.productId(), a.productName(),
+                                    a.units() + b.units(), a.revenue().add(b.revenue())));
+        }
+
+        if (byShop.isEmpty()) {
+            return List.of();
+        }
+        // All lines belong to the same order, so they share its date and buyer
+        OrderSalesLine first = lines.get(0);
+        List<ShopOrderSales> result = new ArrayList<>(byShop.size());
+        byShop.forEach((shopId, products) -> {
+            List<ProductSales> productSales = List.copyOf(products.values());
+            result.add(new ShopOrderSales(shopId,
+                    first.orderDate().toLocalDate(),
+                    first.userId(),
+                    productSales.stream().map(ProductSales::revenue).reduce(BigDecimal.ZERO, BigDecimal::add),
+                    productSales.stream().mapToLong(ProductSales::units).sum(),
+                    productSales));
+        });
+        return result;
+    }
+}
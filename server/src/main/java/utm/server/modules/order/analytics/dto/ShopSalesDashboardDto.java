@@ -0,0 +1,26 @@
+package utm.server.modules.order.analytics.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Sales of a shop between {@code from} and {@code to} (inclusive). {@code days} only lists days
+ * with sales; {@code totals.buyers} counts each buyer once over the whole range.
+ */
+public record ShopSalesDashboardDto(Long shopId,
+                                   LocalDate from,
+                                   LocalDate to,
+                                   Totals totals,
+                                   List<Day> days,
+                                   List<TopProduct> topProducts) {
+
+    public record Totals(BigDecimal revenue, long units, long orders, long buyers) {
+    }
+
+    public record Day(LocalDate day, BigDecimal revenue, long units, long orders, long buyers) {
+    }
+
+    public record TopProduct(Long productId, String productName, long units, BigDecimal revenue) {
+    }
+}
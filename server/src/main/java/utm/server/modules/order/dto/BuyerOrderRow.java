@@ -0,0 +1,22 @@
+package utm.server.modules.order.dto;
+
+import utm.server.modules.order.Status;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * An order of the buyer's history, without its items.
+ */
+public record BuyerOrderRow(Long id,
+                            LocalDateTime orderDate,
+                            Status status,
+                            BigDecimal totalAmount,
+                            String shippingAddress,
+                            String shippingCity,
+                            String shippingState,
+                            String shippingZip,
+                            String shippingCountry,
+                            String phoneNumber,
+                            String note) {
+}
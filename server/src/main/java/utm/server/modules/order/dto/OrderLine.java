@@ -0,0 +1,14 @@
+package utm.server.modules.order.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * One item of an order, read without loading the item or its product.
+ */
+public record OrderLine(Long orderId,
+                        Long itemId,
+                        Long productId,
+                        String productName,
+                        Integer quantity,
+                        BigDecimal price) {
+}
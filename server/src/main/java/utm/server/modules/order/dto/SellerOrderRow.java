@@ -0,0 +1,24 @@
+package utm.server.modules.order.dto;
+
+import utm.server.modules.order.Status;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * An order as one seller sees it: {@code sellerTotal} only sums that seller's lines.
+ */
+public record SellerOrderRow(Long id,
+                             LocalDateTime orderDate,
+                             Status status,
+                             BigDecimal sellerTotal,
+                             String shippingAddress,
+                             String shippingCity,
+                             String shippingState,
+                             String shippingZip,
+                             String shippingCountry,
+                             String phoneNumber,
+                             String note,
+                             String buyerName,
+                             String buyerEmail) {
+}
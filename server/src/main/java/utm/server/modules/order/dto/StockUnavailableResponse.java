@@ -0,0 +1,11 @@
+package utm.server.modules.order.dto;
+
+import utm.server.modules.products.stock.StockShortage;
+
+import java.util.List;
+
+/**
+ * Body of a checkout rejected because some products are sold out, one entry per short line.
+ */
+public record StockUnavailableResponse(String message, List<StockShortage> items) {
+}
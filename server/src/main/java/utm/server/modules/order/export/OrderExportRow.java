@@ -0,0 +1,63 @@
+package utm.server.modules.order.export;
+
+import utm.server.modules.order.Status;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One exported order item with the order it belongs to.
+ */
+public record OrderExportRow(Long orderId,
+                             LocalDateTime orderDate,
+                             Status status,
+                             String buyerName,
+                             String buyerEmail,
+                             String shippingCountry,
+                             String shippingCity,
+                             Long shopId,
+                             String shopName,
+                             Long itemId,
+                             Long productId,
+                             String productName,
+                             Integer quantity,
+                             BigDecimal price,
+                             BigDecimal total) {
+
+    static final String CSV_HEADER = "order_id,order_date,status,buyer_name,buyer_email,shipping_country,"
+            + "shipping_city,shop_id,shop_name,item_id,product_id,product_name,quantity,price,total";
+
+    String toCsv() {
+        return String.join(",",
+                String.valueOf(orderId),
+                String.valueOf(orderDate),
+                String.valueOf(status),
+                csvText(buyerName),
+                csvText(buyerEmail),
+                csvText(shippingCountry),
+                csvText(shippingCity),
+                String.valueOf(shopId),
+                csvText(shopName),
+                String.valueOf(itemId),
+                String.valueOf(productId),
+                csvText(productName),
+                String.valueOf(quantity),
+                price.toPlainString(),
+                total.toPlainString());
+    }
+
+    /**
+     * Quotes a free-text field when needed. Text that a spreadsheet would run as a formula is
+     * prefixed with an apostrophe, since buyers and sellers choose these values.
+     */
+    static String csvText(String value) {
+        if (value == null || value.isEmpty()) {
+            return "";
+        }
+        String text = "=+-@\t\r".indexOf(value.charAt(0)) >= 0 ? "'" + value : value;
+        if (text.contains(",") || text.contains("\"") || text.contains("\n") || text.contains("\r")) {
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+        return text;
+    }
+}
@@ -0,0 +1,223 @@
+package utm.server.modules.order.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import utm.server.modules.order.SellerOrderFilter;
+import utm.server.modules.order.Status;
+import utm.server.modules.shops.ShopRepository;
+import utm.server.modules.shops.dto.ShopRow;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Streams a seller's order items as CSV or NDJSON while they are read.
+ * <p>
+ * The query runs in a read-only transaction so the PostgreSQL driver uses a server-side cursor
+ * and holds {@code orders.export.fetch-size} rows at a time; memory use does not depend on the
+ * number of orders. Each export keeps a connection for its whole duration, so only
+ * {@code orders.export.max-concurrent} run at once, each on a thread of this exporter. The slot
+ * is taken before the response starts and given back when that thread is done, whatever
+ * happens to the request; an export that outlives {@code orders.export.timeout} or loses its
+ * client stops at its next write.
+ */
+@Component
+public class OrderExporter {
+
+    // Rows are sent to the client in chunks of about this many bytes
+    private static final int CHUNK_BYTES = 64 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ShopRepository shopRepository;
+    private final Semaphore running;
+    private final ExecutorService workers;
+    private final Duration timeout;
+
+    public OrderExporter(DataSource dataSource,
+                         PlatformTransactionManager transactionManager,
+                         ObjectMapper objectMapper,
+                         ShopRepository shopRepository,
+                         @Value("${orders.export.fetch-size:500}") int fetchSize,
+                         @Value("${orders.export.max-concurrent:4}") int maxConcurrent,
+                         @Value("${orders.export.timeout:PT10M}") Duration timeout) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.shopRepository = shopRepository;
+        this.running = new Semaphore(maxConcurrent);
+        this.timeout = timeout;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(maxConcurrent, runnable -> {
+            Thread thread = new Thread(runnable, "order-export-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Checks access, takes an export slot and starts writing the rows to the returned emitter.
+     *
+     * @throws IllegalArgumentException when {@code filter.shopId()} does not exist
+     * @throws SecurityException        when that shop belongs to another seller
+     * @throws TooManyExportsException  when too many exports are running
+     */
+    public ResponseBodyEmitter export(SellerOrderFilter filter, OrderExportFormat format) {
+        if (filter.shopId() != null) {
+            ShopRow shop = shopRepository.findRowById(filter.shopId())
+                    .orElseThrow(() -> new IllegalArgumentException("Shop not found"));
+            if (!shop.userId().equals(filter.sellerId())) {
+                throw new SecurityException("Not authorized to export orders for this shop");
+            }
+        }
+        if (!running.tryAcquire()) {
+            throw new TooManyExportsException();
+        }
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(timeout.toMillis());
+        AtomicBoolean abandoned = new AtomicBoolean();
+        emitter.onTimeout(() -> {
+            abandoned.set(true);
+            emitter.complete();
+        });
+        emitter.onError(e -> abandoned.set(true));
+        try {
+            workers.execute(() -> {
+                try {
+                    write(filter, format, emitter, abandoned);
+                    emitter.complete();
+                } catch (RuntimeException | IOException e) {
+                    if (!abandoned.get()) {
+                        emitter.completeWithError(e);
+                    }
+                } finally {
+                    running.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            running.release();
+            throw e;
+        }
+        return emitter;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private void write(SellerOrderFilter filter, OrderExportFormat format, ResponseBodyEmitter emitter,
+                       AtomicBoolean abandoned) throws IOException {
+        ByteArrayOutputStream chunk = new ByteArrayOutputStream(CHUNK_BYTES + 1024);
+        Writer writer = new OutputStreamWriter(chunk, StandardCharsets.UTF_8);
+        if (format == OrderExportFormat.CSV) {
+            writer.write(OrderExportRow.CSV_HEADER);
+            writer.write('\n');
+        }
+        transactionTemplate.executeWithoutResult(status -> stream(filter, row -> {
+            try {
+                if (abandoned.get()) {
+                    throw new IOException("Export abandoned by the client or timed out");
+                }
+                writer.write(format == OrderExportFormat.CSV ? row.toCsv() : objectMapper.writeValueAsString(row));
+                writer.write('\n');
+                writer.flush();
+                if (chunk.size() >= CHUNK_BYTES) {
+                    emitter.send(chunk.toByteArray(), format.mediaType());
+                    chunk.reset();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }));
+        writer.flush();
+        if (chunk.size() > 0) {
+            emitter.send(chunk.toByteArray(), format.mediaType());
+        }
+    }
+
+    private void stream(SellerOrderFilter filter, Consumer<OrderExportRow> sink) {
+        StringBuilder sql = new StringBuilder("""
+                SELECT o.id AS order_id, o.order_date, o.status, u.name AS buyer_name, u.email AS buyer_email,
+                       o.shipping_country, o.shipping_city, s.id AS shop_id, s.name AS shop_name,
+                       i.id AS item_id, i.product_id, i.product_name, i.quantity, i.price
+                FROM order_items i
+                JOIN orders o ON o.id = i.order_id
+                JOIN products p ON p.id = i.product_id
+                JOIN shop_entity s ON s.id = p.shop_id
+                LEFT JOIN user_entity u ON u.id = o.user_id
+                WHERE s.user_id = ?""");
+        List<Object> params = new ArrayList<>();
+        params.add(filter.sellerId());
+        if (filter.shopId() != null) {
+            sql.append(" AND s.id = ?");
+            params.add(filter.shopId());
+        }
+        if (filter.status() != null) {
+            sql.append(" AND o.status = ?");
+            params.add(filter.status().name());
+        }
+        if (filter.from() != null) {
+            sql.append(" AND o.order_date >= ?");
+            params.add(Timestamp.valueOf(filter.from()));
+        }
+        if (filter.to() != null) {
+            sql.append(" AND o.order_date < ?");
+            params.add(Timestamp.valueOf(filter.to()));
+        }
+        sql.append(" ORDER BY o.order_date, o.id, i.id");
+
+        jdbcTemplate.query(sql.toString(), (RowCallbackHandler) rs -> sink.accept(map(rs)), params.toArray());
+    }
+
+    private static OrderExportRow map(ResultSet rs) throws SQLException {
+        BigDecimal price = rs.getBigDecimal("price");
+        int quantity = rs.getInt("quantity");
+        Timestamp orderDate = rs.getTimestamp("order_date");
+        String status = rs.getString("status");
+        return new OrderExportRow(
+                rs.getLong("order_id"),
+                orderDate != null ? orderDate.toLocalDateTime() : null,
+                status != null ? Status.valueOf(status) : null,
+                rs.getString("buyer_name"),
+                rs.getString("buyer_email"),
+                rs.getString("shipping_country"),
+                rs.getString("shipping_city"),
+                rs.getLong("shop_id"),
+                rs.getString("shop_name"),
+                rs.getLong("item_id"),
+                rs.getLong("product_id"),
+                rs.getString("product_name"),
+                quantity,
+                price,
+                price.multiply(BigDecimal.valueOf(quantity)));
+    }
+}
@@ -0,0 +1,11 @@
+package utm.server.modules.order.export;
+
+/**
+ * Thrown when {@code orders.export.max-concurrent} exports are already running.
+ */
+public class TooManyExportsException extends RuntimeException {
+
+    public TooManyExportsException() {
+        super("Too many exports running, try again later");
+    }
+}
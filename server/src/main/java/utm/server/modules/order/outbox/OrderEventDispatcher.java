@@ -0,0 +1,206 @@
+package utm.server.modules.order.outbox;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Drains {@code order_events} in batches and hands each event to every {@link OrderEventHandler}.
+ * <p>
+ * A batch holds at most one event per order, so its events run in parallel on the worker pool
+ * while each order's events stay in sequence. A failed event is retried with exponential
+ * backoff and holds back the later events of its order until it succeeds, or until it has used
+ * up its attempts: then it is parked, counted in {@code orders.outbox.failed}, and the order's
+ * later events go ahead. Draining starts after each commit that recorded an event and on a
+ * fixed poll for retries and other instances.
+ */
+@Slf4j
+@Component
+public class OrderEventDispatcher {
+
+    private final OrderOutboxStore store;
+    private final List<OrderEventHandler> handlers;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration lease;
+    private final Duration minBackoff;
+    private final Duration maxBackoff;
+
+    private final ExecutorService poller;
+    private final ExecutorService workers;
+    private final ReentrantLock draining = new ReentrantLock();
+    private final AtomicBoolean requested = new AtomicBoolean();
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public OrderEventDispatcher(OrderOutboxStore store,
+                                List<OrderEventHandler> handlers,
+                                TransactionTemplate transactionTemplate,
+                                MeterRegistry meterRegistry,
+                                @Value("${orders.outbox.batch-size:100}") int batchSize,
+                                @Value("${orders.outbox.worker-threads:4}") int workerThreads,
+                                @Value("${orders.outbox.lease:PT1M}") Duration lease,
+                                @Value("${orders.outbox.min-backoff:PT1S}") Duration minBackoff,
+                                @Value("${orders.outbox.max-backoff:PT5M}") Duration maxBackoff,
+                                @Value("${orders.outbox.max-attempts:10}") int maxAttempts) {
+        this.store = store;
+        this.handlers = handlers;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.batchSize = batchSize;
+        this.lease = lease;
+        this.minBackoff = minBackoff;
+        this.maxBackoff = maxBackoff;
+        this.maxAttempts = maxAttempts;
+        this.poller = Executors.newSingleThreadExecutor(daemon("order-outbox-poller"));
+        this.workers = Executors.newFixedThreadPool(workerThreads, daemon("order-outbox"));
+        Gauge.builder("orders.outbox.pending", pending, AtomicLong::get)
+                .description("Order events not dispatched yet")
+                .register(meterRegistry);
+        Gauge.builder("orders.outbox.lag", lagMillis, millis -> millis.get() / 1000.0)
+                .description("Age of the oldest order event not dispatched yet")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("orders.outbox.failed", failed, AtomicLong::get)
+                .description("Order events parked after running out of attempts")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts draining on the poller thread without waiting for it. Wake-ups that arrive before
+     * the poller gets to it share one drain, so a burst of commits never queues more than one.
+     */
+    public void wakeUp() {
+        if (requested.compareAndSet(false, true)) {
+            poller.execute(this::drainRequested);
+        }
+    }
+
+    // Drains on the poller so a backlog does not hold up the shared scheduler thread
+    @Scheduled(fixedDelayString = "${orders.outbox.poll-interval:PT5S}")
+    public void poll() {
+        wakeUp();
+        OrderOutboxStore.Backlog backlog = store.backlog();
+        pending.set(backlog.pending());
+        lagMillis.set(backlog.oldest().toMillis());
+        failed.set(backlog.failed());
+    }
+
+    /**
+     * Dispatches due events until none are left. A call while another thread is draining only
+     * makes that thread look again once it is done.
+     */
+    void drain() {
+        requested.set(true);
+        drainRequested();
+    }
+
+    private void drainRequested() {
+        while (requested.get() && draining.tryLock()) {
+            try {
+                requested.set(false);
+                int claimed;
+                do {
+                    OrderOutboxStore.Batch batch = store.claim(batchSize, lease);
+                    batch.unreadable().forEach(event -> failed(event.id(), event.orderId(), event.type(),
+                            event.attempts(), event.error(), null));
+                    CompletableFuture.allOf(batch.events().stream()
+                                    .map(message -> CompletableFuture.runAsync(() -> dispatch(message), workers))
+                                    .toArray(CompletableFuture[]::new))
+                            .join();
+                    claimed = batch.size();
+                } while (claimed == batchSize);
+            } catch (RuntimeException e) {
+                log.error("Draining order events failed", e);
+            } finally {
+                draining.unlock();
+            }
+        }
+    }
+
+    void dispatch(OrderEventMessage message) {
+        try {
+            Boolean delivered = transactionTemplate.execute(status -> {
+                if (!store.complete(message.id())) {
+                    return false;
+                }
+                handlers.forEach(handler -> handler.handle(message));
+                return true;
+            });
+            if (Boolean.TRUE.equals(delivered)) {
+                Timer.builder("orders.outbox.delivery")
+                        .description("Time from recording an order event to dispatching it")
+                        .tag("type", message.type().name())
+                        .register(meterRegistry)
+                        .record(Duration.between(message.createdAt(), Instant.now()));
+            }
+        } catch (RuntimeException e) {
+            failed(message.id(), message.orderId(), message.type().name(), message.attempts(), e.toString(), e);
+        }
+    }
+
+    /**
+     * Retries a failed event after its backoff, or parks it once it has had {@code maxAttempts}.
+     */
+    private void failed(Long id, Long orderId, String type, int attempts, String error, Exception cause) {
+        Counter.builder("orders.outbox.failures")
+                .description("Failed order event deliveries")
+                .tag("type", type)
+                .register(meterRegistry)
+                .increment();
+        if (attempts >= maxAttempts) {
+            log.error("Order event {} ({} of order {}) failed {} times, parking it: {}",
+                    id, type, orderId, attempts, error, cause);
+            store.park(id, error);
+            failed.incrementAndGet();
+            return;
+        }
+        Duration delay = backoff(attempts);
+        log.warn("Order event {} ({} of order {}) failed on attempt {}, retrying in {}: {}",
+                id, type, orderId, attempts, delay, error, cause);
+        store.retryLater(id, delay, error);
+    }
+
+    Duration backoff(int attempts) {
+        int doublings = Math.min(Math.max(attempts - 1, 0), 30);
+        Duration delay = minBackoff.multipliedBy(1L << doublings);
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        poller.shutdownNow();
+        workers.shutdown();
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,14 @@
+package utm.server.modules.order.outbox;
+
+/**
+ * Follow-up work for committed order changes, run by {@link OrderEventDispatcher} off the
+ * request thread.
+ * <p>
+ * Delivery is at least once and in order per order id. The dispatcher runs handlers in the
+ * transaction that removes the event, so database writes of a handler that throws are rolled
+ * back and redone on the retry. Effects outside the database may repeat.
+ */
+public interface OrderEventHandler {
+
+    void handle(OrderEventMessage message);
+}
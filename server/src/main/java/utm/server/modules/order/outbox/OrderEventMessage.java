@@ -0,0 +1,25 @@
+package utm.server.modules.order.outbox;
+
+import utm.server.modules.order.Status;
+import utm.server.modules.order.analytics.OrderSalesLine;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * An order event as handlers receive it.
+ *
+ * @param previous status before the change, only set for {@link OrderEventType#STATUS_CHANGED}
+ * @param current  status after the change, or at deletion for {@link OrderEventType#DELETED}
+ * @param lines    the order's items when the event was recorded; they may be gone by now
+ * @param attempts deliveries so far, including this one
+ */
+public record OrderEventMessage(Long id,
+                                Long orderId,
+                                OrderEventType type,
+                                Status previous,
+                                Status current,
+                                List<OrderSalesLine> lines,
+                                Instant createdAt,
+                                int attempts) {
+}
@@ -0,0 +1,7 @@
+package utm.server.modules.order.outbox;
+
+public enum OrderEventType {
+    PLACED,
+    STATUS_CHANGED,
+    DELETED
+}
@@ -0,0 +1,57 @@
+package utm.server.modules.order.outbox;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import utm.server.modules.order.OrderDeletedEvent;
+import utm.server.modules.order.OrderItemRepository;
+import utm.server.modules.order.OrderPlacedEvent;
+import utm.server.modules.order.OrderStatusChangedEvent;
+import utm.server.modules.order.Status;
+
+/**
+ * Records order events in {@code order_events} within the transaction that publishes them, so
+ * an event exists exactly when the change it describes is committed. The items are captured
+ * along with it because the order may be deleted before the event is dispatched.
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderOutbox {
+
+    private final OrderOutboxStore store;
+    private final OrderItemRepository orderItemRepository;
+    private final OrderEventDispatcher dispatcher;
+
+    @EventListener
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        append(event.orderId(), OrderEventType.PLACED, null, Status.PENDING);
+    }
+
+    @EventListener
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        append(event.orderId(), OrderEventType.STATUS_CHANGED, event.previous(), event.current());
+    }
+
+    @EventListener
+    public void onOrderDeleted(OrderDeletedEvent event) {
+        append(event.orderId(), OrderEventType.DELETED, null, event.status());
+    }
+
+    private void append(Long orderId, OrderEventType type, Status previous, Status current) {
+        store.append(orderId, type, previous, current, orderItemRepository.findSalesLinesByOrderId(orderId));
+
+        // Dispatch right after commit instead of waiting for the next poll
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatcher.wakeUp();
+                }
+            });
+        } else {
+            dispatcher.wakeUp();
+        }
+    }
+}
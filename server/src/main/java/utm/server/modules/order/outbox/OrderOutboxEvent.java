@@ -0,0 +1,62 @@
+package utm.server.modules.order.outbox;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import utm.server.modules.order.Status;
+
+import java.time.Instant;
+
+/**
+ * An order lifecycle event waiting to be dispatched. Written by {@link OrderOutbox} in the
+ * transaction that changed the order and deleted once every {@link OrderEventHandler} has
+ * handled it, or parked with {@code failed_at} after too many failed attempts. Read and written through {@link OrderOutboxStore}; the entity only defines the
+ * table.
+ */
+@Entity
+@Table(name = "order_events", indexes = {
+        @Index(name = "idx_order_events_order_id_id", columnList = "order_id, id"),
+        @Index(name = "idx_order_events_available_at", columnList = "available_at")
+})
+@Data
+@NoArgsConstructor
+public class OrderOutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OrderEventType type;
+
+    @Enumerated(EnumType.STRING)
+    private Status previousStatus;
+
+    @Enumerated(EnumType.STRING)
+    private Status status;
+
+    // The order's items when the event was recorded, as JSON
+    @Column(columnDefinition = "text")
+    private String payload;
+
+    @Column(nullable = false, columnDefinition = "timestamp(6) with time zone default now()")
+    private Instant createdAt;
+
+    // Not dispatched before this time: a retry backoff, or the lease of a dispatcher working on it
+    @Column(name = "available_at", nullable = false, columnDefinition = "timestamp(6) with time zone default now()")
+    private Instant availableAt;
+
+    @Column(nullable = false, columnDefinition = "integer default 0")
+    private int attempts;
+
+    @Column(length = 2000)
+    private String lastError;
+
+    // Set when the event ran out of attempts; it is no longer dispatched and no longer holds back its order
+    @Column(name = "failed_at")
+    private Instant failedAt;
+}
@@ -0,0 +1,181 @@
+package utm.server.modules.order.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import utm.server.modules.order.Status;
+import utm.server.modules.order.analytics.OrderSalesLine;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+@Repository
+@RequiredArgsConstructor
+public class OrderOutboxStore {
+
+    private static final TypeReference<List<OrderSalesLine>> LINES = new TypeReference<>() {
+    };
+
+    /**
+     * Due events that are the oldest of their order, so an order's events are never worked on
+     * concurrently or out of order. Claiming moves {@code available_at} forward by the lease;
+     * an event whose dispatcher died becomes due again once the lease runs out. Parked events
+     * are left out and do not hold back the rest of their order.
+     */
+    private static final String CLAIM = """
+            UPDATE order_events SET available_at = now() + ? * interval '1 millisecond', attempts = attempts + 1
+            WHERE id IN (
+                SELECT e.id FROM order_events e
+                WHERE e.available_at <= now() AND e.failed_at IS NULL
+                  AND NOT EXISTS (SELECT 1 FROM order_events p
+                                  WHERE p.order_id = e.order_id AND p.id < e.id AND p.failed_at IS NULL)
+                ORDER BY e.id
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED)
+            RETURNING id, order_id, type, previous_status, status, payload, created_at, attempts""";
+
+    /**
+     * @param pending events waiting to be dispatched, parked ones excluded
+     * @param oldest  age of the oldest of them
+     * @param failed  parked events
+     */
+    public record Backlog(long pending, Duration oldest, long failed) {
+    }
+
+    /**
+     * A claimed event that could not be read, such as a payload that no longer deserializes.
+     */
+    public record Unreadable(Long id, Long orderId, String type, int attempts, String error) {
+    }
+
+    /**
+     * One claim: the events to dispatch, and the claimed rows that could not be read.
+     */
+    public record Batch(List<OrderEventMessage> events, List<Unreadable> unreadable) {
+
+        public int size() {
+            return events.size() + unreadable.size();
+        }
+    }
+
+    // A claimed row, read or not
+    private record Row(OrderEventMessage message, Unreadable unreadable) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public void append(Long orderId, OrderEventType type, Status previous, Status current, List<OrderSalesLine> lines) {
+        jdbcTemplate.update("""
+                        INSERT INTO order_events (order_id, type, previous_status, status, payload, created_at, available_at, attempts)
+                        VALUES (?, ?, ?, ?, ?, now(), now(), 0)""",
+                orderId, type.name(), previous != null ? previous.name() : null,
+                current != null ? current.name() : null, write(lines));
+    }
+
+    /**
+     * Claims up to {@code limit} due events. A row that cannot be read comes back as
+     * {@link Unreadable} rather than failing the claim, which would leave the whole batch
+     * leased and idle.
+     */
+    public Batch claim(int limit, Duration lease) {
+        List<Row> rows = jdbcTemplate.query(CLAIM, this::map, lease.toMillis(), limit);
+        return new Batch(
+                rows.stream()
+                        .map(Row::message)
+                        .filter(Objects::nonNull)
+                        .sorted(Comparator.comparing(OrderEventMessage::id))
+                        .toList(),
+                rows.stream()
+                        .map(Row::unreadable)
+                        .filter(Objects::nonNull)
+                        .toList());
+    }
+
+    /**
+     * Removes a dispatched event. Run in the transaction of its handlers: a dispatcher whose
+     * lease ran out waits here for the one that took over, and then finds nothing to remove.
+     *
+     * @return whether the event was still there
+     */
+    public boolean complete(Long id) {
+        return jdbcTemplate.update("DELETE FROM order_events WHERE id = ?", id) > 0;
+    }
+
+    public void retryLater(Long id, Duration delay, String error) {
+        jdbcTemplate.update("""
+                        UPDATE order_events SET available_at = now() + ? * interval '1 millisecond', last_error = ?
+                        WHERE id = ?""",
+                delay.toMillis(), truncate(error), id);
+    }
+
+    /**
+     * Stops dispatching an event that keeps failing. It stays in the table with its last error;
+     * clearing {@code failed_at} (and {@code attempts}) puts it back in line.
+     */
+    public void park(Long id, String error) {
+        jdbcTemplate.update("UPDATE order_events SET failed_at = now(), last_error = ? WHERE id = ?",
+                truncate(error), id);
+    }
+
+    public Backlog backlog() {
+        return jdbcTemplate.queryForObject("""
+                        SELECT COUNT(*) FILTER (WHERE failed_at IS NULL),
+                               EXTRACT(EPOCH FROM now() - MIN(created_at) FILTER (WHERE failed_at IS NULL)) * 1000,
+                               COUNT(*) FILTER (WHERE failed_at IS NOT NULL)
+                        FROM order_events""",
+                (rs, i) -> new Backlog(rs.getLong(1), Duration.ofMillis(rs.getLong(2)), rs.getLong(3)));
+    }
+
+    private Row map(ResultSet rs, int row) throws SQLException {
+        long id = rs.getLong("id");
+        long orderId = rs.getLong("order_id");
+        String type = rs.getString("type");
+        int attempts = rs.getInt("attempts");
+        try {
+            String previous = rs.getString("previous_status");
+            String current = rs.getString("status");
+            return new Row(new OrderEventMessage(
+                    id,
+                    orderId,
+                    OrderEventType.valueOf(type),
+                    previous != null ? Status.valueOf(previous) : null,
+                    current != null ? Status.valueOf(current) : null,
+                    read(rs.getString("payload")),
+                    rs.getTimestamp("created_at").toInstant(),
+                    attempts), null);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return new Row(null, new Unreadable(id, orderId, type, attempts, e.toString()));
+        }
+    }
+
+    private static String truncate(String error) {
+        return error != null && error.length() > 2000 ? error.substring(0, 2000) : error;
+    }
+
+    private String write(List<OrderSalesLine> lines) {
+        try {
+            return objectMapper.writeValueAsString(lines);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize order event lines", e);
+        }
+    }
+
+    private List<OrderSalesLine> read(String payload) {
+        if (payload == null) {
+            return List.of();
+        }
+        try {
+            return objectMapper.readValue(payload, LINES);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot read order event lines", e);
+        }
+    }
+}
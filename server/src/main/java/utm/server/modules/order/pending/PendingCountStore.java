@@ -0,0 +1,92 @@
+package utm.server.modules.order.pending;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class PendingCountStore {
+
+    private static final String ADJUST = """
+            INSERT INTO seller_pending_counts (seller_id, pending, updated_at) VALUES (?, ?, now())
+            ON CONFLICT (seller_id) DO UPDATE
+            SET pending = seller_pending_counts.pending + EXCLUDED.pending, updated_at = now()""";
+
+    private static final String COUNTED = """
+            SELECT s.user_id AS seller_id, COUNT(DISTINCT o.id) AS pending
+            FROM orders o JOIN order_items i ON i.order_id = o.id
+            JOIN products p ON p.id = i.product_id JOIN shop_entity s ON s.id = p.shop_id
+            WHERE o.status = 'PENDING'""";
+
+    private static final String ALL_DRIFT = "WITH counted AS (" + COUNTED + """
+             GROUP BY s.user_id)
+            SELECT COALESCE(c.seller_id, t.seller_id), COALESCE(c.pending, 0) - COALESCE(t.pending, 0)
+            FROM counted c FULL JOIN seller_pending_counts t ON t.seller_id = c.seller_id
+            WHERE COALESCE(c.pending, 0) <> COALESCE(t.pending, 0)""";
+
+    private static final String TOUCHED_DRIFT = """
+            WITH touched AS (SELECT seller_id, pending FROM seller_pending_counts WHERE updated_at >= ?),
+            counted AS (""" + COUNTED + """
+             AND s.user_id IN (SELECT seller_id FROM touched) GROUP BY s.user_id)
+            SELECT t.seller_id, COALESCE(c.pending, 0) - t.pending
+            FROM touched t LEFT JOIN counted c ON c.seller_id = t.seller_id
+            WHERE COALESCE(c.pending, 0) <> t.pending""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void adjust(List<Long> sellerIds, int delta) {
+        jdbcTemplate.batchUpdate(ADJUST, sellerIds.stream().map(sellerId -> new Object[]{sellerId, delta}).toList());
+    }
+
+    /**
+     * Adds a different delta to each seller, one row at a time.
+     */
+    public void adjust(Map<Long, Long> deltas) {
+        jdbcTemplate.batchUpdate(ADJUST, deltas.entrySet().stream()
+                .map(e -> new Object[]{e.getKey(), e.getValue()})
+                .toList());
+    }
+
+    public Optional<Long> find(Long sellerId) {
+        return jdbcTemplate.query("SELECT pending FROM seller_pending_counts WHERE seller_id = ?",
+                (rs, i) -> rs.getLong(1), sellerId).stream().findFirst();
+    }
+
+    public Map<Long, Long> findAll(Collection<Long> sellerIds) {
+        Map<Long, Long> counts = new HashMap<>();
+        jdbcTemplate.query("SELECT seller_id, pending FROM seller_pending_counts WHERE seller_id = ANY(CAST(? AS bigint[]))",
+                (RowCallbackHandler) rs -> counts.put(rs.getLong(1), rs.getLong(2)),
+                (Object) sellerIds.toArray(Long[]::new));
+        return counts;
+    }
+
+    /**
+     * Recounts sellers from the orders and returns, per seller that is off, what has to be added
+     * to its stored count. Only sellers adjusted since {@code since} are recounted, or every
+     * seller when it is {@code null}.
+     * <p>
+     * Takes no lock. The orders and the stored counts are read by one statement, so from the same
+     * snapshot: a transaction that is still running is missing from both, and its own adjustment
+     * lands on top of the delta when it commits.
+     */
+    public Map<Long, Long> drift(Instant since) {
+        Map<Long, Long> deltas = new HashMap<>();
+        RowCallbackHandler collect = rs -> deltas.put(rs.getLong(1), rs.getLong(2));
+        if (since == null) {
+            jdbcTemplate.query(ALL_DRIFT, collect);
+        } else {
+            jdbcTemplate.query(TOUCHED_DRIFT, collect, Timestamp.from(since));
+        }
+        return deltas;
+    }
+}
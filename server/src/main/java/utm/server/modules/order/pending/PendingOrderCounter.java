@@ -0,0 +1,153 @@
+package utm.server.modules.order.pending;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import utm.server.modules.order.OrderDeletedEvent;
+import utm.server.modules.order.OrderItemRepository;
+import utm.server.modules.order.OrderPlacedEvent;
+import utm.server.modules.order.OrderStatusChangedEvent;
+import utm.server.modules.order.Status;
+import utm.server.modules.order.stream.OrderEventHub;
+import utm.server.modules.order.stream.OrderStreamPublisher;
+import utm.server.modules.order.stream.PendingCountEvent;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pending order counts per seller, answered from memory.
+ * <p>
+ * The {@code seller_pending_counts} table is adjusted in the transaction that places, moves or
+ * deletes an order. Counters in memory are loaded from it on first use and adjusted after the
+ * transaction commits; they are {@link LongAdder}s so concurrent checkouts for the same seller
+ * do not contend. A periodic reconcile recounts the sellers adjusted since its previous run (all
+ * of them at startup and every {@code full-recount-interval}), corrects the table with row-level
+ * deltas, and drops the memory counters. That bounds drift from writes of other instances or
+ * from a reader that loaded a counter between a commit and its in-memory adjustment.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PendingOrderCounter {
+
+    private final PendingCountStore store;
+    private final OrderItemRepository orderItemRepository;
+    private final OrderEventHub hub;
+
+    // Transactions that adjusted a seller just before the previous run may commit after it
+    private static final Duration SLACK = Duration.ofMinutes(5);
+
+    private final Map<Long, LongAdder> counters = new ConcurrentHashMap<>();
+
+    @Value("${orders.pending-count.full-recount-interval:PT24H}")
+    private Duration fullRecountInterval = Duration.ofHours(24);
+
+    private Instant lastReconciled;
+    private Instant lastFullRecount;
+
+    public long get(Long sellerId) {
+        return counters.computeIfAbsent(sellerId, id -> {
+            LongAdder adder = new LongAdder();
+            adder.add(store.find(id).orElse(0L));
+            return adder;
+        }).sum();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        adjust(event.orderId(), 1);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        adjust(event.orderId(), pending(event.current()) - pending(event.previous()));
+    }
+
+    // Runs at publish time: at commit the items are gone
+    @EventListener
+    public void onOrderDeleted(OrderDeletedEvent event) {
+        adjust(event.orderId(), -pending(event.status()));
+    }
+
+    // Also runs right after startup, where it recounts everyone and fills the table the first time
+    @Scheduled(fixedDelayString = "${orders.pending-count.reconcile-interval:PT15M}")
+    public synchronized void reconcile() {
+        Instant started = Instant.now();
+        boolean full = lastFullRecount == null || started.isAfter(lastFullRecount.plus(fullRecountInterval));
+        Map<Long, Long> deltas = store.drift(full ? null : lastReconciled.minus(SLACK));
+        if (!deltas.isEmpty()) {
+            store.adjust(deltas);
+            log.info("Pending order counts reconciled, {} sellers had drifted", deltas.size());
+        }
+        lastReconciled = started;
+        if (full) {
+            lastFullRecount = started;
+        }
+
+        Map<Long, Long> inMemory = new HashMap<>();
+        counters.forEach((sellerId, adder) -> inMemory.put(sellerId, adder.sum()));
+        counters.clear();
+        Map<Long, Long> stored = inMemory.isEmpty() ? Map.of() : store.findAll(inMemory.keySet());
+        Set<Long> changed = new HashSet<>(deltas.keySet());
+        inMemory.forEach((sellerId, count) -> {
+            if (count != stored.getOrDefault(sellerId, 0L).longValue()) {
+                changed.add(sellerId);
+            }
+        });
+        changed.forEach(this::notifySeller);
+    }
+
+    private void adjust(Long orderId, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        List<Long> sellerIds = orderItemRepository.findSellerIdsByOrderId(orderId);
+        if (sellerIds.isEmpty()) {
+            return;
+        }
+        store.adjust(sellerIds, delta);
+
+        Runnable applyInMemory = () -> sellerIds.forEach(sellerId -> {
+            counters.computeIfPresent(sellerId, (id, adder) -> {
+                adder.add(delta);
+                return adder;
+            });
+            notifySeller(sellerId);
+        });
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    applyInMemory.run();
+                }
+            });
+        } else {
+            applyInMemory.run();
+        }
+    }
+
+    private void notifySeller(Long sellerId) {
+        if (hub.hasSubscribers(sellerId)) {
+            hub.publish(sellerId, OrderStreamPublisher.PENDING_COUNT, new PendingCountEvent(get(sellerId)));
+        }
+    }
+
+    private static int pending(Status status) {
+        return status == Status.PENDING ? 1 : 0;
+    }
+}
@@ -0,0 +1,37 @@
+package utm.server.modules.order.pending;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Number of pending orders that contain at least one product of the seller. Adjusted in the
+ * transaction that changes an order, recounted from the orders by {@link PendingOrderCounter}.
+ */
+@Entity
+@Table(name = "seller_pending_counts", indexes = {
+        @Index(name = "idx_seller_pending_counts_updated_at", columnList = "updated_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SellerPendingCount {
+
+    @Id
+    @Column(name = "seller_id")
+    private Long sellerId;
+
+    @Column(nullable = false)
+    private long pending;
+
+    // Last adjustment; the periodic reconcile only recounts sellers adjusted since its previous run
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+}
@@ -0,0 +1,127 @@
+package utm.server.modules.order.stream;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process fan-out of order notifications to the event streams users have open. Each
+ * instance only reaches the streams connected to it, and only events committed on it.
+ */
+@Component
+public class OrderEventHub {
+
+    private final Map<Long, Deque<OrderStreamSubscription>> subscriptions = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final ExecutorService sender;
+    private final Duration timeout;
+    private final int bufferSize;
+    private final int maxStreamsPerUser;
+
+    public OrderEventHub(@Value("${orders.stream.timeout:PT30M}") Duration timeout,
+                         @Value("${orders.stream.buffer-size:64}") int bufferSize,
+                         @Value("${orders.stream.max-per-user:5}") int maxStreamsPerUser,
+                         @Value("${orders.stream.sender-threads:4}") int senderThreads,
+                         MeterRegistry meterRegistry) {
+        this.timeout = timeout;
+        this.bufferSize = bufferSize;
+        this.maxStreamsPerUser = maxStreamsPerUser;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.sender = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "order-stream-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("orders.stream.connections", connections, AtomicInteger::get)
+                .description("Open order event streams")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens a stream for the user. The oldest stream is closed once the user has more than
+     * {@code orders.stream.max-per-user} open.
+     */
+    public SseEmitter subscribe(Long userId) {
+        SseEmitter emitter = newEmitter();
+        OrderStreamSubscription subscription =
+                new OrderStreamSubscription(userId, emitter, bufferSize, sender, this::remove);
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(e -> subscription.close());
+
+        // Added inside compute() so it cannot race with remove() dropping an empty deque
+        Deque<OrderStreamSubscription> streams = subscriptions.compute(userId, (id, current) -> {
+            Deque<OrderStreamSubscription> deque = current != null ? current : new ConcurrentLinkedDeque<>();
+            deque.addLast(subscription);
+            return deque;
+        });
+        connections.incrementAndGet();
+        while (streams.size() > maxStreamsPerUser) {
+            OrderStreamSubscription oldest = streams.pollFirst();
+            if (oldest != null) {
+                connections.decrementAndGet();
+                oldest.close();
+            }
+        }
+        // Sends the response headers right away, so proxies and the client see an open stream
+        subscription.offer(SseEmitter.event().comment("connected"));
+        return emitter;
+    }
+
+    public boolean hasSubscribers(Long userId) {
+        Deque<OrderStreamSubscription> streams = subscriptions.get(userId);
+        return streams != null && !streams.isEmpty();
+    }
+
+    public void publish(Long userId, String name, Object data) {
+        Deque<OrderStreamSubscription> streams = subscriptions.get(userId);
+        if (streams == null) {
+            return;
+        }
+        for (OrderStreamSubscription subscription : streams) {
+            subscription.offer(SseEmitter.event().name(name).data(data));
+        }
+    }
+
+    @Scheduled(fixedRateString = "${orders.stream.heartbeat:PT15S}")
+    public void heartbeat() {
+        subscriptions.values().forEach(streams ->
+                streams.forEach(subscription -> subscription.offer(SseEmitter.event().comment("heartbeat"))));
+    }
+
+    public int connections() {
+        return connections.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscriptions.values().forEach(streams -> streams.forEach(OrderStreamSubscription::close));
+        sender.shutdownNow();
+    }
+
+    // Separate so tests can hand out emitters they control
+    SseEmitter newEmitter() {
+        return new SseEmitter(timeout.toMillis());
+    }
+
+    private void remove(OrderStreamSubscription subscription) {
+        Deque<OrderStreamSubscription> streams = subscriptions.get(subscription.userId());
+        if (streams != null && streams.remove(subscription)) {
+            connections.decrementAndGet();
+            subscriptions.computeIfPresent(subscription.userId(), (id, current) -> current.isEmpty() ? null : current);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package utm.server.modules.order.stream;
+
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import utm.server.modules.users.security.UserSecurityPrincipal;
+
+@RestController
+@RequestMapping("/api/orders")
+@RequiredArgsConstructor
+public class OrderStreamController {
+
+    private final OrderEventHub hub;
+
+    /**
+     * Server-sent events for the current user: {@code order-placed} and {@code order-status} for
+     * orders they bought or sell items in, {@code pending-count} when their pending count as a
+     * seller changes. Comments are sent as heartbeats. Replaces polling the order endpoints;
+     * clients reload once after (re)connecting.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> stream(@AuthenticationPrincipal UserSecurityPrincipal principal,
+                                             HttpServletResponse response) {
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        // Keeps nginx from buffering the stream
+        response.setHeader("X-Accel-Buffering", "no");
+        return ResponseEntity.ok(hub.subscribe(principal.getId()));
+    }
+}
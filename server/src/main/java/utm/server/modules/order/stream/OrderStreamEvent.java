@@ -0,0 +1,10 @@
+package utm.server.modules.order.stream;
+
+import utm.server.modules.order.Status;
+
+/**
+ * Data of the {@code order-placed} and {@code order-status} stream events;
+ * {@code previousStatus} is {@code null} for a new order.
+ */
+public record OrderStreamEvent(Long orderId, Status status, Status previousStatus) {
+}
@@ -0,0 +1,49 @@
+package utm.server.modules.order.stream;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import utm.server.modules.order.OrderItemRepository;
+import utm.server.modules.order.OrderRepository;
+import utm.server.modules.order.Status;
+import utm.server.modules.order.outbox.OrderEventHandler;
+import utm.server.modules.order.outbox.OrderEventMessage;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Pushes committed order changes to the buyer and to every seller with items in the order, as
+ * the outbox dispatches them.
+ * Pending count changes are pushed by {@link utm.server.modules.order.pending.PendingOrderCounter}.
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderStreamPublisher implements OrderEventHandler {
+
+    public static final String ORDER_PLACED = "order-placed";
+    public static final String ORDER_STATUS = "order-status";
+    public static final String PENDING_COUNT = "pending-count";
+
+    private final OrderEventHub hub;
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+
+    @Override
+    public void handle(OrderEventMessage message) {
+        switch (message.type()) {
+            case PLACED -> publish(message.orderId(), ORDER_PLACED,
+                    new OrderStreamEvent(message.orderId(), Status.PENDING, null));
+            case STATUS_CHANGED -> publish(message.orderId(), ORDER_STATUS,
+                    new OrderStreamEvent(message.orderId(), message.current(), message.previous()));
+        }
+    }
+
+    private void publish(Long orderId, String name, OrderStreamEvent data) {
+        if (hub.connections() == 0) {
+            return;
+        }
+        Set<Long> recipients = new LinkedHashSet<>(orderItemRepository.findSellerIdsByOrderId(orderId));
+        orderRepository.findUserIdById(orderId).ifPresent(recipients::add);
+        recipients.forEach(userId -> hub.publish(userId, name, data));
+    }
+}
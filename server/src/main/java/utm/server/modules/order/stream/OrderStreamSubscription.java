@@ -0,0 +1,94 @@
+package utm.server.modules.order.stream;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * One open event stream. Events are queued in a bounded buffer and written by a shared sender
+ * pool, at most one writer per stream at a time. A client too slow to keep the buffer from
+ * filling up is disconnected; it reconnects and reloads, which is cheaper than buffering
+ * without bound.
+ */
+class OrderStreamSubscription {
+
+    private final Long userId;
+    private final SseEmitter emitter;
+    private final BlockingQueue<SseEmitter.SseEventBuilder> buffer;
+    private final Executor sender;
+    private final Consumer<OrderStreamSubscription> onClose;
+    private final AtomicBoolean sending = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    OrderStreamSubscription(Long userId, SseEmitter emitter, int bufferSize, Executor sender,
+                            Consumer<OrderStreamSubscription> onClose) {
+        this.userId = userId;
+        this.emitter = emitter;
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        this.sender = sender;
+        this.onClose = onClose;
+    }
+
+    Long userId() {
+        return userId;
+    }
+
+    SseEmitter emitter() {
+        return emitter;
+    }
+
+    boolean isClosed() {
+        return closed.get();
+    }
+
+    void offer(SseEmitter.SseEventBuilder event) {
+        if (closed.get()) {
+            return;
+        }
+        if (!buffer.offer(event)) {
+            close();
+            return;
+        }
+        scheduleSend();
+    }
+
+    void close() {
+        if (closed.compareAndSet(false, true)) {
+            buffer.clear();
+            onClose.accept(this);
+            try {
+                emitter.complete();
+            } catch (IllegalStateException ignored) {
+                // Already completed by the container
+            }
+        }
+    }
+
+    private void scheduleSend() {
+        if (sending.compareAndSet(false, true)) {
+            sender.execute(this::send);
+        }
+    }
+
+    private void send() {
+        try {
+            SseEmitter.SseEventBuilder event;
+            while (!closed.get() && (event = buffer.poll()) != null) {
+                emitter.send(event);
+            }
+        } catch (IOException | IllegalStateException e) {
+            close();
+        } finally {
+            sending.set(false);
+            // An event may have been queued after the last poll but before the flag was cleared
+            if (!closed.get() && !buffer.isEmpty()) {
+                scheduleSend();
+            }
+        }
+    }
+}
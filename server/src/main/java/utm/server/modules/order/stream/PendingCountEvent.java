@@ -0,0 +1,7 @@
+package utm.server.modules.order.stream;
+
+/**
+ * Data of the {@code pending-count} stream event.
+ */
+public record PendingCountEvent(long count) {
+}
@@ -0,0 +1,38 @@
+package utm.server.modules.pagination;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset-paginated listing.
+ *
+ * @param items      rows of this page
+ * @param nextCursor token for the next page, {@code null} on the last page
+ * @param hasMore    whether another page exists
+ */
+public record CursorPage<T>(List<T> items, String nextCursor, boolean hasMore) {
+
+    public static final int DEFAULT_SIZE = 24;
+    public static final int MAX_SIZE = 100;
+
+    public static int clampSize(Integer requested) {
+        if (requested == null || requested <= 0) {
+            return DEFAULT_SIZE;
+        }
+        return Math.min(requested, MAX_SIZE);
+    }
+
+    /**
+     * Builds a page from rows fetched with {@code limit = size + 1}; the extra row only
+     * signals that another page exists and is dropped.
+     */
+    public static <E, T> CursorPage<T> of(List<E> rows,
+                                          int size,
+                                          Function<E, KeysetCursor> cursorOf,
+                                          Function<List<E>, List<T>> mapper) {
+        boolean hasMore = rows.size() > size;
+        List<E> page = hasMore ? rows.subList(0, size) : rows;
+        String next = hasMore ? cursorOf.apply(page.get(page.size() - 1)).encode() : null;
+        return new CursorPage<>(mapper.apply(page), next, hasMore);
+    }
+}
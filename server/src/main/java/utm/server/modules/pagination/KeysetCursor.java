@@ -0,0 +1,65 @@
+package utm.server.modules.pagination;
+
+import utm.server.except.InvalidPageRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position of the last row of a keyset page. Sent to clients as an opaque token,
+ * so the format can change without breaking them.
+ *
+ * @param sort  name of the ordering the cursor was produced for
+ * @param key   value of the sort column of the last row (empty when ordering by id only)
+ * @param id    id of the last row, used as a tie-breaker
+ */
+public record KeysetCursor(String sort, String key, long id) {
+
+    private static final String SEPARATOR = "|";
+
+    public String encode() {
+        String raw = sort + SEPARATOR + key + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token and checks it was issued for the same ordering.
+     */
+    public static KeysetCursor decode(String token, String expectedSort) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            // The key may itself contain the separator (shop names), so split on the outer ones
+            int first = raw.indexOf(SEPARATOR);
+            int last = raw.lastIndexOf(SEPARATOR);
+            if (first < 0 || first == last) {
+                throw new InvalidPageRequestException("Malformed cursor");
+            }
+            String sort = raw.substring(0, first);
+            if (!sort.equals(expectedSort)) {
+                throw new InvalidPageRequestException("Cursor was issued for a different sort order");
+            }
+            return new KeysetCursor(sort, raw.substring(first + 1, last), Long.parseLong(raw.substring(last + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPageRequestException("Malformed cursor");
+        }
+    }
+
+    public double keyAsDouble() {
+        try {
+            return Double.parseDouble(key);
+        } catch (NumberFormatException e) {
+            throw new InvalidPageRequestException("Malformed cursor");
+        }
+    }
+
+    public LocalDateTime keyAsDateTime() {
+        try {
+            return LocalDateTime.parse(key);
+        } catch (DateTimeParseException e) {
+            throw new InvalidPageRequestException("Malformed cursor");
+        }
+    }
+}
@@ -9,27 +9,46 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.UpdateTimestamp;
 import utm.server.modules.categories.CategoryEntity;
 import utm.server.modules.shops.ShopEntity;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_price_id", columnList = "price, id"),
+        @Index(name = "idx_products_shop_id_id", columnList = "shop_id, id")
+})
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class Product {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "products_seq")
+    @SequenceGenerator(name = "products_seq", sequenceName = "products_seq", allocationSize = 50)
     private Long id;
 
     @Column(unique = true)
     @Builder.Default
     private java.util.UUID uuid = java.util.UUID.randomUUID();
 
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
+    @UpdateTimestamp
+    @Column(columnDefinition = "timestamp(6) with time zone default now()")
+    private java.time.Instant updatedAt;
+
     private String title;
     private String description;
     private double price;
+
+    // Units left, or null when the seller does not track stock. Only changed through
+    // ProductStockStore's conditional updates, never by saving the entity, so a product edit
+    // cannot overwrite a concurrent checkout's decrement.
+    @Column(updatable = false)
+    private Integer stock;
     @ManyToOne
     @JoinColumn(name = "shop_id", referencedColumnName = "id")
     @JsonBackReference
@@ -44,12 +63,14 @@ public class Product {
         return shopEntity != null ? shopEntity.getId() : null;
     }
 
+    // A set, not a bag, so changing one tag inserts or deletes one join row instead of rewriting all of them
     @ManyToMany(fetch = FetchType.EAGER)
     @JoinTable(
         name = "product_tags_rel",
         joinColumns = @JoinColumn(name = "product_id"),
         inverseJoinColumns = @JoinColumn(name = "tag_id")
     )
+    @OrderBy("name")
     @Builder.Default
-    private java.util.List<TagEntity> tags = new java.util.ArrayList<>();
+    private java.util.Set<TagEntity> tags = new java.util.LinkedHashSet<>();
 }
@@ -0,0 +1,14 @@
+package utm.server.modules.products;
+
+/**
+ * Published by product writes. Listeners that keep derived views of the catalog
+ * subscribe with {@code @TransactionalEventListener} so they only see committed data.
+ */
+public record ProductChangedEvent(Long productId, Type type) {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+}
@@ -2,16 +2,29 @@ package utm.server.modules.products;
 
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import utm.server.except.ErrorMessage;
 import utm.server.except.NoRightsException;
+import utm.server.except.ResourceNotFoundException;
+import utm.server.modules.conditional.ConditionalResponses;
+import utm.server.modules.conditional.VersionStamp;
+import utm.server.modules.idempotency.Idempotent;
 import utm.server.modules.image.ImageService;
+import utm.server.modules.pagination.CursorPage;
 import utm.server.modules.users.security.UserSecurityPrincipal;
+import utm.server.modules.products.catalog.CatalogFilter;
+import utm.server.modules.products.catalog.CatalogNotReadyException;
+import utm.server.modules.products.catalog.CatalogService;
+import utm.server.modules.products.dto.CatalogPageDto;
 import utm.server.modules.products.dto.ProductCreationDto;
 import utm.server.modules.products.dto.ProductDto;
+import utm.server.modules.products.stock.InvalidStockException;
 
 //import java.util.ArrayList;
 import java.util.List;
@@ -23,7 +36,10 @@ public class ProductController {
 
     private final ProductService productService;
     private final ImageService imageService;
+    private final CatalogService catalogService;
+    private final ConditionalResponses conditionalResponses;
 
+    @Idempotent
     @PostMapping("/")
     public ProductDto createProduct(@RequestBody ProductCreationDto product, @AuthenticationPrincipal UserSecurityPrincipal user) throws NoRightsException {
 
@@ -36,22 +52,28 @@ public class ProductController {
     }
 
     @GetMapping("/findById/{id}")
-    public ResponseEntity<?> findById(@PathVariable String id) {
+    public ResponseEntity<?> findById(@PathVariable String id, WebRequest request) {
         try {
             // Try parsing as UUID first
             java.util.UUID uuid = java.util.UUID.fromString(id);
-            return productService.findByUuid(uuid)
-                    .<ResponseEntity<?>>map(ResponseEntity::ok)
-                    .orElseGet(() -> ResponseEntity.status(404)
-                            .body(new ErrorMessage(HttpStatus.NOT_FOUND.value(), "Product with UUID not found")));
+            List<VersionStamp> version = productService.productVersion(uuid);
+            if (version.get(0).isEmpty()) {
+                return ResponseEntity.status(404)
+                        .body(new ErrorMessage(HttpStatus.NOT_FOUND.value(), "Product with UUID not found"));
+            }
+            return conditionalResponses.respond(request, version, () -> productService.findByUuid(uuid)
+                    .orElseThrow(() -> new ResourceNotFoundException("Product with UUID not found")));
         } catch (IllegalArgumentException e) {
             // Fallback to Long ID for backward compatibility (optional, or remove if strict)
             try {
                 Long longId = Long.parseLong(id);
-                return productService.findById(longId)
-                        .<ResponseEntity<?>>map(ResponseEntity::ok)
-                        .orElseGet(() -> ResponseEntity.status(404)
-                                .body(new ErrorMessage(HttpStatus.NOT_FOUND.value(), "Product with Id not found")));
+                List<VersionStamp> version = productService.productVersion(longId);
+                if (version.get(0).isEmpty()) {
+                    return ResponseEntity.status(404)
+                            .body(new ErrorMessage(HttpStatus.NOT_FOUND.value(), "Product with Id not found"));
+                }
+                return conditionalResponses.respond(request, version, () -> productService.findById(longId)
+                        .orElseThrow(() -> new ResourceNotFoundException("Product with Id not found")));
             } catch (NumberFormatException nfe) {
                  return ResponseEntity.status(404)
                         .body(new ErrorMessage(HttpStatus.NOT_FOUND.value(), "Invalid ID format"));
@@ -59,19 +81,49 @@ public class ProductController {
         }
     }
 
+    @GetMapping("/")
+    public ResponseEntity<CursorPage<ProductDto>> getProductsPage(@RequestParam(required = false) String cursor,
+                                                                  @RequestParam(required = false) Integer size,
+                                                                  @RequestParam(required = false) String sort,
+                                                                  WebRequest request) {
+        return conditionalResponses.respond(request, productService.catalogVersion(),
+                () -> productService.findProductsPage(ProductListingScope.all(), sort, cursor, size));
+    }
+
+    @GetMapping("/browse")
+    public ResponseEntity<CatalogPageDto> browse(@RequestParam(required = false) java.util.Set<String> tags,
+                                                 @RequestParam(required = false) Long shopId,
+                                                 @RequestParam(required = false) Long categoryId,
+                                                 @RequestParam(required = false) Double minPrice,
+                                                 @RequestParam(required = false) Double maxPrice,
+                                                 @RequestParam(required = false) String sort,
+                                                 @RequestParam(required = false) String cursor,
+                                                 @RequestParam(required = false) Integer size,
+                                                 WebRequest request) {
+        CatalogFilter filter = new CatalogFilter(tags, shopId, categoryId, minPrice, maxPrice);
+        return conditionalResponses.respond(request, productService.catalogVersion(),
+                () -> catalogService.browse(filter, sort, cursor, size));
+    }
+
+    /**
+     * @deprecated loads the whole catalog, use the paginated {@code GET /api/products/} instead
+     */
+    @Deprecated
     @GetMapping("/findall")
-    public List<ProductDto> getAllProducts(){
-        return productService.findAllProducts();
+    public ResponseEntity<List<ProductDto>> getAllProducts(WebRequest request){
+        return conditionalResponses.respond(request, productService.catalogVersion(), productService::findAllProducts);
     }
 
     @GetMapping("/{title}")
-    public List<ProductDto> getProductsByTitle(@PathVariable String title){
-        return productService.findProductsByTitle(title);
+    public ResponseEntity<List<ProductDto>> getProductsByTitle(@PathVariable String title, WebRequest request){
+        return conditionalResponses.respond(request, productService.catalogVersion(),
+                () -> productService.findProductsByTitle(title));
     }
 
     @GetMapping("/by-shop/{id}")
-    public List<ProductDto> getProductsByShop(@PathVariable Long id){
-        return productService.findProductsByShopId(id);
+    public ResponseEntity<List<ProductDto>> getProductsByShop(@PathVariable Long id, WebRequest request){
+        return conditionalResponses.respond(request, productService.shopProductsVersion(id),
+                () -> productService.findProductsByShopId(id));
     }
 
     @DeleteMapping("/{id}")
@@ -87,4 +139,23 @@ public class ProductController {
                     .body(new ErrorMessage(HttpStatus.NOT_FOUND.value(), e.getMessage()));
         }
     }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ErrorMessage> handleConcurrentEdit(OptimisticLockingFailureException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(new ErrorMessage(HttpStatus.CONFLICT.value(), "The product was changed by someone else, reload and retry"));
+    }
+
+    @ExceptionHandler(CatalogNotReadyException.class)
+    public ResponseEntity<ErrorMessage> handleCatalogNotReady(CatalogNotReadyException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .body(new ErrorMessage(HttpStatus.SERVICE_UNAVAILABLE.value(), e.getMessage()));
+    }
+
+    @ExceptionHandler(InvalidStockException.class)
+    public ResponseEntity<ErrorMessage> handleInvalidStock(InvalidStockException e) {
+        return ResponseEntity.badRequest()
+                .body(new ErrorMessage(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
+    }
 }
@@ -0,0 +1,25 @@
+package utm.server.modules.products;
+
+import java.util.UUID;
+
+/**
+ * Restricts a paginated product listing to a shop or a tag. All fields are optional.
+ */
+public record ProductListingScope(Long shopId, UUID shopUuid, String tag) {
+
+    public static ProductListingScope all() {
+        return new ProductListingScope(null, null, null);
+    }
+
+    public static ProductListingScope shop(Long shopId) {
+        return new ProductListingScope(shopId, null, null);
+    }
+
+    public static ProductListingScope shop(UUID shopUuid) {
+        return new ProductListingScope(null, shopUuid, null);
+    }
+
+    public static ProductListingScope tag(String tag) {
+        return new ProductListingScope(null, null, tag);
+    }
+}
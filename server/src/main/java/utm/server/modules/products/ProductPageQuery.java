@@ -0,0 +1,60 @@
+package utm.server.modules.products;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.stereotype.Component;
+import utm.server.modules.pagination.KeysetCursor;
+import utm.server.modules.products.cards.ProductCardEntity;
+
+import java.util.List;
+
+/**
+ * Builds the keyset queries behind the paginated product listings. Pages are addressed by
+ * the last seen (sort key, id) pair instead of an offset, so the cost of a page does not
+ * depend on how deep into the catalog it is. Pages are read from the product card table.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductPageQuery {
+
+    private final EntityManager entityManager;
+
+    public List<ProductCardEntity> fetch(ProductListingScope scope, ProductSort sort, KeysetCursor after, int limit) {
+        StringBuilder jpql = new StringBuilder("SELECT p FROM ProductCardEntity p WHERE 1 = 1");
+        if (scope.shopId() != null) {
+            jpql.append(" AND p.shopId = :shopId");
+        }
+        if (scope.shopUuid() != null) {
+            jpql.append(" AND p.shopUuid = :shopUuid");
+        }
+        if (scope.tag() != null) {
+            // Rendered as tags @> array[?], which idx_product_cards_tags serves
+            jpql.append(" AND array_contains(p.tags, :tag)");
+        }
+        if (after != null) {
+            jpql.append(" AND ").append(sort.getAfterPredicate());
+        }
+        jpql.append(" ORDER BY ").append(sort.getOrderBy());
+
+        TypedQuery<ProductCardEntity> query = entityManager.createQuery(jpql.toString(), ProductCardEntity.class)
+                .setHint(HibernateHints.HINT_READ_ONLY, true);
+        if (scope.shopId() != null) {
+            query.setParameter("shopId", scope.shopId());
+        }
+        if (scope.shopUuid() != null) {
+            query.setParameter("shopUuid", scope.shopUuid());
+        }
+        if (scope.tag() != null) {
+            query.setParameter("tag", scope.tag());
+        }
+        if (after != null) {
+            query.setParameter("lastId", after.id());
+            if (sort.isByPrice()) {
+                query.setParameter("lastKey", after.keyAsDouble());
+            }
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+}
@@ -1,19 +1,123 @@
 package utm.server.modules.products;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import utm.server.modules.conditional.VersionStamp;
+import utm.server.modules.products.dto.ProductRow;
 import utm.server.modules.shops.ShopEntity;
 //import utm.server.features.users.UserRepository;
 
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
+
+    // Bulk lookups by id go in slices of this many, far below PostgreSQL's 65535 bind parameters
+    int IDS_PER_QUERY = 1000;
+
+    String PRODUCT_ROW = "SELECT new utm.server.modules.products.dto.ProductRow(" +
+            "p.id, p.uuid, p.title, p.description, p.price, s.id, s.uuid, s.name) " +
+            "FROM Product p LEFT JOIN p.shopEntity s ";
+
+    String VERSION_STAMP = "SELECT new utm.server.modules.conditional.VersionStamp(" +
+            "COUNT(p), MAX(p.id), SUM(p.version), MAX(p.updatedAt)) FROM Product p ";
+
     List<Product> findByTitle(String title);
 
     List<Product> findProductsByShopEntity(ShopEntity shopId);
     List<Product> findProductsByShopEntity_Uuid(java.util.UUID shopUuid);
+
+    @EntityGraph(attributePaths = {"tags", "shopEntity"})
+    List<Product> findWithTagsByShopEntity_Id(Long shopId);
     java.util.Optional<Product> findByUuid(java.util.UUID uuid);
     List<Product> findByUuidIsNull();
+    List<Product> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @Query(VERSION_STAMP)
+    VersionStamp findVersionStamp();
+
+    @Query(VERSION_STAMP + "WHERE p.id = :id")
+    VersionStamp findVersionStampById(@Param("id") Long id);
+
+    @Query(VERSION_STAMP + "WHERE p.uuid = :uuid")
+    VersionStamp findVersionStampByUuid(@Param("uuid") UUID uuid);
+
+    @Query(VERSION_STAMP + "WHERE p.shopEntity.id = :shopId")
+    VersionStamp findVersionStampByShopId(@Param("shopId") Long shopId);
+
+    @Query(VERSION_STAMP + "WHERE p.shopEntity.uuid = :shopUuid")
+    VersionStamp findVersionStampByShopUuid(@Param("shopUuid") UUID shopUuid);
+
+    @Query(PRODUCT_ROW + "WHERE p.id = :id")
+    Optional<ProductRow> findRowById(@Param("id") Long id);
+
+    @Query(PRODUCT_ROW + "WHERE p.uuid = :uuid")
+    Optional<ProductRow> findRowByUuid(@Param("uuid") UUID uuid);
+
+    @Query(PRODUCT_ROW + "WHERE p.id IN :ids")
+    List<ProductRow> findRowsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT p.shopEntity.id AS shopId, COUNT(p) AS productCount FROM Product p " +
+            "WHERE p.shopEntity IS NOT NULL GROUP BY p.shopEntity.id")
+    List<ShopProductCount> countProductsByShop();
+
+    interface ShopProductCount {
+        Long getShopId();
+
+        Long getProductCount();
+    }
+
+    @Query("SELECT p.id FROM Product p WHERE p.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT p.id FROM Product p WHERE p.id > :lastId ORDER BY p.id")
+    List<Long> findIdsAfter(@Param("lastId") Long lastId, Pageable pageable);
+
+    @Query("SELECT p.id AS productId, t.name AS tag FROM Product p JOIN p.tags t WHERE p.id IN :ids ORDER BY t.name")
+    List<ProductTagPair> findTagPairsByProductIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * {@link #findTagPairsByProductIdIn} for any number of ids, one query per {@link #IDS_PER_QUERY}.
+     */
+    default List<ProductTagPair> findTagPairsByProductIds(Collection<Long> ids) {
+        List<Long> all = List.copyOf(ids);
+        List<ProductTagPair> pairs = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += IDS_PER_QUERY) {
+            pairs.addAll(findTagPairsByProductIdIn(all.subList(from, Math.min(from + IDS_PER_QUERY, all.size()))));
+        }
+        return pairs;
+    }
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT p.id AS id, p.price AS price, s.id AS shopId, c.id AS categoryId " +
+           "FROM Product p LEFT JOIN p.shopEntity s LEFT JOIN p.categoryEntity c")
+    List<CatalogColumns> findAllCatalogColumns();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT p.id AS productId, t.name AS tag FROM Product p JOIN p.tags t")
+    List<ProductTagPair> findAllProductTagPairs();
+
+    interface CatalogColumns {
+        Long getId();
+        double getPrice();
+        Long getShopId();
+        Long getCategoryId();
+    }
+
+    interface ProductTagPair {
+        Long getProductId();
+        String getTag();
+    }
 }
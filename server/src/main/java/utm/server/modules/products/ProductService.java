@@ -3,16 +3,26 @@ package utm.server.modules.products;
 import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import utm.server.except.NoRightsException;
+import utm.server.modules.conditional.CatalogVersion;
+import utm.server.modules.conditional.VersionStamp;
 import utm.server.modules.image.ImageService;
 import utm.server.modules.image.dto.ImageUploadResponse;
+import utm.server.modules.pagination.CursorPage;
+import utm.server.modules.pagination.KeysetCursor;
 import utm.server.modules.products.dto.ProductCreationDto;
 import utm.server.modules.products.dto.ProductDto;
+import utm.server.modules.products.cards.ProductCardEntity;
+import utm.server.modules.products.cards.ProductCardRepository;
 import utm.server.modules.products.mapper.ProductMapper;
 import utm.server.modules.products.permission.ProductEditPermissionService;
 import utm.server.modules.products.product_images.ProductImageService;
+import utm.server.modules.products.stock.InvalidStockException;
+import utm.server.modules.products.stock.ProductStockStore;
 import utm.server.modules.shops.ShopEntity;
+import utm.server.modules.shops.ShopRepository;
 import utm.server.modules.users.UserEntity;
 import utm.server.modules.users.security.UserSecurityPrincipal;
 import utm.server.modules.users.security.UserSecurityPrincipalMapper;
@@ -29,7 +39,13 @@ public class ProductService {
     private final ProductMapper productMapper;
     private final ProductEditPermissionService productEditPermissionService;
     private final ProductImageService productImageService;
-    private final TagRepository tagRepository;
+    private final TagDictionary tagDictionary;
+    private final ShopRepository shopRepository;
+    private final ProductPageQuery productPageQuery;
+    private final ProductCardRepository productCardRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ProductStockStore productStockStore;
+    private final CatalogVersion catalogVersion;
 
     private final EntityManager entityManager; // Add this
     private final UserSecurityPrincipalMapper userSecurityPrincipalMapper;
@@ -37,46 +53,66 @@ public class ProductService {
 
 
     public Optional<ProductDto> findById(Long id) {
-        return  productRepository.findById(id).map(productMapper::toDto);
+        return productRepository.findRowById(id).map(productMapper::fromRow);
     }
 
     public Optional<ProductDto> findByUuid(java.util.UUID uuid) {
-        return productRepository.findByUuid(uuid).map(productMapper::toDto);
+        return productRepository.findRowByUuid(uuid).map(productMapper::fromRow);
     }
 
     public List<ProductDto> findAllProducts() {
-        return productRepository.findAll()
-                .stream()
-                .map(productMapper::toDto)
-                .toList();
+        return productMapper.fromCards(productCardRepository.findAllByOrderByIdAsc());
+    }
+
+    public CursorPage<ProductDto> findProductsPage(ProductListingScope scope, String sort, String cursor, Integer size) {
+        ProductSort productSort = ProductSort.fromString(sort);
+        KeysetCursor after = cursor == null || cursor.isBlank()
+                ? null
+                : KeysetCursor.decode(cursor, productSort.name());
+        int pageSize = CursorPage.clampSize(size);
+
+        List<ProductCardEntity> rows = productPageQuery.fetch(scope, productSort, after, pageSize + 1);
+        return CursorPage.of(rows, pageSize, productSort::cursorOf, productMapper::fromCards);
     }
 
     public List<ProductDto> findProductsByTitle(String title) {
-        return productRepository.findByTitle(title)
-                .stream()
-                .map(productMapper::toDto)
-                .toList();
+        return productMapper.fromCards(productCardRepository.findByTitleOrderByIdAsc(title));
     }
 
     public List<ProductDto> findProductsByShopId(Long shopId) {
-        ShopEntity shop = new ShopEntity();
-        shop.setId(shopId);
-        return productRepository.findProductsByShopEntity(shop)
-                .stream()
-                .map(productMapper::toDto)
-                .toList();
+        return productMapper.fromCards(productCardRepository.findByShopIdOrderByIdAsc(shopId));
     }
 
     public List<ProductDto> findProductsByShopUuid(java.util.UUID shopUuid) {
-        // We need to find the shop first to get the entity, or use a custom query in repo
-        // Assuming we can't just create a dummy entity with UUID for lookup in standard JPA without ID
-        // But wait, findProductsByShopEntity expects an entity.
-        // Let's assume we need to fetch the shop first.
-        // Or better, add findByShopEntity_Uuid to ProductRepository
-        return productRepository.findProductsByShopEntity_Uuid(shopUuid)
-                .stream()
-                .map(productMapper::toDto)
-                .toList();
+        return productMapper.fromCards(productCardRepository.findByShopUuidOrderByIdAsc(shopUuid));
+    }
+
+    /**
+     * Versions of everything a catalog listing embeds: the products, their shops and tags.
+     * Served from memory; see {@link CatalogVersion}.
+     */
+    public List<VersionStamp> catalogVersion() {
+        return List.of(catalogVersion.current(), tagDictionary.version());
+    }
+
+    public List<VersionStamp> productVersion(Long id) {
+        return List.of(productRepository.findVersionStampById(id), shopRepository.findVersionStampByProductId(id),
+                tagDictionary.version());
+    }
+
+    public List<VersionStamp> productVersion(java.util.UUID uuid) {
+        return List.of(productRepository.findVersionStampByUuid(uuid),
+                shopRepository.findVersionStampByProductUuid(uuid), tagDictionary.version());
+    }
+
+    public List<VersionStamp> shopProductsVersion(Long shopId) {
+        return List.of(productRepository.findVersionStampByShopId(shopId), shopRepository.findVersionStampById(shopId),
+                tagDictionary.version());
+    }
+
+    public List<VersionStamp> shopProductsVersion(java.util.UUID shopUuid) {
+        return List.of(productRepository.findVersionStampByShopUuid(shopUuid),
+                shopRepository.findVersionStampByUuid(shopUuid), tagDictionary.version());
     }
 
     @Transactional
@@ -94,12 +130,9 @@ public class ProductService {
         productToSave.setDescription(product.description());
         productToSave.setTitle(product.title());
         productToSave.setPrice(product.price());
+        productToSave.setStock(checkedStock(product.stock()));
         if (product.tags() != null) {
-            List<TagEntity> tagEntities = product.tags().stream()
-                .map(name -> tagRepository.findByName(name).orElse(null))
-                .filter(java.util.Objects::nonNull)
-                .collect(java.util.stream.Collectors.toList());
-            productToSave.setTags(tagEntities);
+            productToSave.setTags(new java.util.LinkedHashSet<>(tagDictionary.resolve(product.tags())));
         }
 
         ShopEntity shop = entityManager.getReference(ShopEntity.class, product.shopId());
@@ -107,6 +140,7 @@ public class ProductService {
 
         Product saved = productRepository.save(productToSave);
         productImageService.saveAll(permanentImages, saved);
+        eventPublisher.publishEvent(new ProductChangedEvent(saved.getId(), ProductChangedEvent.Type.CREATED));
         return productMapper.toDto(saved);
      
     }
@@ -124,12 +158,15 @@ public class ProductService {
         product.setTitle(productDto.title());
         product.setDescription(productDto.description());
         product.setPrice(productDto.price());
+        if (productDto.stock() != null) {
+            // Not part of the entity update, which could overwrite a concurrent checkout
+            productStockStore.set(id, checkedStock(productDto.stock()));
+        }
         if (productDto.tags() != null) {
-            List<TagEntity> tagEntities = productDto.tags().stream()
-                .map(name -> tagRepository.findByName(name).orElse(null))
-                .filter(java.util.Objects::nonNull)
-                .collect(java.util.stream.Collectors.toList());
-            product.setTags(tagEntities);
+            // Edit the managed set in place so Hibernate only writes the join rows that changed
+            List<TagEntity> wanted = tagDictionary.resolve(productDto.tags());
+            product.getTags().retainAll(wanted);
+            product.getTags().addAll(wanted);
         }
 
         // Handle images if needed - for now assuming we just update text fields or append images
@@ -140,7 +177,11 @@ public class ProductService {
              productImageService.saveAll(permanentImages, product);
         }
 
-        return productMapper.toDto(productRepository.save(product));
+        // Tags and images live in other tables; touch the product so its version moves with them
+        product.setUpdatedAt(java.time.Instant.now());
+        Product saved = productRepository.save(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(saved.getId(), ProductChangedEvent.Type.UPDATED));
+        return productMapper.toDto(saved);
     }
 
     @Transactional
@@ -157,5 +198,13 @@ public class ProductService {
         productImageService.deleteAllByProduct(product);
         
         productRepository.delete(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(id, ProductChangedEvent.Type.DELETED));
+    }
+
+    private static Integer checkedStock(Integer stock) {
+        if (stock != null && stock < 0) {
+            throw new InvalidStockException("Stock cannot be negative");
+        }
+        return stock;
     }
 }
@@ -0,0 +1,60 @@
+package utm.server.modules.products;
+
+import utm.server.except.InvalidPageRequestException;
+import utm.server.modules.pagination.KeysetCursor;
+import utm.server.modules.products.cards.ProductCardEntity;
+
+/**
+ * Orderings supported by the paginated product listings. Every ordering ends with the
+ * product id so that rows sharing a sort key still have a stable position.
+ */
+public enum ProductSort {
+
+    NEWEST("p.id DESC", "p.id < :lastId", false),
+    OLDEST("p.id ASC", "p.id > :lastId", false),
+    PRICE_ASC("p.price ASC, p.id ASC", "(p.price > :lastKey OR (p.price = :lastKey AND p.id > :lastId))", true),
+    PRICE_DESC("p.price DESC, p.id DESC", "(p.price < :lastKey OR (p.price = :lastKey AND p.id < :lastId))", true);
+
+    private final String orderBy;
+    private final String afterPredicate;
+    private final boolean byPrice;
+
+    ProductSort(String orderBy, String afterPredicate, boolean byPrice) {
+        this.orderBy = orderBy;
+        this.afterPredicate = afterPredicate;
+        this.byPrice = byPrice;
+    }
+
+    public String getOrderBy() {
+        return orderBy;
+    }
+
+    public String getAfterPredicate() {
+        return afterPredicate;
+    }
+
+    public boolean isByPrice() {
+        return byPrice;
+    }
+
+    public KeysetCursor cursorOf(ProductCardEntity card) {
+        return cursorOf(card.getId(), card.getPrice());
+    }
+
+    public KeysetCursor cursorOf(long id, double price) {
+        String key = byPrice ? Double.toString(price) : "";
+        return new KeysetCursor(name(), key, id);
+    }
+
+    public static ProductSort fromString(String value) {
+        if (value == null || value.isBlank()) {
+            return NEWEST;
+        }
+        for (ProductSort sort : values()) {
+            if (sort.name().equalsIgnoreCase(value)) {
+                return sort;
+            }
+        }
+        throw new InvalidPageRequestException("Unsupported sort: " + value);
+    }
+}
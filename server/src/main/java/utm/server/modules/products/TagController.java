@@ -1,9 +1,16 @@
 package utm.server.modules.products;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import utm.server.modules.conditional.ConditionalResponses;
+import utm.server.modules.pagination.CursorPage;
+import utm.server.modules.products.dto.ProductDto;
 
 import java.util.List;
 
@@ -12,12 +19,22 @@ import java.util.List;
 @RequiredArgsConstructor
 public class TagController {
 
-    private final TagRepository tagRepository;
+    private final TagDictionary tagDictionary;
+    private final ProductService productService;
+    private final ConditionalResponses conditionalResponses;
 
     @GetMapping("/")
-    public List<String> getAllTags() {
-        return tagRepository.findAll().stream()
-                .map(TagEntity::getName)
-                .toList();
+    public ResponseEntity<List<String>> getAllTags(WebRequest request) {
+        return conditionalResponses.respond(request, List.of(tagDictionary.version()), tagDictionary::names);
+    }
+
+    @GetMapping("/{name}/products")
+    public ResponseEntity<CursorPage<ProductDto>> getProductsByTag(@PathVariable String name,
+                                                                   @RequestParam(required = false) String cursor,
+                                                                   @RequestParam(required = false) Integer size,
+                                                                   @RequestParam(required = false) String sort,
+                                                                   WebRequest request) {
+        return conditionalResponses.respond(request, productService.catalogVersion(),
+                () -> productService.findProductsPage(ProductListingScope.tag(name), sort, cursor, size));
     }
 }
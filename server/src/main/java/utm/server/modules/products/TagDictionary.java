@@ -0,0 +1,65 @@
+package utm.server.modules.products;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import utm.server.modules.conditional.VersionStamp;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * All tag names in memory, with the version stamp they were loaded at. Tags are only written
+ * by {@link TagsInitializer}, which runs before the application is ready, so loading once on
+ * {@link ApplicationReadyEvent} keeps the dictionary coherent; {@link #reload()} is there for
+ * any later writer.
+ */
+@Component
+@RequiredArgsConstructor
+public class TagDictionary {
+
+    private record Snapshot(List<String> names, VersionStamp version) {
+    }
+
+    private final TagRepository tagRepository;
+    private volatile Snapshot snapshot;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void reload() {
+        // Stamp first: a write racing the load then leaves the stamp behind, never ahead of the names
+        VersionStamp version = tagRepository.findVersionStamp();
+        List<String> names = tagRepository.findAll(Sort.by("name")).stream()
+                .map(TagEntity::getName)
+                .toList();
+        snapshot = new Snapshot(names, version);
+    }
+
+    public List<String> names() {
+        return current().names();
+    }
+
+    public VersionStamp version() {
+        return current().version();
+    }
+
+    /**
+     * Loads the tags with the given names in one query. Names that are not tags are ignored.
+     */
+    public List<TagEntity> resolve(Collection<String> names) {
+        if (names == null || names.isEmpty()) {
+            return List.of();
+        }
+        return tagRepository.findAllByNameIn(names);
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            reload();
+            current = snapshot;
+        }
+        return current;
+    }
+}
@@ -1,8 +1,19 @@
 package utm.server.modules.products;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import utm.server.modules.conditional.VersionStamp;
+
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface TagRepository extends JpaRepository<TagEntity, Long> {
     Optional<TagEntity> findByName(String name);
+
+    List<TagEntity> findAllByNameIn(Collection<String> names);
+
+    @Query("SELECT new utm.server.modules.conditional.VersionStamp(" +
+            "COUNT(t), MAX(t.id), SUM(t.version), MAX(t.updatedAt)) FROM TagEntity t")
+    VersionStamp findVersionStamp();
 }
@@ -2,13 +2,18 @@ package utm.server.modules.products;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Component
 @RequiredArgsConstructor
@@ -16,6 +21,7 @@ public class TagsInitializer implements CommandLineRunner {
 
     private final ProductRepository productRepository;
     private final TagRepository tagRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     @Transactional
@@ -27,29 +33,34 @@ public class TagsInitializer implements CommandLineRunner {
         );
 
         // Seed tags
-        for (String tagName : availableTags) {
-            if (tagRepository.findByName(tagName).isEmpty()) {
-                tagRepository.save(TagEntity.builder().name(tagName).build());
-            }
-        }
+        Set<String> existing = tagRepository.findAllByNameIn(availableTags).stream()
+                .map(TagEntity::getName)
+                .collect(Collectors.toSet());
+        tagRepository.saveAll(availableTags.stream()
+                .filter(tagName -> !existing.contains(tagName))
+                .map(tagName -> TagEntity.builder().name(tagName).build())
+                .toList());
+        Map<String, TagEntity> tagsByName = tagRepository.findAllByNameIn(availableTags).stream()
+                .collect(Collectors.toMap(TagEntity::getName, Function.identity()));
 
         Random random = new Random();
 
         List<Product> products = productRepository.findAll();
         for (Product product : products) {
             if (product.getTags() == null) {
-                product.setTags(new java.util.ArrayList<>());
+                product.setTags(new java.util.LinkedHashSet<>());
             }
             if (product.getTags().isEmpty()) {
                 int numberOfTags = random.nextInt(3) + 1; // 1 to 3 tags
                 for (int i = 0; i < numberOfTags; i++) {
                     String tagName = availableTags.get(random.nextInt(availableTags.size()));
-                    TagEntity tagEntity = tagRepository.findByName(tagName).orElse(null);
-                    if (tagEntity != null && !product.getTags().contains(tagEntity)) {
+                    TagEntity tagEntity = tagsByName.get(tagName);
+                    if (tagEntity != null) {
                         product.getTags().add(tagEntity);
                     }
                 }
                 productRepository.save(product);
+                eventPublisher.publishEvent(new ProductChangedEvent(product.getId(), ProductChangedEvent.Type.UPDATED));
             }
         }
     }
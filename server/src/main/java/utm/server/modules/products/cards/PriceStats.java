@@ -0,0 +1,7 @@
+package utm.server.modules.products.cards;
+
+/**
+ * Product count and price range of a set of cards; prices are {@code null} when it is empty.
+ */
+public record PriceStats(Long count, Double minPrice, Double maxPrice) {
+}
@@ -0,0 +1,21 @@
+package utm.server.modules.products.cards;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/products/cards")
+@RequiredArgsConstructor
+public class ProductCardController {
+
+    private final ProductCardService productCardService;
+
+    @PostMapping("/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> rebuild() {
+        int written = productCardService.rebuild();
+        return ResponseEntity.ok("Product cards rebuilt: " + written);
+    }
+}
@@ -0,0 +1,61 @@
+package utm.server.modules.products.cards;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Denormalized copy of everything a catalog card shows, one row per product, so listings
+ * read a single table instead of joining products, shops, tags and images.
+ * Maintained by {@link ProductCardProjector}; never written by request handlers directly.
+ */
+@Entity
+@Table(name = "product_cards", indexes = {
+        @Index(name = "idx_product_cards_price_id", columnList = "price, product_id"),
+        @Index(name = "idx_product_cards_shop_id_id", columnList = "shop_id, product_id"),
+        @Index(name = "idx_product_cards_shop_uuid_id", columnList = "shop_uuid, product_id"),
+        @Index(name = "idx_product_cards_title", columnList = "title")
+        // idx_product_cards_tags is a GIN index, created by ProductCardTagIndex
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductCardEntity {
+
+    @Id
+    @Column(name = "product_id")
+    private Long id;
+
+    @Column(unique = true)
+    private UUID uuid;
+
+    private String title;
+    private String description;
+    private double price;
+
+    @Column(name = "shop_id")
+    private Long shopId;
+    @Column(name = "shop_uuid")
+    private UUID shopUuid;
+    private String shopName;
+
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Builder.Default
+    private List<String> tags = new ArrayList<>();
+
+    // Image keys in display order; the first one is the card thumbnail
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Builder.Default
+    private List<String> imageKeys = new ArrayList<>();
+
+    private int imageCount;
+}
@@ -0,0 +1,88 @@
+package utm.server.modules.products.cards;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import utm.server.modules.products.ProductRepository;
+import utm.server.modules.products.dto.ProductRow;
+import utm.server.modules.products.product_images.ProductImageEntity;
+import utm.server.modules.products.product_images.ProductImageService;
+import utm.server.modules.shops.ShopRepository;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Writes {@link ProductCardEntity} rows from the normalized product, shop, tag and image tables.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductCardProjector {
+
+    private final ProductCardRepository cardRepository;
+    private final ProductRepository productRepository;
+    private final ShopRepository shopRepository;
+    private final ProductImageService productImageService;
+    private final EntityManager entityManager;
+
+    /**
+     * Recomputes the cards of the given products and drops the cards of those that no longer exist.
+     */
+    @Transactional
+    public void refresh(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        List<ProductRow> rows = productRepository.findRowsByIdIn(productIds);
+        Map<Long, List<String>> tagsByProduct = productRepository.findTagPairsByProductIds(productIds).stream()
+                .collect(Collectors.groupingBy(ProductRepository.ProductTagPair::getProductId,
+                        Collectors.mapping(ProductRepository.ProductTagPair::getTag, Collectors.toList())));
+        Map<Long, List<ProductImageEntity>> imagesByProduct = productImageService.findAllByProductIds(productIds);
+        Map<Long, ProductCardEntity> existing = cardRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(ProductCardEntity::getId, Function.identity()));
+
+        Set<Long> gone = new HashSet<>(productIds);
+        for (ProductRow row : rows) {
+            gone.remove(row.id());
+            List<String> imageKeys = imagesByProduct.getOrDefault(row.id(), List.of()).stream()
+                    .map(ProductImageEntity::getKey)
+                    .toList();
+
+            ProductCardEntity card = existing.get(row.id());
+            boolean isNew = card == null;
+            if (isNew) {
+                card = new ProductCardEntity();
+                card.setId(row.id());
+            }
+            card.setUuid(row.uuid());
+            card.setTitle(row.title());
+            card.setDescription(row.description());
+            card.setPrice(row.price());
+            card.setShopId(row.shopId());
+            card.setShopUuid(row.shopUuid());
+            card.setShopName(row.shopName());
+            card.setTags(tagsByProduct.getOrDefault(row.id(), List.of()));
+            card.setImageKeys(imageKeys);
+            card.setImageCount(imageKeys.size());
+            if (isNew) {
+                // The id is assigned, so save() would merge and select first; the card is known to be new
+                entityManager.persist(card);
+            }
+        }
+        if (!gone.isEmpty()) {
+            cardRepository.deleteAllById(gone);
+        }
+    }
+
+    @Transactional
+    public void refreshShop(Long shopId) {
+        shopRepository.findRowById(shopId)
+                .ifPresent(shop -> cardRepository.updateShop(shop.id(), shop.uuid(), shop.name()));
+    }
+}
@@ -0,0 +1,56 @@
+package utm.server.modules.products.cards;
+
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface ProductCardRepository extends JpaRepository<ProductCardEntity, Long> {
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    List<ProductCardEntity> findAllByOrderByIdAsc();
+
+    List<ProductCardEntity> findByTitleOrderByIdAsc(String title);
+
+    List<ProductCardEntity> findByShopIdOrderByIdAsc(Long shopId);
+
+    List<ProductCardEntity> findByShopUuidOrderByIdAsc(UUID shopUuid);
+
+    Optional<ProductCardEntity> findByUuid(UUID uuid);
+
+    List<ProductCardEntity> findTop8ByShopIdAndIdNotOrderByIdDesc(Long shopId, Long id);
+
+    @Query("SELECT new utm.server.modules.products.cards.PriceStats(COUNT(c), MIN(c.price), MAX(c.price)) " +
+            "FROM ProductCardEntity c WHERE c.shopId = :shopId")
+    PriceStats findPriceStatsByShopId(@Param("shopId") Long shopId);
+
+    @Query(value = "SELECT tag AS tag, COUNT(*) AS count FROM product_cards c CROSS JOIN LATERAL unnest(c.tags) AS tag " +
+            "WHERE c.shop_id = :shopId GROUP BY tag ORDER BY count DESC, tag", nativeQuery = true)
+    List<TagCount> countTagsByShopId(@Param("shopId") Long shopId);
+
+    interface TagCount {
+        String getTag();
+
+        long getCount();
+    }
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ProductCardEntity c SET c.shopUuid = :shopUuid, c.shopName = :shopName WHERE c.shopId = :shopId")
+    int updateShop(@Param("shopId") Long shopId, @Param("shopUuid") UUID shopUuid, @Param("shopName") String shopName);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ProductCardEntity c WHERE NOT EXISTS (SELECT 1 FROM Product p WHERE p.id = c.id)")
+    int deleteOrphans();
+}
@@ -0,0 +1,86 @@
+package utm.server.modules.products.cards;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import utm.server.modules.products.ProductChangedEvent;
+import utm.server.modules.products.ProductRepository;
+import utm.server.modules.shops.ShopChangedEvent;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Keeps the {@code product_cards} read model in step with product and shop writes. Cards are
+ * updated before the writing transaction commits, so a listing never sees a product without
+ * its card or a stale card after the write is visible.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProductCardService {
+
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    private final ProductCardProjector projector;
+    private final ProductCardRepository cardRepository;
+    private final ProductRepository productRepository;
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        projector.refresh(List.of(event.productId()));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onShopChanged(ShopChangedEvent event) {
+        projector.refreshShop(event.shopId());
+    }
+
+    /**
+     * Builds the read model on first start, or after it was lost or left behind.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfStale() {
+        CompletableFuture.runAsync(() -> {
+                    if (cardRepository.count() != productRepository.count()) {
+                        rebuild();
+                    }
+                })
+                .exceptionally(e -> {
+                    log.error("Product card rebuild failed", e);
+                    return null;
+                });
+    }
+
+    /**
+     * Recomputes every card in id-ordered batches, one transaction per batch, then removes
+     * cards whose product is gone.
+     *
+     * @return number of cards written
+     */
+    public int rebuild() {
+        long started = System.currentTimeMillis();
+        int written = 0;
+        long lastId = 0;
+        List<Long> batch;
+        do {
+            batch = productRepository.findIdsAfter(lastId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+            if (batch.isEmpty()) {
+                break;
+            }
+            projector.refresh(batch);
+            written += batch.size();
+            lastId = batch.get(batch.size() - 1);
+        } while (batch.size() == REBUILD_BATCH_SIZE);
+
+        int removed = cardRepository.deleteOrphans();
+        log.info("Product cards rebuilt: {} written, {} removed in {} ms",
+                written, removed, System.currentTimeMillis() - started);
+        return written;
+    }
+}
@@ -0,0 +1,28 @@
+package utm.server.modules.products.cards;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the GIN index on {@code product_cards.tags} that the tag listing filters through.
+ * {@code @Index} only declares btree indexes. Hibernate renders the listing's
+ * {@code array_contains(p.tags, :tag)} as {@code tags @> array[?]} on PostgreSQL, which this
+ * index serves.
+ */
+@Component
+public class ProductCardTagIndex implements InitializingBean {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Depending on the EntityManagerFactory makes sure ddl-auto created product_cards before us
+    public ProductCardTagIndex(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_product_cards_tags ON product_cards USING gin (tags)");
+    }
+}
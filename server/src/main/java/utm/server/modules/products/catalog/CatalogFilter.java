@@ -0,0 +1,29 @@
+package utm.server.modules.products.catalog;
+
+import java.util.Set;
+
+/**
+ * Filters of a catalog query. Null fields do not filter; a product matches the tag
+ * filter when it has any of the requested tags.
+ */
+public record CatalogFilter(Set<String> tags, Long shopId, Long categoryId, Double minPrice, Double maxPrice) {
+
+    public boolean matches(CatalogRow row) {
+        if (minPrice != null && row.price() < minPrice) {
+            return false;
+        }
+        if (maxPrice != null && row.price() > maxPrice) {
+            return false;
+        }
+        if (shopId != null && row.shopId() != shopId) {
+            return false;
+        }
+        if (categoryId != null && row.categoryId() != categoryId) {
+            return false;
+        }
+        if (tags != null && !tags.isEmpty()) {
+            return row.tags().stream().anyMatch(tags::contains);
+        }
+        return true;
+    }
+}
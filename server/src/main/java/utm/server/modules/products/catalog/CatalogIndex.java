@@ -0,0 +1,266 @@
+package utm.server.modules.products.catalog;
+
+import org.springframework.stereotype.Component;
+import utm.server.modules.pagination.KeysetCursor;
+import utm.server.modules.products.ProductSort;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-optimized catalog for filter, facet and sort queries.
+ * <p>
+ * The bulk of the data lives in an immutable {@link CatalogSnapshot}. Product writes do not
+ * rebuild it: they hide the old row behind a tombstone bit and keep the new row in a small
+ * delta, which queries merge in. Once the delta grows past {@link #COMPACT_THRESHOLD} rows
+ * the snapshot is rebuilt in memory. Readers never lock; writers swap an immutable state.
+ */
+@Component
+public class CatalogIndex {
+
+    static final int COMPACT_THRESHOLD = 1024;
+
+    private record State(CatalogSnapshot base, BitSet hidden, Map<Long, CatalogRow> delta) {
+    }
+
+    private volatile State state = new State(CatalogSnapshot.EMPTY, new BitSet(), Map.of());
+    private volatile boolean ready;
+
+    // Writes made while a reload reads the database, replayed on top of what it read; null removes
+    private Map<Long, CatalogRow> pendingDuringReload;
+
+    /**
+     * Whether the catalog has been loaded once; until then it is empty, not just stale.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    public synchronized void replaceAll(Collection<CatalogRow> rows) {
+        state = new State(CatalogSnapshot.build(rows), new BitSet(), Map.of());
+        ready = true;
+    }
+
+    synchronized void beginReload() {
+        pendingDuringReload = new HashMap<>();
+    }
+
+    synchronized void completeReload(Collection<CatalogRow> rows) {
+        Map<Long, CatalogRow> pending = pendingDuringReload;
+        pendingDuringReload = null;
+        state = new State(CatalogSnapshot.build(rows), new BitSet(), Map.of());
+        if (pending != null) {
+            pending.forEach((productId, row) -> {
+                if (row != null) {
+                    upsert(row);
+                } else {
+                    remove(productId);
+                }
+            });
+        }
+        ready = true;
+    }
+
+    synchronized void abortReload() {
+        pendingDuringReload = null;
+    }
+
+    public synchronized void upsert(CatalogRow row) {
+        if (pendingDuringReload != null) {
+            pendingDuringReload.put(row.id(), row);
+        }
+        State current = state;
+        BitSet hidden = hide(current, row.id());
+        Map<Long, CatalogRow> delta = new HashMap<>(current.delta());
+        delta.put(row.id(), row);
+        publish(current.base(), hidden, delta);
+    }
+
+    public synchronized void remove(long productId) {
+        if (pendingDuringReload != null) {
+            pendingDuringReload.put(productId, null);
+        }
+        State current = state;
+        BitSet hidden = hide(current, productId);
+        Map<Long, CatalogRow> delta = new HashMap<>(current.delta());
+        delta.remove(productId);
+        publish(current.base(), hidden, delta);
+    }
+
+    public int size() {
+        State current = state;
+        return current.base().size() - current.hidden().cardinality() + current.delta().size();
+    }
+
+    /**
+     * Filters the catalog and returns one page in the given order plus facet counts.
+     *
+     * @param after cursor of the previous page, or {@code null} for the first page
+     */
+    public CatalogResult query(CatalogFilter filter, ProductSort sort, KeysetCursor after, int limit) {
+        State current = state;
+        CatalogSnapshot base = current.base();
+        BitSet matches = base.match(filter, current.hidden());
+
+        List<CatalogRow> deltaMatches = current.delta().values().stream()
+                .filter(filter::matches)
+                .toList();
+
+        Map<String, Integer> tagCounts = new HashMap<>();
+        base.tagRows().forEach((tag, rows) -> {
+            BitSet tagged = (BitSet) rows.clone();
+            tagged.and(matches);
+            int count = tagged.cardinality();
+            if (count > 0) {
+                tagCounts.put(tag, count);
+            }
+        });
+        Map<Long, Integer> shopCounts = new HashMap<>();
+        matches.stream().forEach(row -> shopCounts.merge(base.shopId(row), 1, Integer::sum));
+        for (CatalogRow row : deltaMatches) {
+            row.tags().forEach(tag -> tagCounts.merge(tag, 1, Integer::sum));
+            shopCounts.merge(row.shopId(), 1, Integer::sum);
+        }
+        shopCounts.remove(CatalogRow.NONE);
+
+        List<Entry> page = page(base, matches, deltaMatches, sort, after, limit + 1);
+        boolean hasMore = page.size() > limit;
+        if (hasMore) {
+            page = page.subList(0, limit);
+        }
+        String nextCursor = hasMore
+                ? sort.cursorOf(page.get(page.size() - 1).id(), page.get(page.size() - 1).price()).encode()
+                : null;
+
+        return new CatalogResult(
+                page.stream().map(Entry::id).toList(),
+                nextCursor,
+                matches.cardinality() + deltaMatches.size(),
+                tagCounts,
+                shopCounts);
+    }
+
+    private record Entry(long id, double price) {
+    }
+
+    /**
+     * Merges the matching snapshot rows (already in sort order) with the matching delta rows.
+     */
+    private List<Entry> page(CatalogSnapshot base, BitSet matches, List<CatalogRow> deltaMatches,
+                             ProductSort sort, KeysetCursor after, int limit) {
+        Comparator<Entry> order = comparator(sort);
+        Entry cursor = after == null ? null : new Entry(after.id(), sort.isByPrice() ? after.keyAsDouble() : 0);
+
+        List<Entry> delta = deltaMatches.stream()
+                .map(row -> new Entry(row.id(), row.price()))
+                .filter(e -> cursor == null || order.compare(e, cursor) > 0)
+                .sorted(order)
+                .toList();
+
+        List<Entry> result = new ArrayList<>(limit);
+        int deltaIndex = 0;
+        BaseCursor baseCursor = new BaseCursor(base, matches, sort, cursor);
+        Entry nextBase = baseCursor.next();
+        while (result.size() < limit && (nextBase != null || deltaIndex < delta.size())) {
+            Entry nextDelta = deltaIndex < delta.size() ? delta.get(deltaIndex) : null;
+            if (nextDelta == null || (nextBase != null && order.compare(nextBase, nextDelta) < 0)) {
+                result.add(nextBase);
+                nextBase = baseCursor.next();
+            } else {
+                result.add(nextDelta);
+                deltaIndex++;
+            }
+        }
+        return result;
+    }
+
+    private static Comparator<Entry> comparator(ProductSort sort) {
+        Comparator<Entry> byPriceAsc = Comparator.comparingDouble(Entry::price).thenComparingLong(Entry::id);
+        Comparator<Entry> byIdAsc = Comparator.comparingLong(Entry::id);
+        return switch (sort) {
+            case PRICE_ASC -> byPriceAsc;
+            case PRICE_DESC -> byPriceAsc.reversed();
+            case OLDEST -> byIdAsc;
+            case NEWEST -> byIdAsc.reversed();
+        };
+    }
+
+    /**
+     * Walks the matching snapshot rows in sort order, starting after the cursor.
+     */
+    private static final class BaseCursor {
+        private final CatalogSnapshot base;
+        private final BitSet matches;
+        private final ProductSort sort;
+        private int position;
+
+        BaseCursor(CatalogSnapshot base, BitSet matches, ProductSort sort, Entry after) {
+            this.base = base;
+            this.matches = matches;
+            this.sort = sort;
+            this.position = switch (sort) {
+                case PRICE_ASC -> after == null ? 0 : base.firstRowAfter(after.price(), after.id());
+                case PRICE_DESC -> (after == null ? base.size() : base.firstRowAfter(after.price(), after.id() - 1)) - 1;
+                case NEWEST -> after == null ? 0 : base.firstPositionBelowId(after.id());
+                case OLDEST -> (after == null ? base.size() : base.firstPositionBelowId(after.id() + 1)) - 1;
+            };
+        }
+
+        Entry next() {
+            int row = switch (sort) {
+                case PRICE_ASC -> nextAscending();
+                case PRICE_DESC -> nextDescending();
+                case NEWEST -> nextById(1);
+                case OLDEST -> nextById(-1);
+            };
+            return row < 0 ? null : new Entry(base.id(row), base.price(row));
+        }
+
+        private int nextAscending() {
+            int row = position < base.size() ? matches.nextSetBit(position) : -1;
+            position = row < 0 ? base.size() : row + 1;
+            return row;
+        }
+
+        private int nextDescending() {
+            int row = position >= 0 ? matches.previousSetBit(position) : -1;
+            position = row - 1;
+            return row;
+        }
+
+        private int nextById(int step) {
+            while (position >= 0 && position < base.size()) {
+                int row = base.rowByIdDesc(position);
+                position += step;
+                if (matches.get(row)) {
+                    return row;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static BitSet hide(State current, long productId) {
+        BitSet hidden = (BitSet) current.hidden().clone();
+        int row = current.base().rowOf(productId);
+        if (row >= 0) {
+            hidden.set(row);
+        }
+        return hidden;
+    }
+
+    private void publish(CatalogSnapshot base, BitSet hidden, Map<Long, CatalogRow> delta) {
+        if (delta.size() > COMPACT_THRESHOLD) {
+            List<CatalogRow> rows = base.rows(hidden);
+            rows.addAll(delta.values());
+            state = new State(CatalogSnapshot.build(rows), new BitSet(), Map.of());
+        } else {
+            state = new State(base, hidden, Map.copyOf(delta));
+        }
+    }
+}
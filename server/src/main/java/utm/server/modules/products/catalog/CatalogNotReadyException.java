@@ -0,0 +1,11 @@
+package utm.server.modules.products.catalog;
+
+/**
+ * Thrown by catalog queries while the first snapshot is still loading after startup.
+ */
+public class CatalogNotReadyException extends RuntimeException {
+
+    public CatalogNotReadyException() {
+        super("The catalog is still loading, try again shortly");
+    }
+}
@@ -0,0 +1,21 @@
+package utm.server.modules.products.catalog;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Answer of a catalog query: one page of product ids in the requested order plus
+ * counts over the whole filtered result.
+ *
+ * @param productIds ids of this page
+ * @param nextCursor cursor for the next page, {@code null} on the last page
+ * @param total      number of products matching the filter
+ * @param tagCounts  matching products per tag
+ * @param shopCounts matching products per shop id
+ */
+public record CatalogResult(List<Long> productIds,
+                            String nextCursor,
+                            long total,
+                            Map<String, Integer> tagCounts,
+                            Map<Long, Integer> shopCounts) {
+}
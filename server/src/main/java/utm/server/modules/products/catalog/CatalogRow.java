@@ -0,0 +1,24 @@
+package utm.server.modules.products.catalog;
+
+import utm.server.modules.products.Product;
+import utm.server.modules.products.TagEntity;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The filterable columns of one product. {@link #NONE} stands for a missing shop or category.
+ */
+public record CatalogRow(long id, double price, long shopId, long categoryId, Set<String> tags) {
+
+    public static final long NONE = -1L;
+
+    public static CatalogRow of(Product product) {
+        return new CatalogRow(
+                product.getId(),
+                product.getPrice(),
+                product.getShopEntity() != null ? product.getShopEntity().getId() : NONE,
+                product.getCategoryEntity() != null ? product.getCategoryEntity().getId() : NONE,
+                product.getTags().stream().map(TagEntity::getName).collect(Collectors.toSet()));
+    }
+}
@@ -0,0 +1,121 @@
+package utm.server.modules.products.catalog;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import utm.server.modules.pagination.CursorPage;
+import utm.server.modules.pagination.KeysetCursor;
+import utm.server.modules.products.ProductChangedEvent;
+import utm.server.modules.products.ProductRepository;
+import utm.server.modules.products.cards.ProductCardEntity;
+import utm.server.modules.products.cards.ProductCardRepository;
+import utm.server.modules.products.ProductSort;
+import utm.server.modules.products.dto.CatalogPageDto;
+import utm.server.modules.products.mapper.ProductMapper;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogService {
+
+    private final CatalogIndex catalogIndex;
+    private final ProductRepository productRepository;
+    private final ProductCardRepository productCardRepository;
+    private final ProductMapper productMapper;
+
+    /**
+     * @throws CatalogNotReadyException until the first snapshot has loaded
+     */
+    public CatalogPageDto browse(CatalogFilter filter, String sort, String cursor, Integer size) {
+        if (!catalogIndex.isReady()) {
+            throw new CatalogNotReadyException();
+        }
+        ProductSort productSort = ProductSort.fromString(sort);
+        KeysetCursor after = cursor == null || cursor.isBlank()
+                ? null
+                : KeysetCursor.decode(cursor, productSort.name());
+
+        CatalogResult result = catalogIndex.query(filter, productSort, after, CursorPage.clampSize(size));
+
+        Map<Long, ProductCardEntity> cardsById = productCardRepository.findAllById(result.productIds())
+                .stream()
+                .collect(Collectors.toMap(ProductCardEntity::getId, Function.identity()));
+        List<ProductCardEntity> ordered = result.productIds().stream()
+                .map(cardsById::get)
+                .filter(Objects::nonNull)
+                .toList();
+
+        return new CatalogPageDto(
+                new CursorPage<>(productMapper.fromCards(ordered), result.nextCursor(), result.nextCursor() != null),
+                result.total(),
+                result.tagCounts(),
+                result.shopCounts());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.type() == ProductChangedEvent.Type.DELETED) {
+            catalogIndex.remove(event.productId());
+            return;
+        }
+        productRepository.findById(event.productId())
+                .ifPresentOrElse(
+                        product -> catalogIndex.upsert(CatalogRow.of(product)),
+                        () -> catalogIndex.remove(event.productId()));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        CompletableFuture.runAsync(this::reload)
+                .exceptionally(e -> {
+                    log.error("Catalog snapshot load failed", e);
+                    return null;
+                });
+    }
+
+    /**
+     * Loads the snapshot from two narrow queries (scalar columns, then product/tag pairs)
+     * without hydrating any entity. Product changes applied while it runs are replayed on top,
+     * and one reload runs at a time.
+     */
+    public synchronized void reload() {
+        long started = System.currentTimeMillis();
+        catalogIndex.beginReload();
+        try {
+            load();
+        } catch (RuntimeException e) {
+            catalogIndex.abortReload();
+            throw e;
+        }
+        log.info("Catalog snapshot loaded with {} products in {} ms", catalogIndex.size(), System.currentTimeMillis() - started);
+    }
+
+    private void load() {
+        Map<Long, Set<String>> tagsByProduct = new HashMap<>();
+        for (ProductRepository.ProductTagPair pair : productRepository.findAllProductTagPairs()) {
+            tagsByProduct.computeIfAbsent(pair.getProductId(), id -> new HashSet<>()).add(pair.getTag());
+        }
+        List<CatalogRow> rows = productRepository.findAllCatalogColumns().stream()
+                .map(c -> new CatalogRow(
+                        c.getId(),
+                        c.getPrice(),
+                        c.getShopId() != null ? c.getShopId() : CatalogRow.NONE,
+                        c.getCategoryId() != null ? c.getCategoryId() : CatalogRow.NONE,
+                        tagsByProduct.getOrDefault(c.getId(), Set.of())))
+                .toList();
+        catalogIndex.completeReload(rows);
+    }
+}
@@ -0,0 +1,221 @@
+package utm.server.modules.products.catalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable columnar copy of the catalog. Rows are sorted by (price, id), so a price range
+ * is a contiguous row range and a price-sorted page is a walk over set bits. Tag, shop and
+ * category membership are bitsets over row positions.
+ */
+final class CatalogSnapshot {
+
+    static final CatalogSnapshot EMPTY = build(List.of());
+
+    private final long[] ids;
+    private final double[] prices;
+    private final long[] shopIds;
+    private final long[] categoryIds;
+    // Row positions ordered by id descending, for the NEWEST/OLDEST orderings
+    private final int[] rowsByIdDesc;
+    private final Map<Long, Integer> rowById;
+    private final Map<String, BitSet> tagRows;
+    private final Map<Long, BitSet> shopRows;
+    private final Map<Long, BitSet> categoryRows;
+
+    private CatalogSnapshot(int size) {
+        this.ids = new long[size];
+        this.prices = new double[size];
+        this.shopIds = new long[size];
+        this.categoryIds = new long[size];
+        this.rowsByIdDesc = new int[size];
+        this.rowById = new HashMap<>(size * 2);
+        this.tagRows = new HashMap<>();
+        this.shopRows = new HashMap<>();
+        this.categoryRows = new HashMap<>();
+    }
+
+    static CatalogSnapshot build(Collection<CatalogRow> source) {
+        List<CatalogRow> rows = new ArrayList<>(source);
+        rows.sort(Comparator.comparingDouble(CatalogRow::price).thenComparingLong(CatalogRow::id));
+
+        CatalogSnapshot snapshot = new CatalogSnapshot(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            CatalogRow row = rows.get(i);
+            snapshot.ids[i] = row.id();
+            snapshot.prices[i] = row.price();
+            snapshot.shopIds[i] = row.shopId();
+            snapshot.categoryIds[i] = row.categoryId();
+            snapshot.rowById.put(row.id(), i);
+            snapshot.shopRows.computeIfAbsent(row.shopId(), k -> new BitSet()).set(i);
+            snapshot.categoryRows.computeIfAbsent(row.categoryId(), k -> new BitSet()).set(i);
+            for (String tag : row.tags()) {
+                snapshot.tagRows.computeIfAbsent(tag, k -> new BitSet()).set(i);
+            }
+        }
+
+        Integer[] byId = new Integer[rows.size()];
+        for (int i = 0; i < byId.length; i++) {
+            byId[i] = i;
+        }
+        Arrays.sort(byId, (a, b) -> Long.compare(snapshot.ids[b], snapshot.ids[a]));
+        for (int i = 0; i < byId.length; i++) {
+            snapshot.rowsByIdDesc[i] = byId[i];
+        }
+        return snapshot;
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    long id(int row) {
+        return ids[row];
+    }
+
+    double price(int row) {
+        return prices[row];
+    }
+
+    long shopId(int row) {
+        return shopIds[row];
+    }
+
+    int rowByIdDesc(int position) {
+        return rowsByIdDesc[position];
+    }
+
+    /**
+     * @return row position of the product, or -1 when it is not in the snapshot
+     */
+    int rowOf(long id) {
+        Integer row = rowById.get(id);
+        return row != null ? row : -1;
+    }
+
+    Map<String, BitSet> tagRows() {
+        return tagRows;
+    }
+
+    /**
+     * Rows matching the filter, excluding {@code hidden} rows.
+     */
+    BitSet match(CatalogFilter filter, BitSet hidden) {
+        int from = filter.minPrice() != null ? firstRowAtLeast(filter.minPrice()) : 0;
+        int to = filter.maxPrice() != null ? firstRowAbove(filter.maxPrice()) : size();
+        BitSet result = new BitSet(size());
+        if (from >= to) {
+            return result;
+        }
+        result.set(from, to);
+
+        if (filter.tags() != null && !filter.tags().isEmpty()) {
+            BitSet anyTag = new BitSet(size());
+            for (String tag : filter.tags()) {
+                BitSet tagged = tagRows.get(tag);
+                if (tagged != null) {
+                    anyTag.or(tagged);
+                }
+            }
+            result.and(anyTag);
+        }
+        if (filter.shopId() != null) {
+            result.and(shopRows.getOrDefault(filter.shopId(), new BitSet()));
+        }
+        if (filter.categoryId() != null) {
+            result.and(categoryRows.getOrDefault(filter.categoryId(), new BitSet()));
+        }
+        result.andNot(hidden);
+        return result;
+    }
+
+    /**
+     * First row whose (price, id) sorts after the given key, for PRICE_ASC pages.
+     */
+    int firstRowAfter(double price, long id) {
+        int lo = 0;
+        int hi = size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = Double.compare(prices[mid], price);
+            if (cmp < 0 || (cmp == 0 && ids[mid] <= id)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * First position in id-descending order whose id is below {@code id}, for NEWEST pages.
+     */
+    int firstPositionBelowId(long id) {
+        int lo = 0;
+        int hi = size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ids[rowsByIdDesc[mid]] >= id) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Rebuilds row objects for every row not in {@code hidden}; used when compacting.
+     */
+    List<CatalogRow> rows(BitSet hidden) {
+        List<Set<String>> tags = new ArrayList<>(size());
+        for (int i = 0; i < size(); i++) {
+            tags.add(new HashSet<>());
+        }
+        tagRows.forEach((tag, rows) -> rows.stream().forEach(row -> tags.get(row).add(tag)));
+
+        List<CatalogRow> result = new ArrayList<>(size());
+        for (int i = 0; i < size(); i++) {
+            if (!hidden.get(i)) {
+                result.add(new CatalogRow(ids[i], prices[i], shopIds[i], categoryIds[i], tags.get(i)));
+            }
+        }
+        return result;
+    }
+
+    private int firstRowAtLeast(double price) {
+        int lo = 0;
+        int hi = size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (prices[mid] < price) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private int firstRowAbove(double price) {
+        int lo = 0;
+        int hi = size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (prices[mid] <= price) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,14 @@
+package utm.server.modules.products.dto;
+
+import utm.server.modules.pagination.CursorPage;
+
+import java.util.Map;
+
+/**
+ * A filtered catalog page with counts over all matching products.
+ */
+public record CatalogPageDto(CursorPage<ProductDto> page,
+                             long total,
+                             Map<String, Integer> tagCounts,
+                             Map<Long, Integer> shopCounts) {
+}
@@ -10,5 +10,7 @@ public record ProductCreationDto(
                 Long shopId,
                 List<ImageUploadResponse> productImagesTemp,
                 List<String> tags,
-                double price) {
+                double price,
+                // Units in stock, null when not tracked; left unchanged by an update when null
+                Integer stock) {
 }
@@ -0,0 +1,32 @@
+package utm.server.modules.products.dto;
+
+import utm.server.modules.products.Product;
+
+import java.util.UUID;
+
+/**
+ * Scalar columns of a product and its shop, selected with a constructor expression so
+ * read paths do not hydrate (and dirty-check) managed entities.
+ */
+public record ProductRow(Long id,
+                         UUID uuid,
+                         String title,
+                         String description,
+                         double price,
+                         Long shopId,
+                         UUID shopUuid,
+                         String shopName) {
+
+    public static ProductRow of(Product product) {
+        var shop = product.getShopEntity();
+        return new ProductRow(
+                product.getId(),
+                product.getUuid(),
+                product.getTitle(),
+                product.getDescription(),
+                product.getPrice(),
+                shop != null ? shop.getId() : null,
+                shop != null ? shop.getUuid() : null,
+                shop != null ? shop.getName() : null);
+    }
+}
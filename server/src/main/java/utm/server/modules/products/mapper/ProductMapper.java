@@ -4,44 +4,97 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 import utm.server.modules.image.ImageService;
 import utm.server.modules.products.Product;
+import utm.server.modules.products.ProductRepository;
 import utm.server.modules.products.TagEntity;
+import utm.server.modules.products.cards.ProductCardEntity;
 import utm.server.modules.products.dto.ProductDto;
+import utm.server.modules.products.dto.ProductRow;
 import utm.server.modules.products.product_images.ProductImageEntity;
 import utm.server.modules.products.product_images.ProductImageService;
-import utm.server.modules.shops.ShopEntity;
 
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Component
 @RequiredArgsConstructor
 public class ProductMapper {
     private final ImageService imageService;
     private final ProductImageService productImageService;
+    private final ProductRepository productRepository;
 
     public ProductDto toDto(final Product product) {
+        return toDto(product, productImageService.findAllByProductId(product.getId()));
+    }
+
+    public ProductDto fromRow(final ProductRow row) {
+        return fromRows(List.of(row)).get(0);
+    }
+
+    /**
+     * Maps projected rows, loading tags and images for the whole page with one query each.
+     */
+    public List<ProductDto> fromRows(final List<ProductRow> rows) {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        List<Long> ids = rows.stream().map(ProductRow::id).toList();
+        Map<Long, List<String>> tagsByProduct = productRepository.findTagPairsByProductIds(ids).stream()
+                .collect(Collectors.groupingBy(ProductRepository.ProductTagPair::getProductId,
+                        Collectors.mapping(ProductRepository.ProductTagPair::getTag, Collectors.toList())));
+        Map<Long, List<ProductImageEntity>> imagesByProduct = productImageService.findAllByProductIds(ids);
+
+        return rows.stream()
+                .map(r -> toDto(r,
+                        tagsByProduct.getOrDefault(r.id(), List.of()),
+                        keys(imagesByProduct.getOrDefault(r.id(), List.of()))))
+                .toList();
+    }
+
+    /**
+     * Maps catalog cards. A card already carries tags and image keys, so no queries run.
+     */
+    public List<ProductDto> fromCards(final List<ProductCardEntity> cards) {
+        return cards.stream()
+                .map(c -> toDto(
+                        new ProductRow(c.getId(), c.getUuid(), c.getTitle(), c.getDescription(), c.getPrice(),
+                                c.getShopId(), c.getShopUuid(), c.getShopName()),
+                        c.getTags(),
+                        c.getImageKeys()))
+                .toList();
+    }
+
+    private ProductDto toDto(final Product product, final List<ProductImageEntity> imageEntities) {
+        return toDto(ProductRow.of(product),
+                product.getTags().stream().map(TagEntity::getName).toList(),
+                keys(imageEntities));
+    }
+
+    private static List<String> keys(final List<ProductImageEntity> imageEntities) {
+        return imageEntities.stream().map(ProductImageEntity::getKey).toList();
+    }
 
-        ShopEntity shop = product.getShopEntity();
-        List<ProductImageEntity> imageEntities = productImageService.findAllByProductId(product.getId());
+    private ProductDto toDto(final ProductRow row, final List<String> tags, final List<String> imageKeys) {
 
         ProductDto.ProductDtoBuilder builder = ProductDto.builder()
-                .title(product.getTitle())
-                .description(product.getDescription())
-                .price(product.getPrice())
-                .id(product.getId())
-                .uuid(product.getUuid())
-                .tags(product.getTags().stream().map(TagEntity::getName).toList())
-                .imageLinks(imageEntities
+                .title(row.title())
+                .description(row.description())
+                .price(row.price())
+                .id(row.id())
+                .uuid(row.uuid())
+                .tags(tags)
+                .imageLinks(imageKeys
                         .stream()
-                        .map(i->imageService.getPermanentLink(i.getKey()))
+                        .map(imageService::getPermanentLink)
                         .toList());
 
-        if (shop != null) {
-            builder.shopId(shop.getId());
-            builder.shopUuid(shop.getUuid());
+        if (row.shopId() != null) {
+            builder.shopId(row.shopId());
+            builder.shopUuid(row.shopUuid());
             builder.shop(ProductDto.ShopDto.builder()
-                    .id(shop.getId())
-                    .uuid(shop.getUuid())
-                    .name(shop.getName())
+                    .id(row.shopId())
+                    .uuid(row.shopUuid())
+                    .name(row.shopName())
                     .build());
         }
 
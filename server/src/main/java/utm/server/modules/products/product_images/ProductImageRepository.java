@@ -3,9 +3,11 @@ package utm.server.modules.products.product_images;
 import org.springframework.data.jpa.repository.JpaRepository;
 import utm.server.modules.products.Product;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface ProductImageRepository extends JpaRepository<ProductImageEntity, Long> {
     List<ProductImageEntity> findAllByProductIdOrderByOrderNumberAsc(Long id);
+    List<ProductImageEntity> findAllByProductIdInOrderByOrderNumberAsc(Collection<Long> ids);
     void deleteAllByProduct(Product product);
 }
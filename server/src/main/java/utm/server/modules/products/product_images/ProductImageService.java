@@ -3,9 +3,14 @@ package utm.server.modules.products.product_images;
 import org.springframework.stereotype.Service;
 import utm.server.modules.image.dto.ImageUploadResponse;
 import utm.server.modules.products.Product;
+import utm.server.modules.products.ProductRepository;
 import lombok.RequiredArgsConstructor;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -31,6 +36,28 @@ public class ProductImageService {
         return repository.findAllByProductIdOrderByOrderNumberAsc(productId);
     }
 
+    /**
+     * Loads the images of several products with one query per {@link ProductRepository#IDS_PER_QUERY} ids.
+     *
+     * @return images grouped by product id, each list ordered by {@code orderNumber}
+     */
+    public Map<Long, List<ProductImageEntity>> findAllByProductIds(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return Map.of();
+        }
+        List<Long> ids = List.copyOf(productIds);
+        Map<Long, List<ProductImageEntity>> imagesByProduct = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += ProductRepository.IDS_PER_QUERY) {
+            // A product's images all come from the same slice, so each list stays in order
+            repository.findAllByProductIdInOrderByOrderNumberAsc(
+                            ids.subList(from, Math.min(from + ProductRepository.IDS_PER_QUERY, ids.size())))
+                    .forEach(image -> imagesByProduct
+                            .computeIfAbsent(image.getProduct().getId(), id -> new ArrayList<>())
+                            .add(image));
+        }
+        return imagesByProduct;
+    }
+
     public void deleteAllByProduct(Product product) {
         repository.deleteAllByProduct(product);
     }
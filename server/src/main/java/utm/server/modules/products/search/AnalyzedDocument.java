@@ -0,0 +1,37 @@
+package utm.server.modules.products.search;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A document reduced to field-weighted term frequencies, as stored in the index.
+ * Matches in the title count more than matches in the description.
+ */
+record AnalyzedDocument(long productId, Map<String, Float> termFrequencies, float length) {
+
+    static final float TITLE_WEIGHT = 3.0f;
+    static final float TAG_WEIGHT = 2.0f;
+    static final float SHOP_WEIGHT = 1.5f;
+    static final float DESCRIPTION_WEIGHT = 1.0f;
+
+    static AnalyzedDocument of(SearchDocument document) {
+        Map<String, Float> frequencies = new HashMap<>();
+        float length = 0;
+        length += addField(frequencies, document.title(), TITLE_WEIGHT);
+        length += addField(frequencies, document.description(), DESCRIPTION_WEIGHT);
+        length += addField(frequencies, document.shopName(), SHOP_WEIGHT);
+        for (String tag : document.tags()) {
+            length += addField(frequencies, tag, TAG_WEIGHT);
+        }
+        return new AnalyzedDocument(document.productId(), frequencies, length);
+    }
+
+    private static float addField(Map<String, Float> frequencies, String text, float weight) {
+        float added = 0;
+        for (String token : TextAnalyzer.tokenize(text)) {
+            frequencies.merge(token, weight, Float::sum);
+            added += weight;
+        }
+        return added;
+    }
+}
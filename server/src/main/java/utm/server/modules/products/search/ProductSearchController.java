@@ -0,0 +1,30 @@
+package utm.server.modules.products.search;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import utm.server.modules.products.dto.ProductDto;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/products/search")
+@RequiredArgsConstructor
+public class ProductSearchController {
+
+    private final ProductSearchService productSearchService;
+
+    @GetMapping
+    public List<ProductDto> search(@RequestParam("q") String query,
+                                   @RequestParam(required = false) Integer size) {
+        return productSearchService.search(query, size);
+    }
+
+    @PostMapping("/reindex")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> reindex() {
+        productSearchService.rebuild();
+        return ResponseEntity.ok("Search index rebuilt");
+    }
+}
@@ -0,0 +1,229 @@
+package utm.server.modules.products.search;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over products, ranked with BM25. Query terms that are not in
+ * the vocabulary (typos, plurals) are expanded to the closest indexed terms by trigram
+ * similarity, at a lower weight than exact matches.
+ * <p>
+ * Reads share a lock; single-document writes and rebuilds take it exclusively. Writes that
+ * arrive while a rebuild is loading are remembered and replayed on top of the rebuilt data.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double MIN_SIMILARITY = 0.4;
+    private static final double FUZZY_PENALTY = 0.7;
+    private static final int MAX_EXPANSIONS = 3;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Map<Long, Float>> postings = new HashMap<>();
+    private final Map<Long, AnalyzedDocument> documents = new HashMap<>();
+    private final Map<String, Set<String>> termsByTrigram = new HashMap<>();
+    private double totalLength;
+
+    // Writes seen during a rebuild; a null value marks a removal
+    private Map<Long, AnalyzedDocument> pendingDuringRebuild;
+
+    public void upsert(SearchDocument document) {
+        AnalyzedDocument analyzed = AnalyzedDocument.of(document);
+        lock.writeLock().lock();
+        try {
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.put(analyzed.productId(), analyzed);
+            }
+            removeInternal(analyzed.productId());
+            addInternal(analyzed);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long productId) {
+        lock.writeLock().lock();
+        try {
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.put(productId, null);
+            }
+            removeInternal(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void beginRebuild() {
+        lock.writeLock().lock();
+        try {
+            pendingDuringRebuild = new HashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void completeRebuild(Collection<AnalyzedDocument> rebuilt) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            termsByTrigram.clear();
+            totalLength = 0;
+            rebuilt.forEach(this::addInternal);
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.forEach((productId, document) -> {
+                    removeInternal(productId);
+                    if (document != null) {
+                        addInternal(document);
+                    }
+                });
+            }
+            pendingDuringRebuild = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void abortRebuild() {
+        lock.writeLock().lock();
+        try {
+            pendingDuringRebuild = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<SearchHit> search(String query, int limit) {
+        Set<String> queryTerms = new LinkedHashSet<>(TextAnalyzer.tokenize(query));
+        if (queryTerms.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            int documentCount = documents.size();
+            if (documentCount == 0) {
+                return List.of();
+            }
+            double averageLength = totalLength / documentCount;
+
+            Map<Long, Double> scores = new HashMap<>();
+            for (String queryTerm : queryTerms) {
+                expand(queryTerm).forEach((term, weight) -> {
+                    Map<Long, Float> posting = postings.get(term);
+                    int df = posting.size();
+                    double idf = Math.log(1 + (documentCount - df + 0.5) / (df + 0.5));
+                    posting.forEach((productId, tf) -> {
+                        double length = documents.get(productId).length();
+                        double norm = tf + K1 * (1 - B + B * length / averageLength);
+                        scores.merge(productId, weight * idf * tf * (K1 + 1) / norm, Double::sum);
+                    });
+                });
+            }
+
+            return scores.entrySet().stream()
+                    .map(e -> new SearchHit(e.getKey(), e.getValue()))
+                    .sorted(Comparator.comparingDouble(SearchHit::score).reversed()
+                            .thenComparingLong(SearchHit::productId))
+                    .limit(limit)
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Indexed terms a query term should match, with their weight: the term itself
+     * plus the most similar terms by trigram Jaccard similarity.
+     */
+    private Map<String, Double> expand(String queryTerm) {
+        Map<String, Double> expansions = new HashMap<>();
+        if (postings.containsKey(queryTerm)) {
+            expansions.put(queryTerm, 1.0);
+        }
+
+        Set<String> queryGrams = TextAnalyzer.trigrams(queryTerm);
+        Map<String, Integer> shared = new HashMap<>();
+        for (String gram : queryGrams) {
+            for (String term : termsByTrigram.getOrDefault(gram, Set.of())) {
+                shared.merge(term, 1, Integer::sum);
+            }
+        }
+
+        List<Map.Entry<String, Double>> candidates = new ArrayList<>();
+        shared.forEach((term, common) -> {
+            if (term.equals(queryTerm)) {
+                return;
+            }
+            int union = queryGrams.size() + TextAnalyzer.trigrams(term).size() - common;
+            double similarity = (double) common / union;
+            if (similarity >= MIN_SIMILARITY) {
+                candidates.add(Map.entry(term, similarity));
+            }
+        });
+        candidates.sort(Map.Entry.<String, Double>comparingByValue().reversed());
+        candidates.stream()
+                .limit(MAX_EXPANSIONS)
+                .forEach(c -> expansions.put(c.getKey(), c.getValue() * FUZZY_PENALTY));
+        return expansions;
+    }
+
+    private void addInternal(AnalyzedDocument document) {
+        documents.put(document.productId(), document);
+        totalLength += document.length();
+        document.termFrequencies().forEach((term, tf) -> {
+            Map<Long, Float> posting = postings.get(term);
+            if (posting == null) {
+                posting = new HashMap<>();
+                postings.put(term, posting);
+                for (String gram : TextAnalyzer.trigrams(term)) {
+                    termsByTrigram.computeIfAbsent(gram, g -> new HashSet<>()).add(term);
+                }
+            }
+            posting.put(document.productId(), tf);
+        });
+    }
+
+    private void removeInternal(long productId) {
+        AnalyzedDocument document = documents.remove(productId);
+        if (document == null) {
+            return;
+        }
+        totalLength -= document.length();
+        for (String term : document.termFrequencies().keySet()) {
+            Map<Long, Float> posting = postings.get(term);
+            posting.remove(productId);
+            if (posting.isEmpty()) {
+                postings.remove(term);
+                for (String gram : TextAnalyzer.trigrams(term)) {
+                    Set<String> terms = termsByTrigram.get(gram);
+                    terms.remove(term);
+                    if (terms.isEmpty()) {
+                        termsByTrigram.remove(gram);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package utm.server.modules.products.search;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import utm.server.modules.pagination.CursorPage;
+import utm.server.modules.products.Product;
+import utm.server.modules.products.ProductChangedEvent;
+import utm.server.modules.products.ProductRepository;
+import utm.server.modules.products.cards.ProductCardEntity;
+import utm.server.modules.products.cards.ProductCardRepository;
+import utm.server.modules.products.dto.ProductDto;
+import utm.server.modules.products.mapper.ProductMapper;
+import utm.server.modules.shops.ShopChangedEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductSearchService {
+
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    private final ProductSearchIndex index;
+    private final ProductRepository productRepository;
+    private final ProductCardRepository productCardRepository;
+    private final ProductMapper productMapper;
+
+    public List<ProductDto> search(String query, Integer size) {
+        List<SearchHit> hits = index.search(query, CursorPage.clampSize(size));
+        if (hits.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, ProductCardEntity> cardsById = productCardRepository.findAllById(hits.stream().map(SearchHit::productId).toList())
+                .stream()
+                .collect(Collectors.toMap(ProductCardEntity::getId, Function.identity()));
+        List<ProductCardEntity> ranked = hits.stream()
+                .map(hit -> cardsById.get(hit.productId()))
+                .filter(Objects::nonNull)
+                .toList();
+        return productMapper.fromCards(ranked);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.type() == ProductChangedEvent.Type.DELETED) {
+            index.remove(event.productId());
+            return;
+        }
+        productRepository.findById(event.productId())
+                .ifPresentOrElse(
+                        product -> index.upsert(SearchDocument.of(product)),
+                        () -> index.remove(event.productId()));
+    }
+
+    /**
+     * The shop name is indexed with each product, so renaming a shop reindexes its products.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onShopChanged(ShopChangedEvent event) {
+        productRepository.findWithTagsByShopEntity_Id(event.shopId())
+                .forEach(product -> index.upsert(SearchDocument.of(product)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        CompletableFuture.runAsync(this::rebuild)
+                .exceptionally(e -> {
+                    log.error("Product search index rebuild failed", e);
+                    return null;
+                });
+    }
+
+    /**
+     * Reloads the whole index. Products are read in id order in batches, and each batch is
+     * analyzed on the common pool while the next one is being read. Rebuilds run one at a
+     * time, since each one collects the writes made while it loads.
+     */
+    public synchronized void rebuild() {
+        long started = System.currentTimeMillis();
+        index.beginRebuild();
+        try {
+            List<CompletableFuture<List<AnalyzedDocument>>> batches = new ArrayList<>();
+            long lastId = 0;
+            List<Product> batch;
+            do {
+                batch = productRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                List<SearchDocument> documents = batch.stream().map(SearchDocument::of).toList();
+                batches.add(CompletableFuture.supplyAsync(
+                        () -> documents.stream().map(AnalyzedDocument::of).toList()));
+                lastId = batch.get(batch.size() - 1).getId();
+            } while (batch.size() == REBUILD_BATCH_SIZE);
+
+            List<AnalyzedDocument> analyzed = batches.stream()
+                    .map(CompletableFuture::join)
+                    .flatMap(List::stream)
+                    .toList();
+            index.completeRebuild(analyzed);
+            log.info("Product search index rebuilt with {} products in {} ms",
+                    analyzed.size(), System.currentTimeMillis() - started);
+        } catch (RuntimeException e) {
+            index.abortRebuild();
+            throw e;
+        }
+    }
+}
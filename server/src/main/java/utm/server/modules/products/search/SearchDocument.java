@@ -0,0 +1,21 @@
+package utm.server.modules.products.search;
+
+import utm.server.modules.products.Product;
+import utm.server.modules.products.TagEntity;
+
+import java.util.List;
+
+/**
+ * Searchable fields of one product.
+ */
+public record SearchDocument(long productId, String title, String description, List<String> tags, String shopName) {
+
+    public static SearchDocument of(Product product) {
+        return new SearchDocument(
+                product.getId(),
+                product.getTitle(),
+                product.getDescription(),
+                product.getTags().stream().map(TagEntity::getName).toList(),
+                product.getShopEntity() != null ? product.getShopEntity().getName() : null);
+    }
+}
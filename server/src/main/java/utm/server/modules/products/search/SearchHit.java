@@ -0,0 +1,4 @@
+package utm.server.modules.products.search;
+
+public record SearchHit(long productId, double score) {
+}
@@ -0,0 +1,11 @@
+package utm.server.modules.products.stock;
+
+/**
+ * Thrown when a seller sets a stock that cannot be stored, such as a negative one.
+ */
+public class InvalidStockException extends RuntimeException {
+
+    public InvalidStockException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,107 @@
+package utm.server.modules.products.stock;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Product stock, changed only with conditional updates: a reservation takes units when enough
+ * are left, in one statement for all lines, instead of reading the stock and writing it back.
+ * Concurrent checkouts of the same product queue on its row lock for as long as the winner's
+ * transaction takes to commit, and the losers see the new stock and fail cleanly.
+ * Products whose stock is {@code null} are not tracked and never run out.
+ * <p>
+ * Both statements lock their rows first, in id order, in a {@code locked} CTE. The order an
+ * {@code UPDATE ... FROM} reaches its rows in is up to the planner, so without it two
+ * multi-line checkouts sharing products could lock them in opposite orders and deadlock.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductStockStore {
+
+    // The outer select sees stock as it was before the update, which is enough to tell tracked
+    // products from untracked ones
+    private static final String RESERVE = """
+            WITH wanted AS (
+                SELECT * FROM unnest(CAST(? AS bigint[]), CAST(? AS int[])) AS w(product_id, quantity)),
+            locked AS (
+                SELECT id FROM products WHERE id IN (SELECT product_id FROM wanted) ORDER BY id FOR UPDATE),
+            taken AS (
+                UPDATE products p SET stock = p.stock - w.quantity
+                FROM wanted w JOIN locked l ON l.id = w.product_id
+                WHERE p.id = l.id AND p.stock >= w.quantity
+                RETURNING p.id)
+            SELECT w.product_id FROM wanted w JOIN products p ON p.id = w.product_id
+            WHERE p.stock IS NOT NULL AND w.product_id NOT IN (SELECT id FROM taken)""";
+
+    private static final String RELEASE = """
+            WITH wanted AS (
+                SELECT * FROM unnest(CAST(? AS bigint[]), CAST(? AS int[])) AS w(product_id, quantity)),
+            locked AS (
+                SELECT id FROM products WHERE id IN (SELECT product_id FROM wanted) ORDER BY id FOR UPDATE)
+            UPDATE products p SET stock = p.stock + w.quantity
+            FROM wanted w JOIN locked l ON l.id = w.product_id
+            WHERE p.id = l.id AND p.stock IS NOT NULL""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Takes {@code quantities} (units per product id) from stock. Must run in the checkout
+     * transaction: when any line is short, the exception rolls back the lines already taken.
+     *
+     * @throws StockUnavailableException listing every line that is short
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reserve(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        Long[] productIds = quantities.keySet().toArray(Long[]::new);
+        List<Long> shortIds = jdbcTemplate.queryForList(RESERVE, Long.class,
+                productIds, quantitiesOf(productIds, quantities));
+        if (shortIds.isEmpty()) {
+            return;
+        }
+        // A fresh statement reads the stock as it is now, after any checkout we waited for
+        List<StockShortage> shortages = jdbcTemplate.query(
+                "SELECT id, stock FROM products WHERE id = ANY(CAST(? AS bigint[])) ORDER BY id",
+                (rs, i) -> new StockShortage(rs.getLong(1), quantities.get(rs.getLong(1)), Math.max(rs.getInt(2), 0)),
+                (Object) shortIds.toArray(Long[]::new));
+        throw new StockUnavailableException(shortages);
+    }
+
+    /**
+     * Puts the units of a cancelled or deleted order back.
+     */
+    public void release(Map<Long, Integer> quantities) {
+        apply(RELEASE, quantities);
+    }
+
+    /**
+     * Sets the stock of a product, {@code null} to stop tracking it.
+     */
+    public void set(Long productId, Integer stock) {
+        jdbcTemplate.update("UPDATE products SET stock = ? WHERE id = ?", stock, productId);
+    }
+
+    private void apply(String sql, Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        Long[] productIds = quantities.keySet().toArray(Long[]::new);
+        jdbcTemplate.update(sql, productIds, quantitiesOf(productIds, quantities));
+    }
+
+    private static Integer[] quantitiesOf(Long[] productIds, Map<Long, Integer> quantities) {
+        Integer[] units = new Integer[productIds.length];
+        for (int i = 0; i < productIds.length; i++) {
+            units[i] = quantities.get(productIds[i]);
+        }
+        return units;
+    }
+}
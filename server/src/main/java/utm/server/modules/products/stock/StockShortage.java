@@ -0,0 +1,8 @@
+package utm.server.modules.products.stock;
+
+/**
+ * A checkout line that could not be reserved: {@code available} units were left of the
+ * {@code requested} ones.
+ */
+public record StockShortage(Long productId, int requested, int available) {
+}
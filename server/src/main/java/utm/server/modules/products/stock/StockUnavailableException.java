@@ -0,0 +1,21 @@
+package utm.server.modules.products.stock;
+
+import java.util.List;
+
+/**
+ * Thrown when some lines of a checkout are sold out; the transaction that reserved the other
+ * lines rolls back with it.
+ */
+public class StockUnavailableException extends RuntimeException {
+
+    private final List<StockShortage> shortages;
+
+    public StockUnavailableException(List<StockShortage> shortages) {
+        super("Not enough stock for products " + shortages.stream().map(StockShortage::productId).toList());
+        this.shortages = List.copyOf(shortages);
+    }
+
+    public List<StockShortage> getShortages() {
+        return shortages;
+    }
+}
@@ -0,0 +1,7 @@
+package utm.server.modules.shops;
+
+/**
+ * Published after a shop's own fields (name, description, images) change.
+ */
+public record ShopChangedEvent(Long shopId) {
+}
@@ -1,8 +1,15 @@
 package utm.server.modules.shops;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import utm.server.modules.conditional.ConditionalResponses;
+import utm.server.modules.conditional.VersionStamp;
+import utm.server.modules.idempotency.Idempotent;
+import utm.server.modules.pagination.CursorPage;
+import utm.server.modules.products.ProductListingScope;
 import utm.server.modules.products.ProductService;
 import utm.server.modules.products.dto.ProductDto;
 import utm.server.modules.shops.dto.ShopCreationRequestDTO;
@@ -19,14 +26,20 @@ public class ShopController {
     private final ShopService shopService;
     private final ProductService productService;
     private final ShopMapper shopMapper;
+    private final ConditionalResponses conditionalResponses;
+    private final ShopDirectory shopDirectory;
 
     @Autowired
-    public ShopController(ShopService shopService, ProductService productService, ShopMapper shopMapper) {
+    public ShopController(ShopService shopService, ProductService productService, ShopMapper shopMapper,
+                          ConditionalResponses conditionalResponses, ShopDirectory shopDirectory) {
         this.shopService = shopService;
         this.productService = productService;
         this.shopMapper = shopMapper;
+        this.conditionalResponses = conditionalResponses;
+        this.shopDirectory = shopDirectory;
     }
 
+    @Idempotent
     @PostMapping("/addshop")
     public ShopDto addShop(@RequestBody ShopCreationRequestDTO shopRequest,
                            @AuthenticationPrincipal UserSecurityPrincipal user) {
@@ -48,39 +61,55 @@ public class ShopController {
         }
     }
 
+    /**
+     * @deprecated returns every shop, use the paginated {@code GET /api/shops/directory} instead
+     */
+    @Deprecated
     @GetMapping("/")
-    public List<ShopDto> getAllShops() {
-        return shopService.getAllShops()
-                .stream()
-                .map(shopMapper::toDto)
-                .toList();
+    public ResponseEntity<List<ShopDto>> getAllShops(WebRequest request) {
+        return conditionalResponses.respond(request, List.of(shopService.shopsVersion()),
+                () -> shopMapper.fromRows(shopService.getAllShops()));
+    }
+
+    @GetMapping("/directory")
+    public CursorPage<ShopDto> getShopDirectory(@RequestParam(required = false) String sort,
+                                                @RequestParam(required = false) String cursor,
+                                                @RequestParam(required = false) Integer size) {
+        return shopDirectory.page(sort, cursor, size);
     }
 
     @GetMapping("/name")
-    public List<ShopDto> getShopsByName(@RequestParam String name) {
-        return shopService.getShopsByName(name)
-                .stream()
-                .map(shopMapper::toDto)
-                .toList();
+    public ResponseEntity<List<ShopDto>> getShopsByName(@RequestParam String name, WebRequest request) {
+        return conditionalResponses.respond(request, List.of(shopService.shopsVersionByName(name)),
+                () -> shopMapper.fromRows(shopService.getShopsByName(name)));
     }
 
     @GetMapping("/my-shops")
-    public List<ShopDto> getMyShops(@AuthenticationPrincipal UserSecurityPrincipal user) {
-        return shopService.getShopsByUserId(user.getId())
-                .stream()
-                .map(shopMapper::toDto)
-                .toList();
+    public ResponseEntity<List<ShopDto>> getMyShops(@AuthenticationPrincipal UserSecurityPrincipal user,
+                                                    WebRequest request) {
+        return conditionalResponses.respond(request, List.of(shopService.shopsVersionByUserId(user.getId())),
+                () -> shopMapper.fromRows(shopService.getShopsByUserId(user.getId())));
     }
 
     @GetMapping("/{shopId}")
-    public ShopDto getShopById(@PathVariable String shopId) {
+    public ResponseEntity<ShopDto> getShopById(@PathVariable String shopId, WebRequest request) {
         try {
             java.util.UUID uuid = java.util.UUID.fromString(shopId);
-            return shopMapper.toDto(shopService.getShopByUuid(uuid));
+            VersionStamp version = shopService.shopVersion(uuid);
+            if (version.isEmpty()) {
+                throw new utm.server.except.ResourceNotFoundException("Shop not found with uuid: " + uuid);
+            }
+            return conditionalResponses.respond(request, List.of(version),
+                    () -> shopMapper.fromRow(shopService.getShopRowByUuid(uuid)));
         } catch (IllegalArgumentException e) {
              try {
                 Long id = Long.parseLong(shopId);
-                return shopMapper.toDto(shopService.getShopById(id));
+                VersionStamp version = shopService.shopVersion(id);
+                if (version.isEmpty()) {
+                    throw new utm.server.except.ResourceNotFoundException("Shop not found with id: " + id);
+                }
+                return conditionalResponses.respond(request, List.of(version),
+                        () -> shopMapper.fromRow(shopService.getShopRowById(id)));
             } catch (NumberFormatException nfe) {
                 throw new utm.server.except.ResourceNotFoundException("Invalid Shop ID format");
             }
@@ -88,17 +117,45 @@ public class ShopController {
     }
 
     @GetMapping("/{shopId}/products")
-    public List<ProductDto> getProductsByShop(@PathVariable String shopId) {
+    public ResponseEntity<List<ProductDto>> getProductsByShop(@PathVariable String shopId, WebRequest request) {
          try {
             java.util.UUID uuid = java.util.UUID.fromString(shopId);
-            return productService.findProductsByShopUuid(uuid);
+            return conditionalResponses.respond(request, productService.shopProductsVersion(uuid),
+                    () -> productService.findProductsByShopUuid(uuid));
         } catch (IllegalArgumentException e) {
              try {
                 Long id = Long.parseLong(shopId);
-                return productService.findProductsByShopId(id);
+                return conditionalResponses.respond(request, productService.shopProductsVersion(id),
+                        () -> productService.findProductsByShopId(id));
+            } catch (NumberFormatException nfe) {
+                throw new utm.server.except.ResourceNotFoundException("Invalid Shop ID format");
+            }
+        }
+    }
+
+    @GetMapping("/{shopId}/products/page")
+    public ResponseEntity<CursorPage<ProductDto>> getProductsPageByShop(@PathVariable String shopId,
+                                                                        @RequestParam(required = false) String cursor,
+                                                                        @RequestParam(required = false) Integer size,
+                                                                        @RequestParam(required = false) String sort,
+                                                                        WebRequest request) {
+        ProductListingScope scope;
+        List<VersionStamp> version;
+        try {
+            java.util.UUID uuid = java.util.UUID.fromString(shopId);
+            scope = ProductListingScope.shop(uuid);
+            version = productService.shopProductsVersion(uuid);
+        } catch (IllegalArgumentException e) {
+            try {
+                Long id = Long.parseLong(shopId);
+                scope = ProductListingScope.shop(id);
+                version = productService.shopProductsVersion(id);
             } catch (NumberFormatException nfe) {
                 throw new utm.server.except.ResourceNotFoundException("Invalid Shop ID format");
             }
         }
+        ProductListingScope pageScope = scope;
+        return conditionalResponses.respond(request, version,
+                () -> productService.findProductsPage(pageScope, sort, cursor, size));
     }
 }
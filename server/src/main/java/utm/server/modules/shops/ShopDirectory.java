@@ -0,0 +1,103 @@
+package utm.server.modules.shops;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import utm.server.modules.pagination.CursorPage;
+import utm.server.modules.pagination.KeysetCursor;
+import utm.server.modules.products.ProductRepository;
+import utm.server.modules.shops.dto.ShopDto;
+import utm.server.modules.shops.dto.ShopMapper;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * The landing-page shop directory. All shops are mapped (links signed in one batch) and sorted
+ * in every {@link ShopSort} once, then pages are cut from memory until the short TTL runs out
+ * or a shop is added or edited. Product counts may lag by up to the TTL.
+ */
+@Component
+public class ShopDirectory {
+
+    private static final String ALL = "all";
+
+    private final ShopRepository shopRepository;
+    private final ProductRepository productRepository;
+    private final ShopMapper shopMapper;
+    private final LoadingCache<String, Map<ShopSort, List<ShopDto>>> cache;
+
+    public ShopDirectory(ShopRepository shopRepository,
+                         ProductRepository productRepository,
+                         ShopMapper shopMapper,
+                         @Value("${shops.directory.ttl:PT30S}") Duration ttl,
+                         MeterRegistry meterRegistry) {
+        this.shopRepository = shopRepository;
+        this.productRepository = productRepository;
+        this.shopMapper = shopMapper;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build(key -> load());
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "shops.directory");
+    }
+
+    public CursorPage<ShopDto> page(String sort, String cursor, Integer size) {
+        ShopSort shopSort = ShopSort.fromString(sort);
+        int pageSize = CursorPage.clampSize(size);
+        List<ShopDto> sorted = cache.get(ALL).get(shopSort);
+
+        int from = 0;
+        if (cursor != null && !cursor.isBlank()) {
+            KeysetCursor after = KeysetCursor.decode(cursor, shopSort.name());
+            from = firstAfter(sorted, shopSort.probe(after), shopSort);
+        }
+        List<ShopDto> rows = sorted.subList(from, Math.min(sorted.size(), from + pageSize + 1));
+        return CursorPage.of(rows, pageSize, shopSort::cursorOf, Function.identity());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onShopChanged(ShopChangedEvent event) {
+        cache.invalidateAll();
+    }
+
+    private Map<ShopSort, List<ShopDto>> load() {
+        Map<Long, Long> productCounts = productRepository.countProductsByShop().stream()
+                .collect(Collectors.toMap(ProductRepository.ShopProductCount::getShopId,
+                        ProductRepository.ShopProductCount::getProductCount));
+        List<ShopDto> shops = shopMapper.fromRows(shopRepository.findAllRows());
+        shops.forEach(shop -> shop.setProductCount(productCounts.getOrDefault(shop.getId(), 0L)));
+
+        Map<ShopSort, List<ShopDto>> sorted = new EnumMap<>(ShopSort.class);
+        for (ShopSort sort : ShopSort.values()) {
+            sorted.put(sort, shops.stream().sorted(sort.getComparator()).toList());
+        }
+        return Collections.unmodifiableMap(sorted);
+    }
+
+    /**
+     * Index of the first entry that sorts strictly after the cursor position.
+     */
+    private static int firstAfter(List<ShopDto> sorted, ShopDto probe, ShopSort sort) {
+        int lo = 0;
+        int hi = sorted.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sort.getComparator().compare(sorted.get(mid), probe) <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
@@ -9,6 +9,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.UpdateTimestamp;
 import utm.server.modules.products.Product;
 import utm.server.modules.users.UserEntity;
 
@@ -23,13 +24,22 @@ import java.util.List;
 @Table
 public class ShopEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "shop_entity_seq")
+    @SequenceGenerator(name = "shop_entity_seq", sequenceName = "shop_entity_seq", allocationSize = 50)
     private Long id;
 
     @Column(unique = true)
     @Builder.Default
     private java.util.UUID uuid = java.util.UUID.randomUUID();
 
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
+    @UpdateTimestamp
+    @Column(columnDefinition = "timestamp(6) with time zone default now()")
+    private java.time.Instant updatedAt;
+
     @Column(nullable = false)
     private String name;
 
@@ -1,14 +1,29 @@
 package utm.server.modules.shops;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import utm.server.modules.conditional.VersionStamp;
+import utm.server.modules.shops.dto.ShopRow;
 
 
 import java.util.ArrayList;
 
 @Repository
 public interface ShopRepository extends JpaRepository<ShopEntity, Long> {
+
+    String SHOP_ROW = "SELECT new utm.server.modules.shops.dto.ShopRow(" +
+            "s.id, s.uuid, s.name, s.description, s.shopImageKey, s.shopBannerImageKey, s.user.id) " +
+            "FROM ShopEntity s ";
+
+    String VERSION_STAMP = "SELECT new utm.server.modules.conditional.VersionStamp(" +
+            "COUNT(s), MAX(s.id), SUM(s.version), MAX(s.updatedAt)) FROM ShopEntity s ";
+
     ArrayList<ShopEntity> findByName(String name);
     @NotNull ArrayList<ShopEntity> findAll();
 
@@ -16,4 +31,41 @@ public interface ShopRepository extends JpaRepository<ShopEntity, Long> {
     java.util.Optional<ShopEntity> findByUuid(java.util.UUID uuid);
     java.util.List<ShopEntity> findByUuidIsNull();
 
+    @Query(VERSION_STAMP)
+    VersionStamp findVersionStamp();
+
+    @Query(VERSION_STAMP + "WHERE s.id = :id")
+    VersionStamp findVersionStampById(@Param("id") Long id);
+
+    @Query(VERSION_STAMP + "WHERE s.uuid = :uuid")
+    VersionStamp findVersionStampByUuid(@Param("uuid") java.util.UUID uuid);
+
+    @Query(VERSION_STAMP + "WHERE s.id = (SELECT p.shopEntity.id FROM Product p WHERE p.id = :productId)")
+    VersionStamp findVersionStampByProductId(@Param("productId") Long productId);
+
+    @Query(VERSION_STAMP + "WHERE s.id = (SELECT p.shopEntity.id FROM Product p WHERE p.uuid = :productUuid)")
+    VersionStamp findVersionStampByProductUuid(@Param("productUuid") java.util.UUID productUuid);
+
+    @Query(VERSION_STAMP + "WHERE s.name = :name")
+    VersionStamp findVersionStampByName(@Param("name") String name);
+
+    @Query(VERSION_STAMP + "WHERE s.user.id = :userId")
+    VersionStamp findVersionStampByUserId(@Param("userId") Long userId);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(SHOP_ROW + "ORDER BY s.id")
+    java.util.List<ShopRow> findAllRows();
+
+    @Query(SHOP_ROW + "WHERE s.name = :name ORDER BY s.id")
+    java.util.List<ShopRow> findRowsByName(@Param("name") String name);
+
+    @Query(SHOP_ROW + "WHERE s.user.id = :userId ORDER BY s.id")
+    java.util.List<ShopRow> findRowsByUserId(@Param("userId") Long userId);
+
+    @Query(SHOP_ROW + "WHERE s.id = :id")
+    java.util.Optional<ShopRow> findRowById(@Param("id") Long id);
+
+    @Query(SHOP_ROW + "WHERE s.uuid = :uuid")
+    java.util.Optional<ShopRow> findRowByUuid(@Param("uuid") java.util.UUID uuid);
+
 }
@@ -2,18 +2,22 @@ package utm.server.modules.shops;
 
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import utm.server.modules.conditional.CatalogVersion;
+import utm.server.modules.conditional.VersionStamp;
 import utm.server.modules.products.Product;
+import utm.server.modules.products.ProductChangedEvent;
 import utm.server.modules.products.ProductRepository;
 import utm.server.modules.products.dto.ProductCreationDto;
 import utm.server.modules.shops.dto.ShopCreationRequestDTO;
+import utm.server.modules.shops.dto.ShopRow;
 import utm.server.modules.users.UserEntity;
 import utm.server.modules.users.UserRepository;
 import utm.server.modules.users.security.UserSecurityPrincipal;
 import utm.server.modules.users.security.UserSecurityPrincipalMapper;
 import utm.server.except.ResourceNotFoundException;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -24,6 +28,8 @@ public class ShopService {
     private final UserRepository userRepository;
     private final UserSecurityPrincipalMapper userMapper;
     private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CatalogVersion catalogVersion;
 
     @Transactional
     public ShopEntity addShop(ShopCreationRequestDTO shopRequest, UserSecurityPrincipal user) {
@@ -47,22 +53,54 @@ public class ShopService {
                 product.setPrice(item.price());
                 product.setDescription(item.description());
                 product.setShopEntity(shopEntity);
-                productRepository.save(product);
+                Product saved = productRepository.save(product);
+                eventPublisher.publishEvent(new ProductChangedEvent(saved.getId(), ProductChangedEvent.Type.CREATED));
             }
 
         }
+        eventPublisher.publishEvent(new ShopChangedEvent(savedShop.getId()));
         return savedShop;
     }
-    public ArrayList<ShopEntity> getAllShops() {
-        return shopRepository.findAll();
+    public List<ShopRow> getAllShops() {
+        return shopRepository.findAllRows();
     }
 
-    public ArrayList<ShopEntity> getShopsByName(String name) {
-        return shopRepository.findByName(name);
+    public List<ShopRow> getShopsByName(String name) {
+        return shopRepository.findRowsByName(name);
     }
 
-    public List<ShopEntity> getShopsByUserId(Long userId) {
-        return shopRepository.findByUser_Id(userId);
+    public List<ShopRow> getShopsByUserId(Long userId) {
+        return shopRepository.findRowsByUserId(userId);
+    }
+
+    public VersionStamp shopsVersion() {
+        return catalogVersion.current();
+    }
+
+    public VersionStamp shopsVersionByName(String name) {
+        return shopRepository.findVersionStampByName(name);
+    }
+
+    public VersionStamp shopsVersionByUserId(Long userId) {
+        return shopRepository.findVersionStampByUserId(userId);
+    }
+
+    public VersionStamp shopVersion(Long shopId) {
+        return shopRepository.findVersionStampById(shopId);
+    }
+
+    public VersionStamp shopVersion(java.util.UUID uuid) {
+        return shopRepository.findVersionStampByUuid(uuid);
+    }
+
+    public ShopRow getShopRowById(Long shopId) {
+        return shopRepository.findRowById(shopId)
+                .orElseThrow(() -> new ResourceNotFoundException("Shop not found with id: " + shopId));
+    }
+
+    public ShopRow getShopRowByUuid(java.util.UUID uuid) {
+        return shopRepository.findRowByUuid(uuid)
+                .orElseThrow(() -> new ResourceNotFoundException("Shop not found with uuid: " + uuid));
     }
 
     public ShopEntity getShopById(Long shopId){
@@ -80,7 +118,9 @@ public class ShopService {
         if (shopRequest.getDescription() != null) shop.setDescription(shopRequest.getDescription());
         if (shopRequest.getShopImageKey() != null) shop.setShopImageKey(shopRequest.getShopImageKey());
         if (shopRequest.getShopBannerImageKey() != null) shop.setShopBannerImageKey(shopRequest.getShopBannerImageKey());
-        return shopRepository.save(shop);
+        ShopEntity saved = shopRepository.save(shop);
+        eventPublisher.publishEvent(new ShopChangedEvent(saved.getId()));
+        return saved;
     }
 
     public ShopEntity updateShop(java.util.UUID shopId, ShopCreationRequestDTO shopRequest) {
@@ -89,7 +129,9 @@ public class ShopService {
         if (shopRequest.getDescription() != null) shop.setDescription(shopRequest.getDescription());
         if (shopRequest.getShopImageKey() != null) shop.setShopImageKey(shopRequest.getShopImageKey());
         if (shopRequest.getShopBannerImageKey() != null) shop.setShopBannerImageKey(shopRequest.getShopBannerImageKey());
-        return shopRepository.save(shop);
+        ShopEntity saved = shopRepository.save(shop);
+        eventPublisher.publishEvent(new ShopChangedEvent(saved.getId()));
+        return saved;
     }
 
     public ShopEntity getShopByUuid(java.util.UUID uuid){
@@ -101,14 +143,18 @@ public class ShopService {
         }
     }
 
-    public List<Product> getProductsByShopId(Long shopId) {
-        Optional<ShopEntity> shopEntityOptional = shopRepository.findById(shopId);
-
-        if (shopEntityOptional.isPresent()) {
-            ShopEntity shopEntity = shopEntityOptional.get();
-            return shopEntity.getProducts();
-        } else {
-            throw new ResourceNotFoundException("Shop not found with id: " + shopId);
+    /**
+     * Resolves a shop reference from a path, which may be a UUID or a legacy numeric id.
+     */
+    public ShopRow getShopRow(String shopId) {
+        try {
+            return getShopRowByUuid(java.util.UUID.fromString(shopId));
+        } catch (IllegalArgumentException e) {
+            try {
+                return getShopRowById(Long.parseLong(shopId));
+            } catch (NumberFormatException nfe) {
+                throw new ResourceNotFoundException("Invalid Shop ID format");
+            }
         }
     }
 
@@ -0,0 +1,64 @@
+package utm.server.modules.shops;
+
+import utm.server.except.InvalidPageRequestException;
+import utm.server.modules.pagination.KeysetCursor;
+import utm.server.modules.shops.dto.ShopDto;
+
+import java.util.Comparator;
+
+/**
+ * Orderings of the shop directory. Each one ends with the shop id so ties keep a stable position.
+ */
+public enum ShopSort {
+
+    NEWEST(Comparator.comparingLong(ShopDto::getId).reversed()),
+    NAME(Comparator.comparing(ShopDto::getName, String.CASE_INSENSITIVE_ORDER)
+            .thenComparingLong(ShopDto::getId)),
+    PRODUCT_COUNT(Comparator.comparingLong(ShopDto::getProductCount).reversed()
+            .thenComparing(Comparator.comparingLong(ShopDto::getId).reversed()));
+
+    private final Comparator<ShopDto> comparator;
+
+    ShopSort(Comparator<ShopDto> comparator) {
+        this.comparator = comparator;
+    }
+
+    public Comparator<ShopDto> getComparator() {
+        return comparator;
+    }
+
+    public KeysetCursor cursorOf(ShopDto shop) {
+        String key = switch (this) {
+            case NEWEST -> "";
+            case NAME -> shop.getName();
+            case PRODUCT_COUNT -> Long.toString(shop.getProductCount());
+        };
+        return new KeysetCursor(name(), key, shop.getId());
+    }
+
+    /**
+     * A stand-in shop positioned exactly at the cursor, to compare directory entries against.
+     */
+    public ShopDto probe(KeysetCursor cursor) {
+        ShopDto probe = ShopDto.builder().id(cursor.id()).name("").productCount(0L).build();
+        switch (this) {
+            case NAME -> probe.setName(cursor.key());
+            case PRODUCT_COUNT -> probe.setProductCount((long) cursor.keyAsDouble());
+            default -> {
+            }
+        }
+        return probe;
+    }
+
+    public static ShopSort fromString(String value) {
+        if (value == null || value.isBlank()) {
+            return NEWEST;
+        }
+        for (ShopSort sort : values()) {
+            if (sort.name().equalsIgnoreCase(value)) {
+                return sort;
+            }
+        }
+        throw new InvalidPageRequestException("Unsupported sort: " + value);
+    }
+}
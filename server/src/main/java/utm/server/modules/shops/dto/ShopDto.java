@@ -21,4 +21,6 @@ public class ShopDto {
     private String description;
     private List<ProductDto> products;
     private Long userId;
+    // Only filled in by the shop directory
+    private Long productCount;
 }
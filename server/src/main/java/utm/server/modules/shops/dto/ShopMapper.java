@@ -5,6 +5,12 @@ import org.springframework.stereotype.Service;
 import utm.server.modules.image.ImageService;
 import utm.server.modules.shops.ShopEntity;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
 @Service
 @RequiredArgsConstructor
 public class ShopMapper {
@@ -32,4 +38,30 @@ public class ShopMapper {
         return shopDto;
 
     }
+
+    public ShopDto fromRow(ShopRow row) {
+        return fromRows(List.of(row)).get(0);
+    }
+
+    /**
+     * Maps shop rows, signing the icon and banner links of all of them in one batch.
+     */
+    public List<ShopDto> fromRows(List<ShopRow> rows) {
+        Map<String, String> links = imageService.getPermanentLinks(rows.stream()
+                .flatMap(row -> Stream.of(row.shopImageKey(), row.shopBannerImageKey()))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
+
+        return rows.stream()
+                .map(row -> ShopDto.builder()
+                        .id(row.id())
+                        .uuid(row.uuid())
+                        .name(row.name())
+                        .description(row.description())
+                        .shopImageUrl(row.shopImageKey() != null ? links.get(row.shopImageKey()) : null)
+                        .shopBannerImageUrl(row.shopBannerImageKey() != null ? links.get(row.shopBannerImageKey()) : null)
+                        .userId(row.userId())
+                        .build())
+                .toList();
+    }
 }
@@ -0,0 +1,15 @@
+package utm.server.modules.shops.dto;
+
+import java.util.UUID;
+
+/**
+ * Columns needed to render a shop header, without its products or owner.
+ */
+public record ShopRow(Long id,
+                      UUID uuid,
+                      String name,
+                      String description,
+                      String shopImageKey,
+                      String shopBannerImageKey,
+                      Long userId) {
+}
@@ -0,0 +1,50 @@
+package utm.server.modules.storefront;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import utm.server.modules.conditional.ConditionalResponses;
+import utm.server.modules.conditional.VersionStamp;
+import utm.server.modules.products.ProductService;
+import utm.server.modules.products.cards.ProductCardEntity;
+import utm.server.modules.shops.ShopService;
+import utm.server.modules.shops.dto.ShopRow;
+import utm.server.modules.storefront.dto.ProductDetailDto;
+import utm.server.modules.storefront.dto.StorefrontDto;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api")
+@RequiredArgsConstructor
+public class StorefrontController {
+
+    private final StorefrontService storefrontService;
+    private final ShopService shopService;
+    private final ProductService productService;
+    private final ConditionalResponses conditionalResponses;
+
+    @GetMapping("/shops/{shopId}/storefront")
+    public ResponseEntity<StorefrontDto> getStorefront(@PathVariable String shopId,
+                                                       @RequestParam(required = false) String sort,
+                                                       @RequestParam(required = false) Integer size,
+                                                       WebRequest request) {
+        ShopRow shop = shopService.getShopRow(shopId);
+        return conditionalResponses.respond(request, productService.shopProductsVersion(shop.id()),
+                () -> storefrontService.storefront(shop, sort, size));
+    }
+
+    @GetMapping("/products/{id}/detail")
+    public ResponseEntity<ProductDetailDto> getProductDetail(@PathVariable String id, WebRequest request) {
+        ProductCardEntity card = storefrontService.getProductCard(id);
+        List<VersionStamp> version = card.getShopId() != null
+                ? productService.shopProductsVersion(card.getShopId())
+                : productService.productVersion(card.getId());
+        return conditionalResponses.respond(request, version, () -> storefrontService.productDetail(card));
+    }
+}
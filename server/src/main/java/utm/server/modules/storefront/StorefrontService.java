@@ -0,0 +1,88 @@
+package utm.server.modules.storefront;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import utm.server.except.ResourceNotFoundException;
+import utm.server.modules.products.ProductListingScope;
+import utm.server.modules.products.ProductService;
+import utm.server.modules.products.cards.PriceStats;
+import utm.server.modules.products.cards.ProductCardEntity;
+import utm.server.modules.products.cards.ProductCardRepository;
+import utm.server.modules.products.dto.ProductDto;
+import utm.server.modules.products.mapper.ProductMapper;
+import utm.server.modules.shops.ShopService;
+import utm.server.modules.shops.dto.ShopDto;
+import utm.server.modules.shops.dto.ShopMapper;
+import utm.server.modules.shops.dto.ShopRow;
+import utm.server.modules.storefront.dto.ProductDetailDto;
+import utm.server.modules.storefront.dto.StorefrontDto;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregate reads for the storefront and product detail pages. Everything is read from the shop
+ * row and the product card table, so a page costs a fixed number of queries however many
+ * products the shop has.
+ */
+@Service
+@RequiredArgsConstructor
+public class StorefrontService {
+
+    private final ShopService shopService;
+    private final ProductService productService;
+    private final ProductCardRepository productCardRepository;
+    private final ProductMapper productMapper;
+    private final ShopMapper shopMapper;
+
+    /**
+     * Shop header, first product page, product count, price range and tag histogram:
+     * three queries on top of the shop lookup.
+     */
+    public StorefrontDto storefront(ShopRow shop, String sort, Integer size) {
+        PriceStats stats = productCardRepository.findPriceStatsByShopId(shop.id());
+        Map<String, Long> tagCounts = new LinkedHashMap<>();
+        productCardRepository.countTagsByShopId(shop.id())
+                .forEach(t -> tagCounts.put(t.getTag(), t.getCount()));
+
+        return new StorefrontDto(
+                shopMapper.fromRow(shop),
+                productService.findProductsPage(ProductListingScope.shop(shop.id()), sort, null, size),
+                stats.count(),
+                stats.minPrice(),
+                stats.maxPrice(),
+                tagCounts);
+    }
+
+    /**
+     * Resolves a product reference from a path, which may be a UUID or a legacy numeric id.
+     */
+    public ProductCardEntity getProductCard(String id) {
+        try {
+            return productCardRepository.findByUuid(java.util.UUID.fromString(id))
+                    .orElseThrow(() -> new ResourceNotFoundException("Product with UUID not found"));
+        } catch (IllegalArgumentException e) {
+            try {
+                return productCardRepository.findById(Long.parseLong(id))
+                        .orElseThrow(() -> new ResourceNotFoundException("Product with Id not found"));
+            } catch (NumberFormatException nfe) {
+                throw new ResourceNotFoundException("Invalid ID format");
+            }
+        }
+    }
+
+    /**
+     * The product, its shop and its siblings: two queries on top of the product lookup.
+     */
+    public ProductDetailDto productDetail(ProductCardEntity card) {
+        ProductDto product = productMapper.fromCards(List.of(card)).get(0);
+        if (card.getShopId() == null) {
+            return new ProductDetailDto(product, null, List.of());
+        }
+        ShopDto shop = shopMapper.fromRow(shopService.getShopRowById(card.getShopId()));
+        List<ProductDto> siblings = productMapper.fromCards(
+                productCardRepository.findTop8ByShopIdAndIdNotOrderByIdDesc(card.getShopId(), card.getId()));
+        return new ProductDetailDto(product, shop, siblings);
+    }
+}
@@ -0,0 +1,12 @@
+package utm.server.modules.storefront.dto;
+
+import utm.server.modules.products.dto.ProductDto;
+import utm.server.modules.shops.dto.ShopDto;
+
+import java.util.List;
+
+/**
+ * A product with its shop header and a few other products of the same shop.
+ */
+public record ProductDetailDto(ProductDto product, ShopDto shop, List<ProductDto> siblings) {
+}
@@ -0,0 +1,19 @@
+package utm.server.modules.storefront.dto;
+
+import utm.server.modules.pagination.CursorPage;
+import utm.server.modules.products.dto.ProductDto;
+import utm.server.modules.shops.dto.ShopDto;
+
+import java.util.Map;
+
+/**
+ * Everything the storefront page needs on first paint. Further product pages come from
+ * {@code GET /api/shops/{shopId}/products/page} with {@code products.nextCursor}.
+ */
+public record StorefrontDto(ShopDto shop,
+                            CursorPage<ProductDto> products,
+                            long productCount,
+                            Double minPrice,
+                            Double maxPrice,
+                            Map<String, Long> tagCounts) {
+}
@@ -0,0 +1,85 @@
+package utm.server.modules.cart;
+
+import org.junit.jupiter.api.Test;
+import utm.server.modules.cart.dto.CartItemRequest;
+import utm.server.modules.cart.dto.CartMapper;
+import utm.server.modules.cart.dto.CartSummaryDto;
+import utm.server.modules.products.ProductRepository;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CartServiceTest {
+
+    private final CartRepository cartRepository = mock(CartRepository.class);
+    private final CartItemRepository cartItemRepository = mock(CartItemRepository.class);
+    private final CartService cartService = new CartService(cartRepository, cartItemRepository,
+            mock(CartMapper.class), mock(CartBatchWriter.class), mock(ProductRepository.class));
+
+    @Test
+    void addIsOneStatementWhenCartExists() {
+        when(cartItemRepository.addQuantity(1L, 5L, 2)).thenReturn(1);
+
+        cartService.addItemToCart(1L, new CartItemRequest(5L, 2, null));
+
+        verify(cartItemRepository).addQuantity(1L, 5L, 2);
+        verifyNoInteractions(cartRepository);
+        verifyNoMoreInteractions(cartItemRepository);
+    }
+
+    @Test
+    void addCreatesMissingCartAndRetries() {
+        when(cartItemRepository.addQuantity(1L, 5L, 1)).thenReturn(0, 1);
+
+        cartService.addItemToCart(1L, new CartItemRequest(5L, null, null));
+
+        verify(cartRepository).insertIfAbsent(1L);
+        verify(cartItemRepository, times(2)).addQuantity(1L, 5L, 1);
+    }
+
+    @Test
+    void addOfUnknownProductFails() {
+        when(cartItemRepository.addQuantity(1L, 5L, 1)).thenReturn(0);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> cartService.addItemToCart(1L, new CartItemRequest(5L, 1, null)));
+    }
+
+    @Test
+    void decrementDropsEmptyItem() {
+        when(cartItemRepository.addQuantity(1L, 5L, -1)).thenReturn(1);
+
+        cartService.addItemToCart(1L, new CartItemRequest(5L, -1, null));
+
+        verify(cartItemRepository).deleteEmpty(1L, 5L);
+    }
+
+    @Test
+    void zeroQuantityRemovesByCartItemId() {
+        when(cartItemRepository.deleteByIdAndUserId(1L, 9L)).thenReturn(1);
+
+        cartService.updateItemQuantityByCartItemId(1L, new CartItemRequest(null, 0, 9L));
+
+        verify(cartItemRepository).deleteByIdAndUserId(1L, 9L);
+        verify(cartItemRepository, never()).setQuantityById(anyLong(), anyLong(), anyInt());
+    }
+
+    @Test
+    void foreignCartItemIsNotFound() {
+        when(cartItemRepository.setQuantityById(1L, 9L, 3)).thenReturn(0);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> cartService.updateItemQuantityByCartItemId(1L, new CartItemRequest(null, 3, 9L)));
+    }
+
+    @Test
+    void summaryIsTheTotalsOfOneAggregateQuery() {
+        CartSummaryDto totals = new CartSummaryDto(5L, 2L, 42.5);
+        when(cartRepository.summarizeByUserId(1L)).thenReturn(totals);
+
+        assertEquals(totals, cartService.getSummary(1L));
+        verify(cartRepository).summarizeByUserId(1L);
+        verifyNoMoreInteractions(cartRepository);
+        verifyNoInteractions(cartItemRepository);
+    }
+}
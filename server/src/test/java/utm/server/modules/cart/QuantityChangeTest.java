@@ -0,0 +1,48 @@
+package utm.server.modules.cart;
+
+import org.junit.jupiter.api.Test;
+import utm.server.modules.cart.dto.CartOperation;
+import utm.server.modules.cart.dto.CartOperation.Type;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuantityChangeTest {
+
+    @Test
+    void addsAccumulateRelativeToStoredQuantity() {
+        QuantityChange change = fold(op(Type.ADD, 2), op(Type.ADD, null), op(Type.ADD, -1));
+        assertEquals(new QuantityChange(null, 2, null), change);
+        assertEquals(2, change.initialQuantity());
+    }
+
+    @Test
+    void setAndRemoveAreAbsolute() {
+        assertEquals(new QuantityChange(5, 0, null), fold(op(Type.ADD, 3), op(Type.SET, 4), op(Type.ADD, 1)));
+        assertEquals(new QuantityChange(0, 0, null), fold(op(Type.ADD, 3), op(Type.REMOVE, null)));
+        assertEquals(0, fold(op(Type.SET, -2)).initialQuantity());
+    }
+
+    @Test
+    void mergeRaisesToAtLeastGuestQuantity() {
+        QuantityChange merge = fold(op(Type.MERGE, 3));
+        assertEquals(new QuantityChange(null, 0, 3), merge);
+        assertEquals(3, merge.initialQuantity());
+
+        // max(q, 3) + 1 == max(q + 1, 4)
+        assertEquals(new QuantityChange(null, 1, 4), fold(op(Type.MERGE, 3), op(Type.ADD, 1)));
+        assertEquals(new QuantityChange(6, 0, null), fold(op(Type.SET, 2), op(Type.MERGE, 6)));
+        assertEquals(new QuantityChange(null, 0, 5), fold(op(Type.MERGE, 5), op(Type.MERGE, 2)));
+    }
+
+    private static QuantityChange fold(CartOperation... operations) {
+        QuantityChange change = QuantityChange.NONE;
+        for (CartOperation operation : operations) {
+            change = change.then(operation);
+        }
+        return change;
+    }
+
+    private static CartOperation op(Type type, Integer quantity) {
+        return new CartOperation(type, 1L, quantity);
+    }
+}
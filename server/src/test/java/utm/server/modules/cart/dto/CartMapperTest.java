@@ -0,0 +1,104 @@
+package utm.server.modules.cart.dto;
+
+import org.junit.jupiter.api.Test;
+import utm.server.modules.image.ImageService;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CartMapperTest {
+
+    private final ImageService imageService = mock(ImageService.class);
+    private final CartMapper cartMapper = new CartMapper(imageService);
+
+    @Test
+    void signsTheFirstImageOfEveryItemInOneCall() {
+        when(imageService.getPermanentLinks(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> keys = invocation.getArgument(0);
+            return keys.stream().distinct().collect(Collectors.toMap(Function.identity(), key -> "https://img/" + key));
+        });
+
+        CartResponse response = cartMapper.fromView(List.of(
+                row(3L, 10L, 5L, 2, "mug-front"),
+                row(3L, 11L, 6L, 1, null),
+                row(3L, 12L, 7L, 4, "mug-front")));
+
+        assertEquals(3L, response.getCartId());
+        assertEquals(List.of(10L, 11L, 12L), response.getItems().stream().map(CartItemResponse::getCartItemId).toList());
+        assertEquals("https://img/mug-front", response.getItems().get(0).getImageLink());
+        assertNull(response.getItems().get(1).getImageLink());
+        assertEquals(4, response.getItems().get(2).getQuantity());
+        verify(imageService, times(1)).getPermanentLinks(List.of("mug-front", "mug-front"));
+    }
+
+    @Test
+    void cartWithoutItemsKeepsItsIdAndSignsNothing() {
+        when(imageService.getPermanentLinks(anyCollection())).thenReturn(Map.of());
+
+        CartResponse response = cartMapper.fromView(List.of(row(3L, null, null, null, null)));
+
+        assertEquals(3L, response.getCartId());
+        assertEquals(List.of(), response.getItems());
+        verify(imageService).getPermanentLinks(List.of());
+    }
+
+    @Test
+    void userWithoutACartGetsAnEmptyResponse() {
+        CartResponse response = cartMapper.fromView(List.of());
+
+        assertNull(response.getCartId());
+        assertEquals(List.of(), response.getItems());
+    }
+
+    private static CartItemView row(Long cartId, Long cartItemId, Long productId, Integer quantity, String imageKey) {
+        return new CartItemView() {
+            @Override
+            public Long getCartId() {
+                return cartId;
+            }
+
+            @Override
+            public Long getCartItemId() {
+                return cartItemId;
+            }
+
+            @Override
+            public Long getProductId() {
+                return productId;
+            }
+
+            @Override
+            public UUID getProductUuid() {
+                return productId != null ? new UUID(0, productId) : null;
+            }
+
+            @Override
+            public String getTitle() {
+                return productId != null ? "Product " + productId : null;
+            }
+
+            @Override
+            public Double getPrice() {
+                return productId != null ? 9.5 : null;
+            }
+
+            @Override
+            public Integer getQuantity() {
+                return quantity;
+            }
+
+            @Override
+            public String getImageKey() {
+                return imageKey;
+            }
+        };
+    }
+}
@@ -0,0 +1,68 @@
+package utm.server.modules.conditional;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import utm.server.modules.image.ImageService;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ConditionalResponsesTest {
+
+    private static final VersionStamp STAMP = new VersionStamp(3L, 12L, 7L, Instant.parse("2026-01-02T10:00:00Z"));
+
+    @Test
+    void matchingETagSkipsTheBody() {
+        ConditionalResponses responses = new ConditionalResponses(imageService(Instant.parse("2026-01-02T00:00:00Z")));
+        AtomicInteger bodies = new AtomicInteger();
+
+        ResponseEntity<String> first = responses.respond(get(null), List.of(STAMP), () -> "body" + bodies.incrementAndGet());
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        String etag = first.getHeaders().getETag();
+        assertNotNull(etag);
+
+        ResponseEntity<String> second = responses.respond(get(etag), List.of(STAMP), () -> "body" + bodies.incrementAndGet());
+        assertEquals(HttpStatus.NOT_MODIFIED, second.getStatusCode());
+        assertNull(second.getBody());
+        assertEquals(1, bodies.get());
+    }
+
+    @Test
+    void eTagChangesWithVersionAndLinkPeriod() {
+        Instant today = Instant.parse("2026-01-02T00:00:00Z");
+        String base = etag(new ConditionalResponses(imageService(today)), STAMP);
+
+        VersionStamp updated = new VersionStamp(3L, 12L, 8L, STAMP.lastModified());
+        assertNotEquals(base, etag(new ConditionalResponses(imageService(today)), updated));
+
+        Instant tomorrow = Instant.parse("2026-01-03T00:00:00Z");
+        assertNotEquals(base, etag(new ConditionalResponses(imageService(tomorrow)), STAMP));
+    }
+
+    private static String etag(ConditionalResponses responses, VersionStamp stamp) {
+        return responses.respond(get(null), List.of(stamp), () -> "body").getHeaders().getETag();
+    }
+
+    private static ServletWebRequest get(String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products/");
+        if (ifNoneMatch != null) {
+            request.addHeader("If-None-Match", ifNoneMatch);
+        }
+        return new ServletWebRequest(request, new MockHttpServletResponse());
+    }
+
+    private static ImageService imageService(Instant linksSignedSince) {
+        ImageService imageService = mock(ImageService.class);
+        when(imageService.linksSignedSince()).thenReturn(linksSignedSince);
+        return imageService;
+    }
+}
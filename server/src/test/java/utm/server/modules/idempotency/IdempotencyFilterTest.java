@@ -0,0 +1,157 @@
+package utm.server.modules.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerExecutionChain;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import utm.server.modules.users.security.UserSecurityPrincipal;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class IdempotencyFilterTest {
+
+    static class Endpoints {
+        @Idempotent
+        public void create() {
+        }
+    }
+
+    private final RequestMappingHandlerMapping handlerMapping = mock(RequestMappingHandlerMapping.class);
+    private final IdempotencyStore store = mock(IdempotencyStore.class);
+    private final IdempotencyFilter filter = new IdempotencyFilter(handlerMapping, store, new ObjectMapper(),
+            Duration.ofHours(24), Duration.ofSeconds(1), Duration.ofMinutes(5), 100);
+
+    private final AtomicInteger executions = new AtomicInteger();
+    private int status = 201;
+    private final FilterChain chain = (request, response) -> {
+        executions.incrementAndGet();
+        ((HttpServletResponse) response).setStatus(status);
+        response.setContentType("application/json");
+        response.getOutputStream().write(("{\"order\":" + executions.get() + "}").getBytes(StandardCharsets.UTF_8));
+    };
+
+    @BeforeEach
+    void setUp() throws Exception {
+        UserSecurityPrincipal principal = new UserSecurityPrincipal();
+        principal.setId(7L);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, List.of()));
+        when(handlerMapping.getHandler(any()))
+                .thenReturn(new HandlerExecutionChain(new HandlerMethod(new Endpoints(), "create")));
+        when(store.claim(anyLong(), anyString(), anyString(), any(), any())).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void replaysTheFirstResponseWithoutRunningTheEndpointAgain() throws Exception {
+        MockHttpServletResponse first = send("k1", "{\"a\":1}");
+        MockHttpServletResponse retry = send("k1", "{\"a\":1}");
+
+        assertEquals(1, executions.get());
+        assertEquals(201, retry.getStatus());
+        assertEquals(first.getContentAsString(), retry.getContentAsString());
+        assertEquals("true", retry.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertNull(first.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        verify(store).complete(eq(7L), eq("k1"), argThat(r -> r.status() == 201));
+    }
+
+    @Test
+    void rejectsAKeyReusedForADifferentRequest() throws Exception {
+        send("k1", "{\"a\":1}");
+        MockHttpServletResponse other = send("k1", "{\"a\":2}");
+
+        assertEquals(422, other.getStatus());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void serverErrorsReleaseTheKeySoARetryRuns() throws Exception {
+        status = 503;
+        send("k1", "{}");
+        status = 201;
+        MockHttpServletResponse retry = send("k1", "{}");
+
+        assertEquals(2, executions.get());
+        assertEquals(201, retry.getStatus());
+        verify(store).release(7L, "k1");
+    }
+
+    @Test
+    void replaysAResponseStoredByAnotherInstance() throws Exception {
+        MockHttpServletRequest probe = request("k2", "{}");
+        String fingerprint = IdempotencyFilter.fingerprint(new CachedBodyRequest(probe));
+        when(store.claim(eq(7L), eq("k2"), anyString(), any(), any())).thenReturn(false);
+        when(store.find(7L, "k2")).thenReturn(Optional.of(new IdempotentResponse(fingerprint, 201,
+                "application/json", "{\"order\":42}".getBytes(StandardCharsets.UTF_8))));
+
+        MockHttpServletResponse response = send("k2", "{}");
+
+        assertEquals(0, executions.get());
+        assertEquals("{\"order\":42}", response.getContentAsString());
+    }
+
+    @Test
+    void keyStoredByAnotherInstanceForADifferentRequestIsNeverReplayedToIt() throws Exception {
+        String original = IdempotencyFilter.fingerprint(new CachedBodyRequest(request("k3", "{\"a\":1}")));
+        when(store.claim(eq(7L), eq("k3"), anyString(), any(), any())).thenReturn(false);
+        when(store.find(7L, "k3")).thenReturn(Optional.of(new IdempotentResponse(original, 201,
+                "application/json", "{\"order\":42}".getBytes(StandardCharsets.UTF_8))));
+
+        MockHttpServletResponse mismatch = send("k3", "{\"a\":2}");
+        MockHttpServletResponse retry = send("k3", "{\"a\":2}");
+        MockHttpServletResponse replay = send("k3", "{\"a\":1}");
+
+        assertEquals(422, mismatch.getStatus());
+        assertEquals(422, retry.getStatus());
+        assertNull(retry.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertEquals("{\"order\":42}", replay.getContentAsString());
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    void requestsWithoutAKeyPassThrough() throws Exception {
+        MockHttpServletRequest request = request(null, "{}");
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        filter.doFilter(request(null, "{}"), new MockHttpServletResponse(), chain);
+
+        assertEquals(2, executions.get());
+        verifyNoInteractions(store);
+    }
+
+    private MockHttpServletResponse send(String key, String body) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request(key, body), response, chain);
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String key, String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/orders/create");
+        if (key != null) {
+            request.addHeader(IdempotencyFilter.HEADER, key);
+        }
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
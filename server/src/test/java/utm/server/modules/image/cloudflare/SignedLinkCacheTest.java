@@ -0,0 +1,34 @@
+package utm.server.modules.image.cloudflare;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SignedLinkCacheTest {
+
+    @Test
+    void sameKeyReturnsSameLinkUntilInvalidated() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SignedLinkCache cache = new SignedLinkCache(100, Duration.ofDays(1), registry, Clock.systemUTC());
+        AtomicInteger signatures = new AtomicInteger();
+
+        String first = cache.get("images/a.png", key -> key + "?sig=" + signatures.incrementAndGet());
+        String second = cache.get("images/a.png", key -> key + "?sig=" + signatures.incrementAndGet());
+
+        assertEquals(first, second);
+        assertEquals(1, signatures.get());
+
+        cache.invalidate("images/a.png");
+        String third = cache.get("images/a.png", key -> key + "?sig=" + signatures.incrementAndGet());
+
+        assertNotEquals(first, third);
+        assertEquals(2, signatures.get());
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "image.signedLinks").tag("result", "hit")
+                .functionCounter().count());
+    }
+}
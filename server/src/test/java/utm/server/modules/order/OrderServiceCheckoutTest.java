@@ -0,0 +1,155 @@
+package utm.server.modules.order;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import utm.server.modules.cart.CartService;
+import utm.server.modules.cart.dto.CartLine;
+import utm.server.modules.order.dto.OrderCreateRequest;
+import utm.server.modules.order.dto.OrderItemRequest;
+import utm.server.modules.order.dto.OrderResponseDTO;
+import utm.server.modules.products.Product;
+import utm.server.modules.products.ProductRepository;
+import utm.server.modules.products.dto.ProductRow;
+import utm.server.modules.products.stock.ProductStockStore;
+import utm.server.modules.products.stock.StockShortage;
+import utm.server.modules.products.stock.StockUnavailableException;
+import utm.server.modules.shops.ShopRepository;
+import utm.server.modules.users.UserEntity;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OrderServiceCheckoutTest {
+
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final CartService cartService = mock(CartService.class);
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ProductStockStore productStockStore = mock(ProductStockStore.class);
+    private final OrderService orderService = new OrderService(orderRepository, mock(OrderItemRepository.class),
+            cartService, productRepository, mock(ShopRepository.class), eventPublisher, meterRegistry,
+            mock(SellerOrderQuery.class), productStockStore);
+
+    private final UserEntity user = mock(UserEntity.class);
+
+    OrderServiceCheckoutTest() {
+        when(user.getId()).thenReturn(7L);
+        when(productRepository.getReferenceById(anyLong())).thenAnswer(invocation -> {
+            Product product = new Product();
+            product.setId(invocation.getArgument(0));
+            return product;
+        });
+        when(orderRepository.saveAndFlush(any())).thenAnswer(invocation -> {
+            OrderEntity order = invocation.getArgument(0);
+            order.setId(100L);
+            return order;
+        });
+    }
+
+    @Test
+    void resolvesAllProductsInOneQueryAndSavesOnce() {
+        when(productRepository.findRowsByIdIn(anyCollection())).thenReturn(List.of(row(1L, 2.5), row(2L, 10)));
+        OrderCreateRequest request = new OrderCreateRequest();
+        request.setItems(List.of(new OrderItemRequest(1L, 2), new OrderItemRequest(2L, 1)));
+
+        OrderResponseDTO order = orderService.createOrderFromCart(request, user);
+
+        assertEquals(0, new BigDecimal("15").compareTo(order.getTotalAmount()));
+        assertEquals(2, order.getItems().size());
+        verify(productRepository, times(1)).findRowsByIdIn(anyCollection());
+        verify(orderRepository, times(1)).saveAndFlush(any());
+        verify(eventPublisher).publishEvent(new OrderPlacedEvent(100L));
+        verifyNoInteractions(cartService);
+        assertEquals(1, meterRegistry.get("orders.checkout.phase").tag("phase", "persist").timer().count());
+    }
+
+    @Test
+    void checksOutServerCartAndClearsIt() {
+        when(cartService.getLines(7L)).thenReturn(List.of(new CartLine(1L, 3)));
+        when(productRepository.findRowsByIdIn(anyCollection())).thenReturn(List.of(row(1L, 4)));
+
+        OrderResponseDTO order = orderService.createOrderFromCart(new OrderCreateRequest(), user);
+
+        assertEquals(0, new BigDecimal("12").compareTo(order.getTotalAmount()));
+        verify(cartService).clearCart(7L);
+    }
+
+    @Test
+    void unknownProductFailsBeforeAnythingIsWritten() {
+        when(productRepository.findRowsByIdIn(anyCollection())).thenReturn(List.of(row(1L, 1)));
+        OrderCreateRequest request = new OrderCreateRequest();
+        request.setItems(List.of(new OrderItemRequest(1L, 1), new OrderItemRequest(9L, 1)));
+
+        assertThrows(IllegalArgumentException.class, () -> orderService.createOrderFromCart(request, user));
+        verify(orderRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void reservesStockOncePerProductAndFailsWhenSoldOut() {
+        when(productRepository.findRowsByIdIn(anyCollection())).thenReturn(List.of(row(1L, 1), row(2L, 1)));
+        doThrow(new StockUnavailableException(List.of(new StockShortage(2L, 1, 0))))
+                .when(productStockStore).reserve(anyMap());
+        OrderCreateRequest request = new OrderCreateRequest();
+        request.setItems(List.of(new OrderItemRequest(1L, 1), new OrderItemRequest(2L, 1), new OrderItemRequest(1L, 2)));
+
+        StockUnavailableException e = assertThrows(StockUnavailableException.class,
+                () -> orderService.createOrderFromCart(request, user));
+
+        assertEquals(List.of(new StockShortage(2L, 1, 0)), e.getShortages());
+        verify(productStockStore).reserve(Map.of(1L, 3, 2L, 1));
+    }
+
+    @Test
+    void reopeningACancelledOrderReservesItsStockAgain() {
+        OrderEntity order = cancelledOrder();
+        doThrow(new StockUnavailableException(List.of(new StockShortage(1L, 2, 0))))
+                .when(productStockStore).reserve(Map.of(1L, 2));
+
+        assertThrows(StockUnavailableException.class,
+                () -> orderService.updateOrderStatus(100L, Status.PENDING, user));
+
+        assertEquals(Status.CANCELLED, order.getStatus());
+        verify(orderRepository, never()).save(any());
+        verify(eventPublisher, never()).publishEvent(any(OrderStatusChangedEvent.class));
+    }
+
+    @Test
+    void cancellingGivesStockBackAndMovesBetweenSaleStatesAreFree() {
+        OrderEntity order = cancelledOrder();
+        order.setStatus(Status.PENDING);
+        when(orderRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        orderService.updateOrderStatus(100L, Status.CONFIRMED, user);
+        orderService.updateOrderStatus(100L, Status.CANCELLED, user);
+
+        verify(productStockStore).release(Map.of(1L, 2));
+        verify(productStockStore, never()).reserve(anyMap());
+    }
+
+    private OrderEntity cancelledOrder() {
+        Product product = new Product();
+        product.setId(1L);
+        OrderItem item = new OrderItem();
+        item.setProduct(product);
+        item.setQuantity(2);
+        item.setPrice(BigDecimal.ONE);
+        OrderEntity order = new OrderEntity();
+        order.setId(100L);
+        order.setStatus(Status.CANCELLED);
+        order.addItem(item);
+        when(orderRepository.findById(100L)).thenReturn(java.util.Optional.of(order));
+        return order;
+    }
+
+    private static ProductRow row(Long id, double price) {
+        return new ProductRow(id, UUID.randomUUID(), "product " + id, null, price, 1L, UUID.randomUUID(), "shop");
+    }
+}
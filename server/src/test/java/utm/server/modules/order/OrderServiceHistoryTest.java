@@ -0,0 +1,85 @@
+package utm.server.modules.order;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import utm.server.modules.cart.CartService;
+import utm.server.modules.order.dto.BuyerOrderRow;
+import utm.server.modules.order.dto.OrderLine;
+import utm.server.modules.order.dto.OrderResponseDTO;
+import utm.server.modules.pagination.CursorPage;
+import utm.server.modules.products.ProductRepository;
+import utm.server.modules.products.stock.ProductStockStore;
+import utm.server.modules.shops.ShopRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OrderServiceHistoryTest {
+
+    private static final LocalDateTime NOON = LocalDateTime.of(2026, 3, 1, 12, 0);
+
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final OrderItemRepository orderItemRepository = mock(OrderItemRepository.class);
+    private final OrderService orderService = new OrderService(orderRepository, orderItemRepository,
+            mock(CartService.class), mock(ProductRepository.class), mock(ShopRepository.class),
+            mock(ApplicationEventPublisher.class), new SimpleMeterRegistry(), mock(SellerOrderQuery.class),
+            mock(ProductStockStore.class));
+
+    @Test
+    void loadsItemsOfThePageInOneQueryAndContinuesFromTheCursor() {
+        when(orderRepository.findHistory(7L, PageRequest.of(0, 3)))
+                .thenReturn(List.of(row(30L, NOON), row(20L, NOON), row(10L, NOON.minusDays(1))));
+        when(orderItemRepository.findLinesByOrderIdIn(List.of(30L, 20L)))
+                .thenReturn(List.of(new OrderLine(30L, 1L, 5L, "Mug", 2, new BigDecimal("4.50"))));
+
+        CursorPage<OrderResponseDTO> first = orderService.getUserOrdersPage(7L, null, 2, false);
+
+        assertTrue(first.hasMore());
+        assertEquals(List.of(30L, 20L), first.items().stream().map(OrderResponseDTO::getId).toList());
+        assertEquals(0, new BigDecimal("9").compareTo(first.items().get(0).getItems().get(0).getTotal()));
+        assertEquals(List.of(), first.items().get(1).getItems());
+        verify(orderItemRepository, times(1)).findLinesByOrderIdIn(anyCollection());
+
+        orderService.getUserOrdersPage(7L, first.nextCursor(), 2, false);
+        verify(orderRepository).findHistoryAfter(7L, NOON, 20L, PageRequest.of(0, 3));
+    }
+
+    @Test
+    void undatedOrdersComeLastAndPageOnById() {
+        when(orderRepository.findHistory(7L, PageRequest.of(0, 3)))
+                .thenReturn(List.of(row(30L, NOON), row(20L, null), row(10L, null)));
+
+        CursorPage<OrderResponseDTO> first = orderService.getUserOrdersPage(7L, null, 2, true);
+
+        assertTrue(first.hasMore());
+        assertNull(first.items().get(1).getOrderDate());
+
+        when(orderRepository.findHistoryAfterUndated(7L, 20L, PageRequest.of(0, 3))).thenReturn(List.of(row(10L, null)));
+        CursorPage<OrderResponseDTO> second = orderService.getUserOrdersPage(7L, first.nextCursor(), 2, true);
+
+        assertEquals(List.of(10L), second.items().stream().map(OrderResponseDTO::getId).toList());
+        assertFalse(second.hasMore());
+        verify(orderRepository, never()).findHistoryAfter(anyLong(), any(), anyLong(), any());
+    }
+
+    @Test
+    void summaryModeSkipsItems() {
+        when(orderRepository.findHistory(eq(7L), any())).thenReturn(List.of(row(30L, NOON)));
+
+        CursorPage<OrderResponseDTO> page = orderService.getUserOrdersPage(7L, null, null, true);
+
+        assertNull(page.items().get(0).getItems());
+        verifyNoInteractions(orderItemRepository);
+    }
+
+    private static BuyerOrderRow row(Long id, LocalDateTime date) {
+        return new BuyerOrderRow(id, date, Status.PENDING, BigDecimal.TEN, null, null, null, null, null, null, null);
+    }
+}
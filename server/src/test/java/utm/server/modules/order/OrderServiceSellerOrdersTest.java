@@ -0,0 +1,77 @@
+package utm.server.modules.order;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import utm.server.modules.cart.CartService;
+import utm.server.modules.order.dto.OrderLine;
+import utm.server.modules.order.dto.OrderResponseDTO;
+import utm.server.modules.pagination.CursorPage;
+import utm.server.modules.pagination.KeysetCursor;
+import utm.server.modules.products.ProductRepository;
+import utm.server.modules.products.stock.ProductStockStore;
+import utm.server.modules.shops.ShopRepository;
+import utm.server.modules.shops.dto.ShopRow;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static utm.server.modules.order.SellerOrderQueryTest.row;
+
+class OrderServiceSellerOrdersTest {
+
+    private static final LocalDateTime NOON = LocalDateTime.of(2026, 3, 1, 12, 0);
+
+    private final ShopRepository shopRepository = mock(ShopRepository.class);
+    private final SellerOrderQuery sellerOrderQuery = mock(SellerOrderQuery.class);
+    private final OrderService orderService = new OrderService(mock(OrderRepository.class),
+            mock(OrderItemRepository.class), mock(CartService.class), mock(ProductRepository.class), shopRepository,
+            mock(ApplicationEventPublisher.class), new SimpleMeterRegistry(), sellerOrderQuery,
+            mock(ProductStockStore.class));
+
+    @Test
+    void pageCarriesTheSellersTotalAndLinesAndContinuesFromTheCursor() {
+        SellerOrderFilter filter = new SellerOrderFilter(7L, null, Status.PENDING, null, null);
+        when(sellerOrderQuery.fetchOrders(filter, null, 3))
+                .thenReturn(List.of(row(30L, NOON), row(20L, NOON), row(10L, null)));
+        when(sellerOrderQuery.fetchLines(filter, List.of(30L, 20L)))
+                .thenReturn(List.of(new OrderLine(30L, 1L, 5L, "Mug", 2, new BigDecimal("5"))));
+
+        CursorPage<OrderResponseDTO> first = orderService.getSellerOrdersPage(filter, null, 2);
+
+        assertTrue(first.hasMore());
+        assertEquals(List.of(30L, 20L), first.items().stream().map(OrderResponseDTO::getId).toList());
+        assertEquals(BigDecimal.TEN, first.items().get(0).getTotalAmount());
+        assertEquals(1, first.items().get(0).getItems().size());
+        assertEquals(List.of(), first.items().get(1).getItems());
+        verifyNoInteractions(shopRepository);
+
+        orderService.getSellerOrdersPage(filter, first.nextCursor(), 2);
+        verify(sellerOrderQuery).fetchOrders(filter, new KeysetCursor(SellerOrderQuery.SORT, NOON.toString(), 20L), 3);
+    }
+
+    @Test
+    void cursorPastAnUndatedOrderCarriesOnlyItsId() {
+        SellerOrderFilter filter = new SellerOrderFilter(7L, null, null, null, null);
+        when(sellerOrderQuery.fetchOrders(filter, null, 2)).thenReturn(List.of(row(20L, null), row(10L, null)));
+
+        CursorPage<OrderResponseDTO> first = orderService.getSellerOrdersPage(filter, null, 1);
+        orderService.getSellerOrdersPage(filter, first.nextCursor(), 1);
+
+        verify(sellerOrderQuery).fetchOrders(filter, new KeysetCursor(SellerOrderQuery.SORT, "", 20L), 2);
+    }
+
+    @Test
+    void refusesAnotherSellersShop() {
+        when(shopRepository.findRowById(3L)).thenReturn(Optional.of(new ShopRow(3L, null, "Shop", null, null, null, 8L)));
+
+        assertThrows(SecurityException.class, () ->
+                orderService.getSellerOrdersPage(new SellerOrderFilter(7L, 3L, null, null, null), null, 2));
+        verify(sellerOrderQuery, never()).fetchOrders(any(), any(), any());
+    }
+}
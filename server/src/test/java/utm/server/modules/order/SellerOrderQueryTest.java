@@ -0,0 +1,93 @@
+package utm.server.modules.order;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import utm.server.modules.order.dto.SellerOrderRow;
+import utm.server.modules.pagination.KeysetCursor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SellerOrderQueryTest {
+
+    private static final LocalDateTime NOON = LocalDateTime.of(2026, 3, 1, 12, 0);
+
+    private final EntityManager entityManager = mock(EntityManager.class);
+    @SuppressWarnings("unchecked")
+    private final TypedQuery<SellerOrderRow> query = mock(TypedQuery.class);
+    private final SellerOrderQuery sellerOrderQuery = new SellerOrderQuery(entityManager);
+    private final ArgumentCaptor<String> jpql = ArgumentCaptor.forClass(String.class);
+
+    @BeforeEach
+    void setUp() {
+        when(entityManager.createQuery(jpql.capture(), eq(SellerOrderRow.class))).thenReturn(query);
+        when(query.setHint(anyString(), any())).thenReturn(query);
+        when(query.setParameter(anyString(), any())).thenReturn(query);
+        when(query.setMaxResults(anyInt())).thenReturn(query);
+    }
+
+    @Test
+    void totalsOnlyTheSellersLinesOfEachOrder() {
+        sellerOrderQuery.fetchOrders(new SellerOrderFilter(7L, null, null, null, null), null, null);
+
+        assertTrue(jpql.getValue().contains("SUM(i.price * i.quantity)"));
+        assertTrue(jpql.getValue().contains("WHERE s.user.id = :sellerId"));
+        assertTrue(jpql.getValue().contains("GROUP BY o.id, u.id"));
+        verify(query).setParameter("sellerId", 7L);
+        verify(query, never()).setMaxResults(anyInt());
+    }
+
+    @Test
+    void appliesEveryFilterThatIsSet() {
+        SellerOrderFilter filter = new SellerOrderFilter(7L, 3L, Status.CONFIRMED, NOON.minusDays(7), NOON);
+
+        sellerOrderQuery.fetchOrders(filter, null, 25);
+
+        assertTrue(jpql.getValue().contains("AND s.id = :shopId AND o.status = :status"
+                + " AND o.orderDate >= :from AND o.orderDate < :to"));
+        verify(query).setParameter("shopId", 3L);
+        verify(query).setParameter("status", Status.CONFIRMED);
+        verify(query).setParameter("from", NOON.minusDays(7));
+        verify(query).setParameter("to", NOON);
+        verify(query).setMaxResults(25);
+        verify(query, never()).setParameter(eq("lastId"), any());
+    }
+
+    @Test
+    void continuesAfterADatedOrderAndKeepsUndatedOrdersForTheEnd() {
+        KeysetCursor after = SellerOrderQuery.cursorOf(row(20L, NOON));
+
+        sellerOrderQuery.fetchOrders(new SellerOrderFilter(7L, null, null, null, null), after, 3);
+
+        assertTrue(jpql.getValue().contains("(o.orderDate < :lastDate OR (o.orderDate = :lastDate AND o.id < :lastId)"
+                + " OR o.orderDate IS NULL)"));
+        assertTrue(jpql.getValue().endsWith("ORDER BY o.orderDate DESC NULLS LAST, o.id DESC"));
+        verify(query).setParameter("lastDate", NOON);
+        verify(query).setParameter("lastId", 20L);
+    }
+
+    @Test
+    void continuesAmongUndatedOrdersById() {
+        KeysetCursor cursor = SellerOrderQuery.cursorOf(row(20L, null));
+        KeysetCursor after = KeysetCursor.decode(cursor.encode(), SellerOrderQuery.SORT);
+
+        sellerOrderQuery.fetchOrders(new SellerOrderFilter(7L, null, null, null, null), after, 3);
+
+        assertEquals("", after.key());
+        assertTrue(jpql.getValue().contains("AND o.orderDate IS NULL AND o.id < :lastId"));
+        verify(query).setParameter("lastId", 20L);
+        verify(query, never()).setParameter(eq("lastDate"), any());
+    }
+
+    static SellerOrderRow row(Long id, LocalDateTime date) {
+        return new SellerOrderRow(id, date, Status.PENDING, BigDecimal.TEN, null, null, null, null, null, null, null,
+                "Buyer", "buyer@example.com");
+    }
+}
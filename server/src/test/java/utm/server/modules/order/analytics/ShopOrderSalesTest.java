@@ -0,0 +1,52 @@
+package utm.server.modules.order.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShopOrderSalesTest {
+
+    private static final LocalDateTime PLACED = LocalDateTime.of(2026, 3, 14, 23, 30);
+
+    @Test
+    void splitsOrderByShopAndMergesRepeatedProducts() {
+        List<ShopOrderSales> sales = ShopOrderSales.of(List.of(
+                line(7L, 70L, 2, "4.50"),
+                line(3L, 30L, 1, "10.00"),
+                line(7L, 71L, 1, "1.25"),
+                line(7L, 70L, 1, "4.50")));
+
+        assertEquals(List.of(3L, 7L), sales.stream().map(ShopOrderSales::shopId).toList());
+
+        ShopOrderSales shop7 = sales.get(1);
+        assertEquals(LocalDate.of(2026, 3, 14), shop7.day());
+        assertEquals(42L, shop7.userId());
+        assertEquals(4, shop7.units());
+        assertEquals(new BigDecimal("14.75"), shop7.revenue());
+        assertEquals(List.of(70L, 71L), shop7.products().stream().map(ShopOrderSales.ProductSales::productId).toList());
+        assertEquals(3, shop7.products().get(0).units());
+        assertEquals(new BigDecimal("13.50"), shop7.products().get(0).revenue());
+    }
+
+    @Test
+    void skipsItemsWithoutShop() {
+        assertEquals(List.of(), ShopOrderSales.of(List.of(line(null, 1L, 1, "2.00"))));
+        assertEquals(List.of(), ShopOrderSales.of(List.of()));
+    }
+
+    @Test
+    void skipsOrdersWithoutDate() {
+        OrderSalesLine undated = new OrderSalesLine(7L, 70L, "product 70", 1, new BigDecimal("4.50"), 42L, null);
+
+        assertEquals(List.of(), ShopOrderSales.of(List.of(undated)));
+    }
+
+    private static OrderSalesLine line(Long shopId, Long productId, int quantity, String price) {
+        return new OrderSalesLine(shopId, productId, "product " + productId, quantity, new BigDecimal(price), 42L, PLACED);
+    }
+}
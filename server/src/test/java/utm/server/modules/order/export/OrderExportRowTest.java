@@ -0,0 +1,39 @@
+package utm.server.modules.order.export;
+
+import org.junit.jupiter.api.Test;
+import utm.server.modules.order.Status;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderExportRowTest {
+
+    @Test
+    void quotesTextThatNeedsIt() {
+        assertEquals("", OrderExportRow.csvText(null));
+        assertEquals("Mug", OrderExportRow.csvText("Mug"));
+        assertEquals("\"Mug, large\"", OrderExportRow.csvText("Mug, large"));
+        assertEquals("\"The \"\"blue\"\" one\"", OrderExportRow.csvText("The \"blue\" one"));
+        assertEquals("\"two\nlines\"", OrderExportRow.csvText("two\nlines"));
+    }
+
+    @Test
+    void defusesSpreadsheetFormulas() {
+        assertEquals("\"'=HYPERLINK(\"\"x\"\")\"", OrderExportRow.csvText("=HYPERLINK(\"x\")"));
+        assertEquals("'+1", OrderExportRow.csvText("+1"));
+        assertEquals("'@SUM(A1)", OrderExportRow.csvText("@SUM(A1)"));
+    }
+
+    @Test
+    void writesOneLinePerItemMatchingTheHeader() {
+        OrderExportRow row = new OrderExportRow(1L, LocalDateTime.of(2026, 5, 4, 10, 30), Status.DELIVERED,
+                "Ana", "ana@example.com", "MD", "Chisinau", 3L, "Clay, Co", 7L, 9L, "Vase",
+                2, new BigDecimal("12.50"), new BigDecimal("25.00"));
+
+        assertEquals("1,2026-05-04T10:30,DELIVERED,Ana,ana@example.com,MD,Chisinau,3,\"Clay, Co\",7,9,Vase,2,12.50,25.00",
+                row.toCsv());
+        assertEquals(15, OrderExportRow.CSV_HEADER.split(",").length);
+    }
+}
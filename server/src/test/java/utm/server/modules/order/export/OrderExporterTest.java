@@ -0,0 +1,66 @@
+package utm.server.modules.order.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import utm.server.modules.order.SellerOrderFilter;
+import utm.server.modules.shops.ShopRepository;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class OrderExporterTest {
+
+    private final DataSource dataSource = mock(DataSource.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final OrderExporter exporter = new OrderExporter(dataSource, transactionManager, new ObjectMapper(),
+            mock(ShopRepository.class), 100, 1, Duration.ofMinutes(1));
+    private final SellerOrderFilter filter = new SellerOrderFilter(7L, null, null, null, null);
+
+    @AfterEach
+    void tearDown() {
+        exporter.shutdown();
+    }
+
+    @Test
+    void slotIsGivenBackWhenAnExportFailsBeforeWritingAnything() throws Exception {
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        when(dataSource.getConnection()).thenThrow(new SQLException("database down"));
+
+        exporter.export(filter, OrderExportFormat.CSV);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (true) {
+            try {
+                exporter.export(filter, OrderExportFormat.NDJSON);
+                return;
+            } catch (TooManyExportsException e) {
+                if (System.nanoTime() > deadline) {
+                    fail("The export slot was never given back");
+                }
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    @Test
+    void refusesExportsBeyondTheLimit() throws Exception {
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+            Thread.sleep(500);
+            return mock(TransactionStatus.class);
+        });
+        when(dataSource.getConnection()).thenThrow(new SQLException("database down"));
+
+        exporter.export(filter, OrderExportFormat.CSV);
+
+        assertThrows(TooManyExportsException.class, () -> exporter.export(filter, OrderExportFormat.CSV));
+    }
+}
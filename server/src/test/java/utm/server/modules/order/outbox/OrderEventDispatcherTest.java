@@ -0,0 +1,120 @@
+package utm.server.modules.order.outbox;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import utm.server.modules.order.Status;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OrderEventDispatcherTest {
+
+    private final OrderOutboxStore store = mock(OrderOutboxStore.class);
+    private final OrderEventHandler handler = mock(OrderEventHandler.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OrderEventDispatcher dispatcher = new OrderEventDispatcher(store, List.of(handler),
+            new TransactionTemplate(transactionManager), meterRegistry, 2, 1,
+            Duration.ofMinutes(1), Duration.ofSeconds(1), Duration.ofMinutes(5), 5);
+
+    @Test
+    void handlesAndRemovesEventInOneTransaction() {
+        OrderEventMessage message = message(1L, 1);
+        when(store.complete(1L)).thenReturn(true);
+
+        dispatcher.dispatch(message);
+
+        verify(handler).handle(message);
+        verify(transactionManager).commit(any());
+        verify(store, never()).retryLater(anyLong(), any(), any());
+        assertEquals(1, meterRegistry.get("orders.outbox.delivery").tag("type", "PLACED").timer().count());
+    }
+
+    @Test
+    void skipsEventAnotherDispatcherAlreadyDelivered() {
+        when(store.complete(1L)).thenReturn(false);
+
+        dispatcher.dispatch(message(1L, 2));
+
+        verifyNoInteractions(handler);
+    }
+
+    @Test
+    void rollsBackAndRetriesWithBackoffWhenAHandlerFails() {
+        OrderEventMessage message = message(1L, 3);
+        when(store.complete(1L)).thenReturn(true);
+        doThrow(new IllegalStateException("boom")).when(handler).handle(message);
+
+        dispatcher.dispatch(message);
+
+        verify(transactionManager).rollback(any());
+        verify(store).retryLater(eq(1L), eq(Duration.ofSeconds(4)), contains("boom"));
+        assertEquals(1, meterRegistry.get("orders.outbox.failures").counter().count());
+        verify(store, never()).park(anyLong(), any());
+    }
+
+    @Test
+    void parksAnEventThatRanOutOfAttempts() {
+        OrderEventMessage message = message(1L, 5);
+        when(store.complete(1L)).thenReturn(true);
+        doThrow(new IllegalStateException("boom")).when(handler).handle(message);
+
+        dispatcher.dispatch(message);
+
+        verify(store).park(eq(1L), contains("boom"));
+        verify(store, never()).retryLater(anyLong(), any(), any());
+        assertEquals(1, meterRegistry.get("orders.outbox.failed").gauge().value());
+    }
+
+    @Test
+    void backoffDoublesUpToTheMaximum() {
+        assertEquals(Duration.ofSeconds(1), dispatcher.backoff(1));
+        assertEquals(Duration.ofSeconds(8), dispatcher.backoff(4));
+        assertEquals(Duration.ofMinutes(5), dispatcher.backoff(20));
+        assertEquals(Duration.ofMinutes(5), dispatcher.backoff(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void drainsUntilABatchComesBackShort() {
+        when(store.claim(eq(2), any())).thenReturn(batch(message(1L, 1), message(2L, 1)), batch(message(3L, 1)));
+        when(store.complete(anyLong())).thenReturn(true);
+
+        dispatcher.drain();
+
+        verify(store, times(2)).claim(eq(2), any());
+        verify(handler, times(3)).handle(any());
+    }
+
+    @Test
+    void retriesAnUnreadableRowAloneAndDispatchesTheRest() {
+        OrderEventMessage readable = message(1L, 1);
+        OrderOutboxStore.Unreadable unreadable =
+                new OrderOutboxStore.Unreadable(2L, 12L, "PLACED", 1, "IllegalStateException: bad payload");
+        when(store.claim(eq(2), any())).thenReturn(
+                new OrderOutboxStore.Batch(List.of(readable), List.of(unreadable)), batch());
+        when(store.complete(1L)).thenReturn(true);
+
+        dispatcher.drain();
+
+        verify(handler).handle(readable);
+        verify(store).retryLater(eq(2L), eq(Duration.ofSeconds(1)), contains("bad payload"));
+        verify(store, never()).complete(2L);
+        verify(store, times(2)).claim(eq(2), any());
+    }
+
+    private static OrderOutboxStore.Batch batch(OrderEventMessage... messages) {
+        return new OrderOutboxStore.Batch(List.of(messages), List.of());
+    }
+
+    private static OrderEventMessage message(Long id, int attempts) {
+        return new OrderEventMessage(id, 10L + id, OrderEventType.PLACED, null, Status.PENDING, List.of(),
+                Instant.now(), attempts);
+    }
+}
@@ -0,0 +1,90 @@
+package utm.server.modules.order.pending;
+
+import org.junit.jupiter.api.Test;
+import utm.server.modules.order.OrderDeletedEvent;
+import utm.server.modules.order.OrderItemRepository;
+import utm.server.modules.order.OrderPlacedEvent;
+import utm.server.modules.order.OrderStatusChangedEvent;
+import utm.server.modules.order.Status;
+import utm.server.modules.order.stream.OrderEventHub;
+import utm.server.modules.order.stream.PendingCountEvent;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PendingOrderCounterTest {
+
+    private final PendingCountStore store = mock(PendingCountStore.class);
+    private final OrderItemRepository orderItemRepository = mock(OrderItemRepository.class);
+    private final OrderEventHub hub = mock(OrderEventHub.class);
+    private final PendingOrderCounter counter = new PendingOrderCounter(store, orderItemRepository, hub);
+
+    @Test
+    void loadsOnceThenFollowsOrderChanges() {
+        when(store.find(5L)).thenReturn(Optional.of(2L));
+        when(orderItemRepository.findSellerIdsByOrderId(anyLong())).thenReturn(List.of(5L));
+
+        assertEquals(2, counter.get(5L));
+        counter.onOrderPlaced(new OrderPlacedEvent(1L));
+        counter.onOrderStatusChanged(new OrderStatusChangedEvent(2L, Status.PENDING, Status.CONFIRMED));
+        counter.onOrderPlaced(new OrderPlacedEvent(3L));
+        counter.onOrderDeleted(new OrderDeletedEvent(3L, Status.PENDING));
+
+        assertEquals(2, counter.get(5L));
+        verify(store, times(1)).find(5L);
+        verify(store, times(2)).adjust(List.of(5L), 1);
+        verify(store, times(2)).adjust(List.of(5L), -1);
+    }
+
+    @Test
+    void pushesNewCountToConnectedSeller() {
+        when(store.find(5L)).thenReturn(Optional.of(0L));
+        when(orderItemRepository.findSellerIdsByOrderId(1L)).thenReturn(List.of(5L));
+        when(hub.hasSubscribers(5L)).thenReturn(true);
+
+        counter.get(5L);
+        counter.onOrderPlaced(new OrderPlacedEvent(1L));
+
+        verify(hub).publish(5L, "pending-count", new PendingCountEvent(1));
+    }
+
+    @Test
+    void transitionsNotTouchingPendingAreFree() {
+        counter.onOrderStatusChanged(new OrderStatusChangedEvent(1L, Status.CONFIRMED, Status.DELIVERED));
+        counter.onOrderDeleted(new OrderDeletedEvent(1L, Status.CANCELLED));
+
+        verifyNoInteractions(orderItemRepository, store);
+    }
+
+    @Test
+    void reconcileAppliesDriftAndReloadsMemory() {
+        when(store.find(5L)).thenReturn(Optional.of(2L), Optional.of(4L));
+        when(store.drift(null)).thenReturn(Map.of(5L, 2L));
+        when(store.findAll(anyCollection())).thenReturn(Map.of(5L, 4L));
+        when(hub.hasSubscribers(5L)).thenReturn(true);
+
+        assertEquals(2, counter.get(5L));
+        counter.reconcile();
+
+        verify(store).adjust(Map.of(5L, 2L));
+        assertEquals(4, counter.get(5L));
+        verify(hub).publish(5L, "pending-count", new PendingCountEvent(4));
+    }
+
+    @Test
+    void onlyTheFirstReconcileRecountsEveryone() {
+        when(store.drift(any())).thenReturn(Map.of());
+
+        counter.reconcile();
+        counter.reconcile();
+
+        verify(store).drift(null);
+        verify(store).drift(notNull());
+        verify(store, never()).adjust(anyMap());
+    }
+}
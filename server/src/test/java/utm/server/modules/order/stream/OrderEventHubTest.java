@@ -0,0 +1,129 @@
+package utm.server.modules.order.stream;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OrderEventHubTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<SseEmitter> emitters = new ArrayList<>();
+    private final CountDownLatch sending = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    // Streams opened while set stall on their first send until release
+    private volatile boolean stalling;
+    private final OrderEventHub hub = new OrderEventHub(Duration.ofMinutes(30), 2, 5, 2, meterRegistry) {
+        @Override
+        SseEmitter newEmitter() {
+            SseEmitter emitter = mock(SseEmitter.class);
+            if (stalling) {
+                try {
+                    doAnswer(invocation -> {
+                        sending.countDown();
+                        release.await(5, TimeUnit.SECONDS);
+                        return null;
+                    }).when(emitter).send(any(SseEmitter.SseEventBuilder.class));
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            emitters.add(emitter);
+            return emitter;
+        }
+    };
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        hub.shutdown();
+    }
+
+    @Test
+    void closesTheOldestStreamBeyondFivePerUser() {
+        for (int i = 0; i < 6; i++) {
+            hub.subscribe(1L);
+        }
+        hub.subscribe(2L);
+
+        verify(emitters.get(0)).complete();
+        emitters.subList(1, 7).forEach(emitter -> verify(emitter, never()).complete());
+        assertEquals(6, hub.connections());
+        assertEquals(6, meterRegistry.get("orders.stream.connections").gauge().value());
+    }
+
+    @Test
+    void closingAStreamRemovesItAndCountsItOnce() {
+        hub.subscribe(1L);
+        hub.subscribe(1L);
+
+        completion(emitters.get(0)).run();
+        completion(emitters.get(0)).run();
+
+        assertEquals(1, hub.connections());
+        assertTrue(hub.hasSubscribers(1L));
+
+        completion(emitters.get(1)).run();
+
+        assertEquals(0, hub.connections());
+        assertFalse(hub.hasSubscribers(1L));
+    }
+
+    @Test
+    void sendsAHeartbeatToEveryStream() throws Exception {
+        hub.subscribe(1L);
+        hub.subscribe(2L);
+
+        hub.heartbeat();
+
+        for (SseEmitter emitter : emitters) {
+            ArgumentCaptor<SseEmitter.SseEventBuilder> sent = ArgumentCaptor.forClass(SseEmitter.SseEventBuilder.class);
+            verify(emitter, timeout(1000).times(2)).send(sent.capture());
+            assertTrue(text(sent.getAllValues().get(0)).contains(":connected"));
+            assertTrue(text(sent.getAllValues().get(1)).contains(":heartbeat"));
+        }
+    }
+
+    @Test
+    void disconnectsAStreamWhoseBufferOverflows() throws Exception {
+        hub.subscribe(2L);
+        stalling = true;
+        hub.subscribe(1L);
+        SseEmitter stuck = emitters.get(1);
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+
+        // The buffer holds two events while the first one is still being written
+        for (long orderId = 1; orderId <= 3; orderId++) {
+            hub.publish(1L, "order-placed", new OrderStreamEvent(orderId, null, null));
+        }
+
+        verify(stuck).complete();
+        assertFalse(hub.hasSubscribers(1L));
+        assertEquals(1, hub.connections());
+        verify(emitters.get(0), never()).complete();
+    }
+
+    private static Runnable completion(SseEmitter emitter) {
+        ArgumentCaptor<Runnable> callback = ArgumentCaptor.forClass(Runnable.class);
+        verify(emitter).onCompletion(callback.capture());
+        return callback.getValue();
+    }
+
+    private static String text(SseEmitter.SseEventBuilder event) {
+        StringBuilder text = new StringBuilder();
+        event.build().forEach(part -> text.append(part.getData()));
+        return text.toString();
+    }
+}
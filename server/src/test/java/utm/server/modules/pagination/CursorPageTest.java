@@ -0,0 +1,67 @@
+package utm.server.modules.pagination;
+
+import org.junit.jupiter.api.Test;
+import utm.server.except.InvalidPageRequestException;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CursorPageTest {
+
+    @Test
+    void cursorRoundTrip() {
+        KeysetCursor cursor = new KeysetCursor("PRICE_ASC", "12.5", 42L);
+
+        KeysetCursor decoded = KeysetCursor.decode(cursor.encode(), "PRICE_ASC");
+
+        assertEquals(cursor, decoded);
+        assertEquals(12.5, decoded.keyAsDouble());
+    }
+
+    @Test
+    void keyMayContainSeparator() {
+        KeysetCursor cursor = new KeysetCursor("NAME", "Wood | Stone", 3L);
+
+        assertEquals(cursor, KeysetCursor.decode(cursor.encode(), "NAME"));
+    }
+
+    @Test
+    void cursorForOtherSortIsRejected() {
+        String token = new KeysetCursor("NEWEST", "", 7L).encode();
+
+        assertThrows(InvalidPageRequestException.class, () -> KeysetCursor.decode(token, "PRICE_ASC"));
+        assertThrows(InvalidPageRequestException.class, () -> KeysetCursor.decode("not a cursor", "NEWEST"));
+    }
+
+    @Test
+    void extraRowMarksNextPage() {
+        List<Long> rows = List.of(10L, 9L, 8L);
+
+        CursorPage<String> page = CursorPage.of(rows, 2,
+                id -> new KeysetCursor("NEWEST", "", id),
+                ids -> ids.stream().map(String::valueOf).toList());
+
+        assertEquals(List.of("10", "9"), page.items());
+        assertTrue(page.hasMore());
+        assertEquals(9L, KeysetCursor.decode(page.nextCursor(), "NEWEST").id());
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        CursorPage<Long> page = CursorPage.of(List.of(1L), 2,
+                id -> new KeysetCursor("NEWEST", "", id),
+                ids -> ids);
+
+        assertFalse(page.hasMore());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void sizeIsBounded() {
+        assertEquals(CursorPage.DEFAULT_SIZE, CursorPage.clampSize(null));
+        assertEquals(CursorPage.DEFAULT_SIZE, CursorPage.clampSize(0));
+        assertEquals(CursorPage.MAX_SIZE, CursorPage.clampSize(10_000));
+        assertEquals(5, CursorPage.clampSize(5));
+    }
+}
@@ -0,0 +1,93 @@
+package utm.server.modules.products;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Inserts products through {@link ProductRepository} the way the application does (pooled
+ * sequence ids, {@code hibernate.jdbc.batch_size}, {@code reWriteBatchedInserts}), once with JDBC
+ * batching turned off for the session and once with the configured batch size, and checks the
+ * batched run needs a fraction of the statements. Works in a scratch {@code product_bench}
+ * schema that Hibernate creates and drops:
+ * <pre>
+ * mvn test -Dtest=ProductInsertBenchmarkTest -Dbenchmark.jdbc.url=jdbc:postgresql://localhost:5432/bench \
+ *     -Dbenchmark.jdbc.user=postgres -Dbenchmark.jdbc.password=...
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark.jdbc.url", matches = ".+")
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.default_schema=product_bench",
+        "spring.jpa.properties.hibernate.hbm2ddl.create_namespaces=true",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class ProductInsertBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductInsertBenchmarkTest.class);
+
+    private static final int ROWS = 10_000;
+    private static final int BATCH_SIZE = 50;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @DynamicPropertySource
+    static void benchmarkDatabase(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getProperty("benchmark.jdbc.url"));
+        registry.add("spring.datasource.username", () -> System.getProperty("benchmark.jdbc.user", "postgres"));
+        registry.add("spring.datasource.password", () -> System.getProperty("benchmark.jdbc.password", ""));
+    }
+
+    @Test
+    void batchedInsertsAgainstRowByRow() {
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+
+        long rowByRow = insert("row by row", 1, statistics);
+        long batched = insert("batched", BATCH_SIZE, statistics);
+
+        assertTrue(rowByRow >= ROWS, "the row-by-row run batched its inserts");
+        assertTrue(batched * 10 < rowByRow, "inserts were not batched: " + batched + " statements");
+    }
+
+    /**
+     * Saves {@link #ROWS} products with the given session batch size and returns the number of
+     * JDBC statements it took. The test transaction rolls everything back.
+     */
+    private long insert(String name, int batchSize, Statistics statistics) {
+        entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+        List<Product> products = IntStream.range(0, ROWS)
+                .mapToObj(i -> Product.builder().title("Product " + i).price(i).build())
+                .toList();
+        statistics.clear();
+
+        long started = System.nanoTime();
+        productRepository.saveAll(products);
+        entityManager.flush();
+        double seconds = (System.nanoTime() - started) / 1e9;
+        entityManager.clear();
+
+        long statements = statistics.getPrepareStatementCount();
+        log.info("{}: {} rows/s, {} statements", name, String.format("%,.0f", ROWS / seconds), statements);
+        return statements;
+    }
+}
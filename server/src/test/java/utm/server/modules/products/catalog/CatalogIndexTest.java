@@ -0,0 +1,99 @@
+package utm.server.modules.products.catalog;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import utm.server.modules.pagination.KeysetCursor;
+import utm.server.modules.products.ProductSort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogIndexTest {
+
+    private static final CatalogFilter ALL = new CatalogFilter(null, null, null, null, null);
+
+    private CatalogIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new CatalogIndex();
+        index.replaceAll(List.of(
+                new CatalogRow(1, 30.0, 10, CatalogRow.NONE, Set.of("Ceramics")),
+                new CatalogRow(2, 10.0, 10, CatalogRow.NONE, Set.of("Ceramics", "Art")),
+                new CatalogRow(3, 20.0, 20, CatalogRow.NONE, Set.of("Woodwork")),
+                new CatalogRow(4, 20.0, 20, CatalogRow.NONE, Set.of("Art"))));
+    }
+
+    @Test
+    void combinesFiltersAndCountsFacets() {
+        CatalogFilter filter = new CatalogFilter(Set.of("Art", "Woodwork"), null, null, 15.0, 25.0);
+
+        CatalogResult result = index.query(filter, ProductSort.PRICE_ASC, null, 10);
+
+        assertEquals(List.of(3L, 4L), result.productIds());
+        assertEquals(2, result.total());
+        assertEquals(1, result.tagCounts().get("Art"));
+        assertEquals(2, result.shopCounts().get(20L));
+        assertNull(result.nextCursor());
+    }
+
+    @Test
+    void pagesFollowEveryOrdering() {
+        assertEquals(List.of(2L, 3L, 4L, 1L), allPages(ProductSort.PRICE_ASC));
+        assertEquals(List.of(1L, 4L, 3L, 2L), allPages(ProductSort.PRICE_DESC));
+        assertEquals(List.of(4L, 3L, 2L, 1L), allPages(ProductSort.NEWEST));
+        assertEquals(List.of(1L, 2L, 3L, 4L), allPages(ProductSort.OLDEST));
+    }
+
+    @Test
+    void writesAreMergedWithoutRebuild() {
+        index.upsert(new CatalogRow(3, 5.0, 20, CatalogRow.NONE, Set.of("Woodwork")));
+        index.upsert(new CatalogRow(5, 25.0, 30, CatalogRow.NONE, Set.of("Glass")));
+        index.remove(1);
+
+        assertEquals(List.of(3L, 2L, 4L, 5L), allPages(ProductSort.PRICE_ASC));
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    void writesDuringAReloadSurviveIt() {
+        CatalogIndex fresh = new CatalogIndex();
+        assertFalse(fresh.isReady());
+
+        fresh.beginReload();
+        fresh.upsert(new CatalogRow(5, 50.0, 10, CatalogRow.NONE, Set.of()));
+        fresh.remove(2);
+        // Read before the writes above committed
+        fresh.completeReload(List.of(
+                new CatalogRow(1, 30.0, 10, CatalogRow.NONE, Set.of()),
+                new CatalogRow(2, 10.0, 10, CatalogRow.NONE, Set.of())));
+
+        assertTrue(fresh.isReady());
+        assertEquals(List.of(1L, 5L), fresh.query(ALL, ProductSort.PRICE_ASC, null, 10).productIds());
+    }
+
+    @Test
+    void compactsWhenDeltaGrows() {
+        for (long id = 100; id < 100 + CatalogIndex.COMPACT_THRESHOLD + 1; id++) {
+            index.upsert(new CatalogRow(id, 1.0, 10, CatalogRow.NONE, Set.of()));
+        }
+
+        assertEquals(4 + CatalogIndex.COMPACT_THRESHOLD + 1, index.size());
+        assertEquals(2, index.query(new CatalogFilter(Set.of("Art"), null, null, null, null),
+                ProductSort.NEWEST, null, 10).total());
+    }
+
+    private List<Long> allPages(ProductSort sort) {
+        List<Long> ids = new ArrayList<>();
+        KeysetCursor after = null;
+        do {
+            CatalogResult result = index.query(ALL, sort, after, 1);
+            ids.addAll(result.productIds());
+            after = result.nextCursor() == null ? null : KeysetCursor.decode(result.nextCursor(), sort.name());
+        } while (after != null);
+        return ids;
+    }
+}
@@ -0,0 +1,58 @@
+package utm.server.modules.products.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductSearchIndexTest {
+
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSearchIndex();
+        index.upsert(new SearchDocument(1L, "Ceramic mug", "Hand thrown stoneware", List.of("Ceramics"), "Clay Corner"));
+        index.upsert(new SearchDocument(2L, "Oak cutting board", "Solid oak, oiled", List.of("Woodwork"), "Timber Tales"));
+        index.upsert(new SearchDocument(3L, "Tea set", "Ceramic cups and a mug rack", List.of("Ceramics"), "Clay Corner"));
+    }
+
+    @Test
+    void titleMatchesRankAboveDescriptionMatches() {
+        List<SearchHit> hits = index.search("ceramic mug", 10);
+
+        assertEquals(List.of(1L, 3L), hits.stream().map(SearchHit::productId).toList());
+    }
+
+    @Test
+    void typosAreToleratedThroughTrigrams() {
+        List<SearchHit> hits = index.search("cuting bord", 10);
+
+        assertFalse(hits.isEmpty());
+        assertEquals(2L, hits.get(0).productId());
+    }
+
+    @Test
+    void updatesAndRemovalsAreReflected() {
+        index.upsert(new SearchDocument(2L, "Walnut tray", "", List.of(), null));
+        index.remove(1L);
+
+        assertTrue(index.search("oak", 10).isEmpty());
+        assertEquals(List.of(3L), index.search("mug", 10).stream().map(SearchHit::productId).toList());
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void writesDuringRebuildSurviveTheSwap() {
+        index.beginRebuild();
+        index.upsert(new SearchDocument(4L, "Linen apron", "", List.of("Textiles"), null));
+
+        index.completeRebuild(List.of(AnalyzedDocument.of(
+                new SearchDocument(1L, "Ceramic mug", "", List.of(), null))));
+
+        assertEquals(2, index.size());
+        assertEquals(4L, index.search("apron", 10).get(0).productId());
+    }
+}
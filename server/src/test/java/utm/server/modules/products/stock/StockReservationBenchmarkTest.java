@@ -0,0 +1,191 @@
+package utm.server.modules.products.stock;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs {@link ProductStockStore} against PostgreSQL: checks its shortage reporting and that two
+ * carts sharing products in opposite orders do not deadlock, then has many buyers race for a few
+ * one-of-a-kind products through {@link ProductStockStore#reserve}, next to the same checkouts
+ * done with {@code SELECT ... FOR UPDATE}, and checks that neither sells a unit twice. Works in a scratch {@code stock_bench} schema, which it drops afterwards:
+ * <pre>
+ * mvn test -Dtest=StockReservationBenchmarkTest -Dbenchmark.jdbc.url=jdbc:postgresql://localhost:5432/bench \
+ *     -Dbenchmark.jdbc.user=postgres -Dbenchmark.jdbc.password=...
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark.jdbc.url", matches = ".+")
+class StockReservationBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(StockReservationBenchmarkTest.class);
+
+    private static final int BUYERS = 32;
+    private static final int CHECKOUTS_PER_BUYER = 200;
+    private static final int PRODUCTS = 50;
+    private static final int LINES_PER_CHECKOUT = 2;
+
+    private static HikariDataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+    private static TransactionTemplate transactionTemplate;
+    private static ProductStockStore store;
+
+    @BeforeAll
+    static void connect() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getProperty("benchmark.jdbc.url"));
+        dataSource.setUsername(System.getProperty("benchmark.jdbc.user", "postgres"));
+        dataSource.setPassword(System.getProperty("benchmark.jdbc.password", ""));
+        dataSource.setMaximumPoolSize(BUYERS);
+        // The store writes to "products"; keep it away from any real table of that name
+        dataSource.setConnectionInitSql("SET search_path TO stock_bench");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        store = new ProductStockStore(jdbcTemplate);
+        jdbcTemplate.execute("CREATE SCHEMA IF NOT EXISTS stock_bench");
+    }
+
+    @AfterAll
+    static void dropSchema() {
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS stock_bench CASCADE");
+        dataSource.close();
+    }
+
+    @Test
+    void reportsEveryShortLineAndLeavesUntrackedProductsAlone() {
+        createProducts("(1, 1), (2, 0), (3, NULL), (4, 2)");
+
+        StockUnavailableException e = assertThrows(StockUnavailableException.class,
+                () -> reserve(Map.of(1L, 1, 2L, 1, 3L, 5, 4L, 3)));
+        assertEquals(List.of(new StockShortage(2L, 1, 0), new StockShortage(4L, 3, 2)), e.getShortages());
+        assertEquals(List.of(1, 0, 2), stock(1L, 2L, 4L), "the lines that fitted were rolled back");
+
+        reserve(Map.of(1L, 1, 3L, 5, 4L, 2));
+        assertEquals(List.of(0, 0), stock(1L, 4L));
+        assertNull(jdbcTemplate.queryForObject("SELECT stock FROM products WHERE id = 3", Integer.class));
+
+        store.release(Map.of(1L, 1, 3L, 5));
+        assertEquals(List.of(1), stock(1L));
+        assertNull(jdbcTemplate.queryForObject("SELECT stock FROM products WHERE id = 3", Integer.class));
+    }
+
+    @Test
+    void overlappingCartsInOppositeOrdersDoNotDeadlock() throws Exception {
+        createProducts("(1, 100000), (2, 100000), (3, 100000), (4, 100000)");
+
+        ExecutorService buyers = Executors.newFixedThreadPool(2);
+        List<Future<?>> results = new ArrayList<>();
+        for (List<Long> order : List.of(List.of(1L, 2L, 3L, 4L), List.of(4L, 3L, 2L, 1L))) {
+            Map<Long, Integer> cart = new LinkedHashMap<>();
+            order.forEach(productId -> cart.put(productId, 1));
+            results.add(buyers.submit(() -> {
+                for (int n = 0; n < CHECKOUTS_PER_BUYER * 5; n++) {
+                    reserve(cart);
+                    store.release(cart);
+                }
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        buyers.shutdown();
+
+        assertEquals(List.of(100000, 100000, 100000, 100000), stock(1L, 2L, 3L, 4L));
+    }
+
+    @Test
+    void conditionalDecrementVersusSelectForUpdate() throws Exception {
+        run("ProductStockStore.reserve", ids -> {
+            try {
+                reserve(Map.of(ids[0], 1, ids[1], 1));
+                return true;
+            } catch (StockUnavailableException e) {
+                return false;
+            }
+        });
+        run("select for update", ids -> Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            List<Integer> stock = jdbcTemplate.queryForList(
+                    "SELECT stock FROM products WHERE id = ANY(CAST(? AS bigint[])) ORDER BY id FOR UPDATE",
+                    Integer.class, (Object) ids);
+            if (stock.stream().anyMatch(units -> units < 1)) {
+                return false;
+            }
+            jdbcTemplate.update("UPDATE products SET stock = stock - 1 WHERE id = ANY(CAST(? AS bigint[]))",
+                    (Object) ids);
+            return true;
+        })));
+    }
+
+    private void run(String name, Predicate<Long[]> checkout) throws Exception {
+        createProducts(null);
+
+        ExecutorService buyers = Executors.newFixedThreadPool(BUYERS);
+        List<Future<Integer>> results = new ArrayList<>();
+        long started = System.nanoTime();
+        for (int i = 0; i < BUYERS; i++) {
+            results.add(buyers.submit(() -> {
+                int placed = 0;
+                for (int n = 0; n < CHECKOUTS_PER_BUYER; n++) {
+                    long first = ThreadLocalRandom.current().nextLong(1, PRODUCTS);
+                    long second = ThreadLocalRandom.current().nextLong(first + 1, PRODUCTS + 1);
+                    if (checkout.test(new Long[]{first, second})) {
+                        placed++;
+                    }
+                }
+                return placed;
+            }));
+        }
+        int orders = 0;
+        for (Future<Integer> result : results) {
+            orders += result.get();
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        buyers.shutdown();
+
+        Map<String, Object> left = jdbcTemplate.queryForMap("SELECT sum(stock) AS units, min(stock) AS lowest FROM products");
+        int units = ((Number) left.get("units")).intValue();
+        log.info("{}: {} checkouts/s, {} orders placed, {} units left", name,
+                String.format("%,.0f", BUYERS * CHECKOUTS_PER_BUYER / seconds), orders, units);
+        assertTrue(((Number) left.get("lowest")).intValue() >= 0, "stock went negative");
+        assertEquals(PRODUCTS, orders * LINES_PER_CHECKOUT + units, "a unit was sold twice");
+    }
+
+    private static void reserve(Map<Long, Integer> quantities) {
+        transactionTemplate.executeWithoutResult(status -> store.reserve(quantities));
+    }
+
+    /**
+     * Recreates the products table with the given {@code (id, stock)} rows, or {@link #PRODUCTS}
+     * single-unit products.
+     */
+    private static void createProducts(String values) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS products");
+        jdbcTemplate.execute("CREATE TABLE products (id bigint PRIMARY KEY, stock int)");
+        jdbcTemplate.execute(values != null
+                ? "INSERT INTO products VALUES " + values
+                : "INSERT INTO products SELECT g, 1 FROM generate_series(1, " + PRODUCTS + ") g");
+    }
+
+    private static List<Integer> stock(Long... ids) {
+        return jdbcTemplate.queryForList("SELECT stock FROM products WHERE id = ANY(CAST(? AS bigint[])) ORDER BY id",
+                Integer.class, (Object) ids);
+    }
+}
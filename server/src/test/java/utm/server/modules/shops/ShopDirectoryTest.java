@@ -0,0 +1,82 @@
+package utm.server.modules.shops;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import utm.server.modules.image.ImageService;
+import utm.server.modules.pagination.CursorPage;
+import utm.server.modules.products.ProductRepository;
+import utm.server.modules.shops.dto.ShopDto;
+import utm.server.modules.shops.dto.ShopMapper;
+import utm.server.modules.shops.dto.ShopRow;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ShopDirectoryTest {
+
+    private final ShopRepository shopRepository = mock(ShopRepository.class);
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final ImageService imageService = mock(ImageService.class);
+    private final ShopDirectory directory = new ShopDirectory(shopRepository, productRepository,
+            new ShopMapper(imageService), Duration.ofMinutes(1), new SimpleMeterRegistry());
+
+    @Test
+    void pagesFollowEachOrdering() {
+        when(shopRepository.findAllRows()).thenReturn(List.of(row(1, "Birch"), row(2, "alder"), row(3, "Cedar")));
+        when(productRepository.countProductsByShop()).thenReturn(List.of(count(1, 5), count(3, 9)));
+        when(imageService.getPermanentLinks(any())).thenReturn(Map.of());
+
+        CursorPage<ShopDto> first = directory.page("name", null, 2);
+        assertEquals(List.of("alder", "Birch"), names(first));
+        CursorPage<ShopDto> second = directory.page("name", first.nextCursor(), 2);
+        assertEquals(List.of("Cedar"), names(second));
+        assertFalse(second.hasMore());
+
+        CursorPage<ShopDto> byCount = directory.page("product_count", null, 1);
+        assertEquals(List.of("Cedar"), names(byCount));
+        assertEquals(List.of("Birch"), names(directory.page("product_count", byCount.nextCursor(), 1)));
+
+        assertEquals(List.of("Cedar", "alder", "Birch"), names(directory.page(null, null, 10)));
+        verify(shopRepository, times(1)).findAllRows();
+    }
+
+    @Test
+    void shopChangeReloads() {
+        when(shopRepository.findAllRows()).thenReturn(List.of(row(1, "Birch")));
+        when(imageService.getPermanentLinks(any())).thenReturn(Map.of());
+
+        directory.page(null, null, 10);
+        directory.onShopChanged(new ShopChangedEvent(1L));
+        directory.page(null, null, 10);
+
+        verify(shopRepository, times(2)).findAllRows();
+    }
+
+    private static List<String> names(CursorPage<ShopDto> page) {
+        return page.items().stream().map(ShopDto::getName).toList();
+    }
+
+    private static ShopRow row(long id, String name) {
+        return new ShopRow(id, UUID.randomUUID(), name, null, null, null, 1L);
+    }
+
+    private static ProductRepository.ShopProductCount count(long shopId, long products) {
+        return new ProductRepository.ShopProductCount() {
+            @Override
+            public Long getShopId() {
+                return shopId;
+            }
+
+            @Override
+            public Long getProductCount() {
+                return products;
+            }
+        };
+    }
+}